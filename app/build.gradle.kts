@@ -35,6 +35,7 @@ android {
 }
 
 dependencies {
+    implementation(project(":yolo-core"))
     implementation("androidx.appcompat:appcompat:1.7.0")
     implementation("com.google.android.material:material:1.12.0")
     implementation("androidx.constraintlayout:constraintlayout:2.2.0")
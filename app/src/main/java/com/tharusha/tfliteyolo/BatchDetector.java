@@ -0,0 +1,291 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp BatchDetector phát hiện đối tượng trên nhiều ảnh trong một lần gọi interpreter (batch N):
+// N ảnh được tiền xử lý song song vào các phần liên tiếp của một tensor đầu vào [N][size][size][3],
+// chạy một lần, rồi N phần của tensor đầu ra được giải mã + NMS song song.
+// Dùng cho quét thư viện ảnh / nhiều camera (cần thông lượng hơn độ trễ). Dùng interpreter riêng
+// nên không ảnh hưởng tới interpreter batch 1 của chế độ live.
+public class BatchDetector {
+    private final YOLOModel yoloModel;
+    // Lớp được bật và ngưỡng theo lớp (giống detector batch 1 tạo ra nó)
+    public volatile DetectorConfig config;
+    // Ngưỡng IoU của NMS (giống detector batch 1 tạo ra nó)
+    public volatile float iouThreshold = 0.5f;
+    private final int maxBatch;
+    private final int inputImageSize;
+    private final int numChannels;
+    private final int numAnchors;
+    private final int inputFrameBytes;  // Số byte của một ảnh trong tensor đầu vào
+    private final int outputFrameBytes; // Số byte của kết quả một ảnh trong tensor đầu ra
+
+    private Interpreter interpreter; // null nếu mô hình không cho đổi kích thước batch
+
+    private final ByteBuffer inputBuffer;
+    private final ByteBuffer outputBuffer;
+    // View đúng kích thước batch (interpreter yêu cầu capacity bằng đúng kích thước tensor)
+    private ByteBuffer batchInput;
+    private ByteBuffer batchOutput;
+
+    // Tài nguyên riêng của từng vị trí trong batch, cấp phát một lần
+    private final Slot[] slots;
+
+    private final ExecutorService executor; // null nếu chỉ dùng luồng gọi
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicReference<Throwable> workerFailure = new AtomicReference<>(); // Lỗi đầu tiên của worker
+    private final Runnable[] workerTasks;
+    private volatile Thread caller;
+    private volatile boolean decodePhase; // false: tiền xử lý, true: giải mã + NMS
+    private int activeSlots;
+
+    public BatchDetector(YOLOModel model, int maxBatch, int numThreads) {
+        this.yoloModel = model;
+        this.config = YOLODetector.createConfig(model);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.inputImageSize = model.inputShape[1];
+        this.numChannels = model.outputShape[1];
+        this.numAnchors = model.outputShape[2];
+        this.inputFrameBytes = model.inputSpec.bytesPerElement() * inputImageSize * inputImageSize * 3;
+        this.outputFrameBytes = model.outputSpec.bytesPerElement() * numChannels * numAnchors;
+
+        this.inputBuffer = ByteBuffer.allocateDirect(inputFrameBytes * this.maxBatch).order(ByteOrder.nativeOrder());
+        this.outputBuffer = ByteBuffer.allocateDirect(outputFrameBytes * this.maxBatch).order(ByteOrder.nativeOrder());
+        this.slots = new Slot[this.maxBatch];
+        for (int i = 0; i < this.maxBatch; i++) {
+            slots[i] = new Slot(i);
+        }
+
+        // Interpreter riêng với batch maxBatch; mô hình export với batch cố định sẽ lỗi ở đây.
+        // Chạy thử một lần trên tensor 0 để cấp phát và chuẩn bị kernel ngay, không phải ở lần gọi đầu tiên
+        try {
+            interpreter = model.createInterpreter(model.executionProfile);
+            resize(this.maxBatch);
+            interpreter.run(batchInput, batchOutput);
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (interpreter != null) {
+                interpreter.close();
+                interpreter = null;
+            }
+        }
+
+        numThreads = Math.max(1, Math.min(numThreads, this.maxBatch));
+        this.workerTasks = new Runnable[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workerTasks[i] = this::runWorker;
+        }
+        this.executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "YOLOBatch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // true nếu mô hình chạy được với batch > 1; nếu không, các ảnh được chạy lần lượt (vẫn song song tiền xử lý)
+    public boolean isBatchSupported() {
+        return interpreter != null;
+    }
+
+    // Phát hiện đối tượng trên từng ảnh, trả về danh sách kết quả theo thứ tự ảnh
+    public List<List<YOLODetection>> detectObjects(List<Bitmap> bitmaps) {
+        List<List<YOLODetection>> results = new ArrayList<>(bitmaps.size());
+        for (int start = 0; start < bitmaps.size(); start += maxBatch) {
+            int count = Math.min(maxBatch, bitmaps.size() - start);
+            detectChunk(bitmaps, start, count);
+            for (int i = 0; i < count; i++) {
+                results.add(slots[i].results.toLabeledDetections(config.labels));
+            }
+        }
+        return results;
+    }
+
+    // Phát hiện đối tượng trên từng ảnh, kết quả ảnh i ghi vào out[i] (bộ đệm do caller giữ lại qua các lần gọi)
+    public void detectObjects(List<Bitmap> bitmaps, DetectionBuffer[] out) {
+        for (int start = 0; start < bitmaps.size(); start += maxBatch) {
+            int count = Math.min(maxBatch, bitmaps.size() - start);
+            detectChunk(bitmaps, start, count);
+            for (int i = 0; i < count; i++) {
+                out[start + i].copyFrom(slots[i].results);
+            }
+        }
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (Slot slot : slots) {
+            slot.preprocessor.close();
+        }
+        if (interpreter != null) {
+            interpreter.close();
+            interpreter = null;
+        }
+    }
+
+    // Xử lý tối đa maxBatch ảnh: tiền xử lý song song -> một lần chạy mô hình -> giải mã song song
+    private void detectChunk(List<Bitmap> bitmaps, int start, int count) {
+        for (int i = 0; i < count; i++) {
+            slots[i].bitmap = bitmaps.get(start + i);
+        }
+        try {
+            runChunk(count);
+        } finally {
+            for (int i = 0; i < count; i++) {
+                slots[i].bitmap = null;
+            }
+        }
+    }
+
+    private void runChunk(int count) {
+        activeSlots = count;
+        runSlots(false);
+
+        if (interpreter != null) {
+            // Phần cuối của danh sách (count < maxBatch) vẫn chạy với batch maxBatch: các slot thừa giữ dữ liệu cũ
+            // và không được giải mã. Tốn thêm một phần suy luận nhưng không phải đổi kích thước + cấp phát lại
+            // tensor hai lần ở mỗi lần gọi có số ảnh lẻ
+            batchInput.rewind();
+            batchOutput.rewind();
+            interpreter.run(batchInput, batchOutput);
+        } else {
+            // Mô hình batch cố định 1: chạy lần lượt từng ảnh trên interpreter của model
+            for (int i = 0; i < count; i++) {
+                slots[i].input.rewind();
+                slots[i].output.rewind();
+                yoloModel.run(slots[i].input, slots[i].output);
+            }
+        }
+
+        runSlots(true);
+    }
+
+    private void resize(int batch) {
+        interpreter.resizeInput(0, new int[]{batch, inputImageSize, inputImageSize, 3});
+        interpreter.allocateTensors();
+        batchInput = slice(inputBuffer, 0, batch * inputFrameBytes);
+        batchOutput = slice(outputBuffer, 0, batch * outputFrameBytes);
+    }
+
+    // Chạy tiền xử lý hoặc giải mã cho các slot đang dùng trên luồng gọi + thread pool, chờ tất cả xong.
+    // Luôn chờ các worker (chúng ghi vào slot dùng chung) rồi ném lại lỗi đầu tiên của worker: slot lỗi còn giữ
+    // kết quả của lần gọi trước nên không được trả về như kết quả của ảnh này
+    private void runSlots(boolean decode) {
+        decodePhase = decode;
+        nextSlot.set(0);
+        int numWorkers = Math.min(workerTasks.length, activeSlots);
+        caller = Thread.currentThread();
+        workerFailure.set(null);
+        pendingTasks.set(numWorkers - 1);
+        try {
+            for (int i = 1; i < numWorkers; i++) {
+                try {
+                    executor.execute(workerTasks[i]);
+                } catch (RejectedExecutionException e) {
+                    // Không gửi được: luồng gọi xử lý các slot còn lại
+                    pendingTasks.addAndGet(-(numWorkers - i));
+                    break;
+                }
+            }
+            processSlots();
+        } finally {
+            while (pendingTasks.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+        Throwable failure = workerFailure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    private void runWorker() {
+        try {
+            processSlots();
+        } catch (RuntimeException | Error e) {
+            workerFailure.compareAndSet(null, e);
+        } finally {
+            if (pendingTasks.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    private void processSlots() {
+        boolean decode = decodePhase;
+        int i;
+        while ((i = nextSlot.getAndIncrement()) < activeSlots) {
+            if (decode) {
+                slots[i].decode();
+            } else {
+                slots[i].preprocess();
+            }
+        }
+    }
+
+    // Một vị trí trong batch: phần tương ứng của tensor đầu vào / đầu ra và bộ nhớ tạm riêng
+    private class Slot {
+        final ByteBuffer input;  // View phần [index] của tensor đầu vào
+        final ByteBuffer output; // View phần [index] của tensor đầu ra
+        final LetterboxPreprocessor preprocessor;
+        final YOLOOutputDecoder decoder;
+        final NonMaxSuppression nms = new NonMaxSuppression(0.5f, false);
+        final Letterbox letterbox = new Letterbox();
+        final DetectionBuffer candidates;
+        final DetectionBuffer results;
+        int[] pixels = new int[0];
+        Bitmap bitmap;
+
+        Slot(int index) {
+            input = slice(inputBuffer, index * inputFrameBytes, inputFrameBytes);
+            output = slice(outputBuffer, index * outputFrameBytes, outputFrameBytes);
+            // Mỗi slot một luồng (các slot đã chạy song song với nhau)
+            preprocessor = new LetterboxPreprocessor(input, inputImageSize, inputImageSize, yoloModel.inputSpec, 1);
+            decoder = new YOLOOutputDecoder(numChannels, numAnchors, yoloModel.outputSpec);
+            candidates = new DetectionBuffer(numAnchors);
+            results = new DetectionBuffer(nms.maxDetections);
+        }
+
+        void preprocess() {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            if (pixels.length < width * height) {
+                pixels = new int[width * height];
+            }
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            preprocessor.processArgb(pixels, width, height, letterbox);
+        }
+
+        void decode() {
+            output.rewind();
+            decoder.decode(output, config, letterbox, candidates);
+            nms.iouThreshold = iouThreshold;
+            nms.run(candidates, results);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice().order(ByteOrder.nativeOrder());
+    }
+}
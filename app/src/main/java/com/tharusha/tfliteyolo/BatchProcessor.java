@@ -0,0 +1,639 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.media.MediaMetadataRetriever;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp BatchProcessor chạy YOLO không cần giao diện trên thư mục ảnh và video quay sẵn, theo ba tầng nối bằng
+// hàng đợi có giới hạn (đầy thì tầng trước chờ, bộ nhớ không tăng theo số ảnh):
+//   giải mã (nhiều luồng, mỗi ảnh / mỗi video một đơn vị) -> suy luận (mỗi luồng một interpreter riêng)
+//   -> ghi kết quả (nhiều luồng: dòng JSON trong results.jsonl và ảnh JPEG đã vẽ box).
+// results.jsonl đồng thời là nhật ký tiến độ: chạy lại trên cùng thư mục output sẽ bỏ qua các ảnh / frame đã có.
+public class BatchProcessor {
+    public static final String RESULTS_FILE = "results.jsonl";
+
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "webp", "bmp");
+    private static final List<String> VIDEO_EXTENSIONS = Arrays.asList("mp4", "3gp", "mkv", "webm", "mov");
+
+    public static class Options {
+        public int decodeThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        public int encodeThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        public int queueCapacity = 8;            // Số frame tối đa chờ giữa hai tầng
+        public int maxDecodeSide = 1920;         // Ảnh lớn hơn được giải mã thu nhỏ (inSampleSize)
+        public long videoFrameIntervalMs = 1000; // Khoảng cách giữa hai frame lấy từ video
+        public boolean writeAnnotated = true;    // Ghi ảnh JPEG đã vẽ box
+        public int jpegQuality = 90;
+    }
+
+    // Gọi sau mỗi frame hoàn thành (trên luồng ghi kết quả)
+    public interface Listener {
+        void onProgress(Stats stats);
+    }
+
+    // Bộ đếm của một tầng: số frame đã xử lý và tổng thời gian bận của các luồng trong tầng
+    public static class StageCounter {
+        public final String name;
+        final int threads;
+        final AtomicLong items = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+
+        StageCounter(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void record(long startNanos) {
+            items.incrementAndGet();
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    // Ảnh chụp số liệu: thông lượng (frame/giây) và mức bận (0..1) của từng tầng, độ dài hàng đợi
+    public static class Stats {
+        public long elapsedNanos;
+        public long completed; // Frame đã ghi kết quả trong lần chạy này
+        public long skipped;   // Frame đã có kết quả từ lần chạy trước
+        public long failed;    // Ảnh / frame lỗi (bỏ qua)
+        public final String[] stageNames = new String[3];
+        public final long[] stageItems = new long[3];
+        public final float[] stageThroughput = new float[3];
+        public final float[] stageUtilization = new float[3];
+        public int decodedQueue, inferredQueue;
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "%.1fs  done %d  skipped %d  failed %d  queues %d/%d%n",
+                    elapsedNanos / 1e9, completed, skipped, failed, decodedQueue, inferredQueue));
+            for (int i = 0; i < stageNames.length; i++) {
+                sb.append(String.format(Locale.US, "%-8s %6d  %6.1f/s  busy %3.0f%%%n", stageNames[i],
+                        stageItems[i], stageThroughput[i], stageUtilization[i] * 100));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Một ảnh hoặc một frame video đi qua các tầng
+    private static class Frame {
+        final String key;     // Khoá duy nhất trong results.jsonl: đường dẫn (+ "@" thời điểm với video)
+        final File source;
+        final long timeMs;    // Thời điểm trong video, -1 với ảnh
+        Bitmap bitmap;
+        DetectionBuffer results;
+
+        Frame(String key, File source, long timeMs) {
+            this.key = key;
+            this.source = source;
+            this.timeMs = timeMs;
+        }
+    }
+
+    private static final Frame END = new Frame(null, null, -1); // Báo hiệu hết dữ liệu cho tầng sau
+
+    private final YOLOModel[] models;
+    private final YOLODetector[] detectors; // Mỗi luồng suy luận một detector (interpreter riêng)
+    private final List<String> classes;
+    private final Options options;
+    private volatile Listener listener;
+
+    private final StageCounter decodeCounter;
+    private final StageCounter inferCounter;
+    private final StageCounter encodeCounter;
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Trạng thái của lần chạy hiện tại
+    private BlockingQueue<Frame> decoded;
+    private BlockingQueue<Frame> inferred;
+    private final AtomicInteger nextSource = new AtomicInteger();
+    private final AtomicInteger activeDecoders = new AtomicInteger();
+    private final AtomicInteger activeInferrers = new AtomicInteger();
+    private final AtomicInteger pendingEncoders = new AtomicInteger();
+    private volatile Thread caller;
+    private volatile boolean cancelled;
+    private volatile IOException writeError;
+    private long startNanos;
+    private List<File> sources;
+    private Set<String> done;
+    private File outputDir;
+    private Writer resultsWriter;
+
+    // models: mỗi mô hình một interpreter, thường tạo bằng ModelManager.createWorkerModels (BatchProcessor sở hữu
+    // và đóng chúng trong close()); classes: tên lớp cho kết quả
+    public BatchProcessor(YOLOModel[] models, List<String> classes, Options options) {
+        this.models = models;
+        this.classes = classes;
+        this.options = options;
+        this.detectors = new YOLODetector[models.length];
+        for (int i = 0; i < models.length; i++) {
+            detectors[i] = new YOLODetector(models[i]);
+        }
+        this.decodeCounter = new StageCounter("decode", options.decodeThreads);
+        this.inferCounter = new StageCounter("infer", models.length);
+        this.encodeCounter = new StageCounter("encode", options.encodeThreads);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Xử lý các file / thư mục inputs (thư mục được duyệt đệ quy), ghi kết quả vào outputDir.
+    // Chặn tới khi xong hoặc bị huỷ; có thể gọi lại sau khi bị ngắt để chạy tiếp từ chỗ dừng.
+    // Khi luồng gọi bị ngắt (Thread.interrupt): huỷ như cancel(), chờ các tầng dừng rồi ném InterruptedIOException
+    public synchronized Stats run(List<File> inputs, File outputDir) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+        this.outputDir = outputDir;
+        File resultsFile = new File(outputDir, RESULTS_FILE);
+        done = loadCompleted(resultsFile);
+        sources = new ArrayList<>();
+        for (File input : inputs) {
+            collectSources(input, sources);
+        }
+        Collections.sort(sources);
+
+        decoded = new ArrayBlockingQueue<>(options.queueCapacity);
+        inferred = new ArrayBlockingQueue<>(options.queueCapacity);
+        nextSource.set(0);
+        cancelled = false;
+        writeError = null;
+        resetCounters();
+        startNanos = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+                options.decodeThreads + detectors.length + options.encodeThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "YOLOBatch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        boolean interrupted = false;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(resultsFile, true), StandardCharsets.UTF_8)) {
+            resultsWriter = writer;
+            caller = Thread.currentThread();
+            activeDecoders.set(options.decodeThreads);
+            activeInferrers.set(detectors.length);
+            pendingEncoders.set(options.encodeThreads);
+            for (int i = 0; i < options.decodeThreads; i++) {
+                pool.execute(this::decodeLoop);
+            }
+            for (YOLODetector detector : detectors) {
+                pool.execute(() -> inferLoop(detector));
+            }
+            for (int i = 0; i < options.encodeThreads; i++) {
+                pool.execute(this::encodeLoop);
+            }
+            // Chờ tầng cuối xong (các tầng trước kết thúc trước nó)
+            while (pendingEncoders.get() > 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    cancelled = true; // Các tầng bỏ frame còn lại nên kết thúc nhanh
+                }
+            }
+            writer.flush();
+        } finally {
+            resultsWriter = null;
+            pool.shutdown();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch run interrupted");
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+        return getStats();
+    }
+
+    // Dừng sớm: các frame đang xử lý được bỏ, lần chạy sau tiếp tục từ frame chưa có kết quả
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.elapsedNanos = System.nanoTime() - startNanos;
+        stats.completed = encodeCounter.items.get();
+        stats.skipped = skipped.get();
+        stats.failed = failed.get();
+        StageCounter[] counters = {decodeCounter, inferCounter, encodeCounter};
+        for (int i = 0; i < counters.length; i++) {
+            StageCounter counter = counters[i];
+            stats.stageNames[i] = counter.name;
+            stats.stageItems[i] = counter.items.get();
+            stats.stageThroughput[i] = stats.elapsedNanos > 0 ? counter.items.get() * 1e9f / stats.elapsedNanos : 0;
+            stats.stageUtilization[i] = stats.elapsedNanos > 0
+                    ? counter.busyNanos.get() / (float) (stats.elapsedNanos * counter.threads) : 0;
+        }
+        BlockingQueue<Frame> decodedQueue = decoded;
+        BlockingQueue<Frame> inferredQueue = inferred;
+        stats.decodedQueue = decodedQueue != null ? decodedQueue.size() : 0;
+        stats.inferredQueue = inferredQueue != null ? inferredQueue.size() : 0;
+        return stats;
+    }
+
+    public void close() {
+        for (YOLODetector detector : detectors) {
+            detector.close();
+        }
+        for (YOLOModel model : models) {
+            model.close();
+        }
+    }
+
+    private void resetCounters() {
+        for (StageCounter counter : new StageCounter[]{decodeCounter, inferCounter, encodeCounter}) {
+            counter.items.set(0);
+            counter.busyNanos.set(0);
+        }
+        skipped.set(0);
+        failed.set(0);
+    }
+
+    // Tầng 1: mỗi luồng nhận lần lượt một nguồn (ảnh hoặc cả một video) cho tới khi hết
+    private void decodeLoop() {
+        try {
+            int i;
+            while (!cancelled && (i = nextSource.getAndIncrement()) < sources.size()) {
+                File source = sources.get(i);
+                if (isVideo(source)) {
+                    decodeVideo(source);
+                } else {
+                    decodeImage(source);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Bộ giải mã cuối cùng báo hết dữ liệu cho từng luồng suy luận
+            if (activeDecoders.decrementAndGet() == 0) {
+                for (int k = 0; k < detectors.length; k++) {
+                    putUninterruptibly(decoded, END);
+                }
+            }
+        }
+    }
+
+    private void decodeImage(File source) throws InterruptedException {
+        String key = source.getAbsolutePath();
+        if (done.contains(key)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(source.getPath(), bounds);
+            BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+            decodeOptions.inMutable = true; // Vẽ box thẳng lên ảnh ở tầng ghi kết quả
+            decodeOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            int longSide = Math.max(bounds.outWidth, bounds.outHeight);
+            decodeOptions.inSampleSize = 1;
+            while (longSide / (decodeOptions.inSampleSize * 2) >= options.maxDecodeSide) {
+                decodeOptions.inSampleSize *= 2;
+            }
+            Bitmap bitmap = BitmapFactory.decodeFile(source.getPath(), decodeOptions);
+            if (bitmap == null) {
+                failed.incrementAndGet();
+                return;
+            }
+            Frame frame = new Frame(key, source, -1);
+            frame.bitmap = bitmap;
+            decodeCounter.record(start);
+            decoded.put(frame);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.incrementAndGet();
+        }
+    }
+
+    // Lấy frame mỗi videoFrameIntervalMs (frame key gần nhất, nhanh hơn nhiều so với giải mã chính xác từng frame)
+    private void decodeVideo(File source) throws InterruptedException {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(source.getPath());
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            long durationMs = duration != null ? Long.parseLong(duration) : 0;
+            for (long timeMs = 0; timeMs <= durationMs && !cancelled; timeMs += options.videoFrameIntervalMs) {
+                String key = source.getAbsolutePath() + "@" + timeMs;
+                if (done.contains(key)) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                long start = System.nanoTime();
+                Bitmap bitmap = retriever.getFrameAtTime(timeMs * 1000, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+                if (bitmap == null) {
+                    failed.incrementAndGet();
+                    continue;
+                }
+                Frame frame = new Frame(key, source, timeMs);
+                frame.bitmap = bitmap;
+                decodeCounter.record(start);
+                decoded.put(frame);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.incrementAndGet();
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Tầng 2: mỗi luồng một detector, nhận frame từ hàng đợi chung
+    private void inferLoop(YOLODetector detector) {
+        try {
+            Frame frame;
+            while ((frame = decoded.take()) != END) {
+                if (cancelled) {
+                    frame.bitmap.recycle();
+                    continue; // Vẫn lấy hết hàng đợi để bộ giải mã không bị chặn
+                }
+                long start = System.nanoTime();
+                try {
+                    frame.results = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+                    detector.detectObjects(frame.bitmap, frame.results);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    failed.incrementAndGet();
+                    frame.bitmap.recycle();
+                    continue;
+                }
+                inferCounter.record(start);
+                inferred.put(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activeInferrers.decrementAndGet() == 0) {
+                for (int k = 0; k < options.encodeThreads; k++) {
+                    putUninterruptibly(inferred, END);
+                }
+            }
+        }
+    }
+
+    // Tầng 3: vẽ box, ghi JPEG và dòng kết quả
+    private void encodeLoop() {
+        Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        boxPaint.setColor(Color.GREEN);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(Color.GREEN);
+        StringBuilder line = new StringBuilder();
+        try {
+            Frame frame;
+            while ((frame = inferred.take()) != END) {
+                if (cancelled) {
+                    frame.bitmap.recycle();
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    if (options.writeAnnotated) {
+                        writeAnnotated(frame, boxPaint, textPaint);
+                    }
+                    line.setLength(0);
+                    appendJson(frame, line);
+                    synchronized (this) {
+                        resultsWriter.write(line.toString());
+                        resultsWriter.flush(); // Dòng đã ghi = frame đã xong, kể cả khi tiến trình bị dừng
+                    }
+                    encodeCounter.record(start);
+                } catch (IOException e) {
+                    // Không ghi được kết quả: dừng cả lần chạy
+                    writeError = e;
+                    cancelled = true;
+                } catch (RuntimeException e) {
+                    // Lỗi của riêng frame này (vẽ, nén JPEG): bỏ frame, luồng ghi tiếp tục để các tầng trước không bị chặn
+                    e.printStackTrace();
+                    failed.incrementAndGet();
+                } finally {
+                    frame.bitmap.recycle();
+                }
+                Listener current = listener;
+                if (current != null) {
+                    try {
+                        current.onProgress(getStats());
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (pendingEncoders.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    private void writeAnnotated(Frame frame, Paint boxPaint, Paint textPaint) throws IOException {
+        Bitmap bitmap = frame.bitmap;
+        if (!bitmap.isMutable()) {
+            Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+            bitmap.recycle();
+            bitmap = copy;
+            frame.bitmap = copy;
+        }
+        float stroke = Math.max(2, Math.max(bitmap.getWidth(), bitmap.getHeight()) / 400f);
+        boxPaint.setStrokeWidth(stroke);
+        textPaint.setTextSize(stroke * 8);
+        Canvas canvas = new Canvas(bitmap);
+        DetectionBuffer results = frame.results;
+        for (int i = 0; i < results.count; i++) {
+            int b = i * 4;
+            canvas.drawRect(results.boxes[b], results.boxes[b + 1], results.boxes[b + 2], results.boxes[b + 3], boxPaint);
+            canvas.drawText(className(results.classIds[i]) + " " + Math.round(results.scores[i] * 100) + "%",
+                    results.boxes[b], Math.max(textPaint.getTextSize(), results.boxes[b + 1] - stroke), textPaint);
+        }
+
+        String name = frame.source.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String fileName = frame.timeMs >= 0 ? base + "_" + frame.timeMs + "_det.jpg" : base + "_det.jpg";
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(outputDir, fileName)))) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, options.jpegQuality, out);
+        }
+    }
+
+    // {"key":..,"source":..,"time_ms":..,"width":..,"height":..,"detections":[{"class":..,"name":..,"score":..,"box":[l,t,r,b]}]}
+    private void appendJson(Frame frame, StringBuilder sb) {
+        sb.append("{\"key\":");
+        appendString(sb, frame.key);
+        sb.append(",\"source\":");
+        appendString(sb, frame.source.getAbsolutePath());
+        sb.append(",\"time_ms\":").append(frame.timeMs);
+        sb.append(",\"width\":").append(frame.bitmap.getWidth());
+        sb.append(",\"height\":").append(frame.bitmap.getHeight());
+        sb.append(",\"detections\":[");
+        DetectionBuffer results = frame.results;
+        for (int i = 0; i < results.count; i++) {
+            int b = i * 4;
+            if (i > 0) sb.append(',');
+            sb.append("{\"class\":").append(results.classIds[i]).append(",\"name\":");
+            appendString(sb, className(results.classIds[i]));
+            sb.append(String.format(Locale.US, ",\"score\":%.4f,\"box\":[%.1f,%.1f,%.1f,%.1f]}", results.scores[i],
+                    results.boxes[b], results.boxes[b + 1], results.boxes[b + 2], results.boxes[b + 3]));
+        }
+        sb.append("]}\n");
+    }
+
+    private String className(int classId) {
+        return classes != null && classes.size() > classId ? classes.get(classId) : "";
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // Đọc khoá các frame đã xong từ results.jsonl. Một dòng chỉ tính là xong khi đã có '\n' phía sau: dòng nhiều
+    // detection có thể tới đĩa qua nhiều lần ghi nên phần đuôi không có '\n' (tiến trình bị dừng giữa chừng) được
+    // cắt bỏ, kể cả khi nó tình cờ kết thúc bằng '}'
+    static Set<String> loadCompleted(File resultsFile) throws IOException {
+        Set<String> keys = new HashSet<>();
+        if (!resultsFile.exists()) {
+            return keys;
+        }
+        long validLength = 0;
+        long position = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(resultsFile))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                line.reset();
+                String key = parseKey(text);
+                if (key != null && text.endsWith("}")) {
+                    keys.add(key);
+                    validLength = position;
+                }
+            }
+        }
+        if (validLength < resultsFile.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(resultsFile, "rw")) {
+                file.setLength(validLength);
+            }
+        }
+        return keys;
+    }
+
+    // Lấy giá trị "key" ở đầu dòng kết quả (đã bỏ escape)
+    private static String parseKey(String line) {
+        String prefix = "{\"key\":\"";
+        if (!line.startsWith(prefix)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = prefix.length(); i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return key.toString();
+            }
+            if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                if (next == 'u' && i + 4 < line.length()) {
+                    key.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                    i += 4;
+                } else {
+                    key.append(next);
+                }
+            } else {
+                key.append(c);
+            }
+        }
+        return null;
+    }
+
+    private static void collectSources(File input, List<File> out) {
+        if (input.isDirectory()) {
+            File[] children = input.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    collectSources(child, out);
+                }
+            }
+        } else if (isVideo(input) || IMAGE_EXTENSIONS.contains(extension(input))) {
+            out.add(input);
+        }
+    }
+
+    private static boolean isVideo(File file) {
+        return VIDEO_EXTENSIONS.contains(extension(file));
+    }
+
+    private static String extension(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.US) : "";
+    }
+
+    private static void putUninterruptibly(BlockingQueue<Frame> queue, Frame frame) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(frame);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
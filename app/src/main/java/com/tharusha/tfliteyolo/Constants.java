@@ -3,5 +3,29 @@ package com.tharusha.tfliteyolo;
 public class Constants {
     //public static final String MODEL_PATH = "yolo11s_f32.tflite";
     public static final String MODEL_PATH = "best_float32.tflite";
-    public static final String CLASSES_PATH = "classes.txt";
-}
\ No newline at end of file
+    public static final String CLASSES_PATH = "classes.txt"; // File tên lớp mặc định khi mô hình không có file riêng
+
+    // Các mô hình khác trong assets (hoặc <files>/models) được ModelRegistry tìm thấy và có thể đổi lúc chạy
+    public static final long MODEL_CACHE_BYTES = 160L * 1024 * 1024; // Giới hạn bộ nhớ của cache mô hình
+    public static final String THERMAL_FALLBACK_MODEL = "yolo11n_float32.tflite"; // Mô hình nhẹ khi máy quá nóng
+
+    // Chế độ chia tile (SAHI) cho vật thể nhỏ: frame camera độ phân giải cao, chạy song song trên nhiều interpreter
+    public static final boolean TILED_INFERENCE = false;
+    public static final int TILE_POOL_SIZE = 2;        // Số interpreter chạy tile song song
+    public static final int MAX_TILES_PER_FRAME = 6;   // Ngân sách tile mỗi frame (kể cả tile toàn ảnh)
+    public static final int TILED_ANALYSIS_SIZE = 1920; // Cạnh dài tối thiểu của frame camera khi chia tile
+
+    // Tự chọn kích thước đầu vào theo ngân sách độ trễ (chỉ với mô hình export dạng dynamic shape)
+    public static final boolean ADAPTIVE_INPUT_SIZE = true;
+    public static final int[] INPUT_SIZES = {320, 480, 640};  // Các kích thước cho phép, tăng dần
+    public static final long INFERENCE_BUDGET_MS = 60;        // Ngân sách độ trễ mỗi lần suy luận
+
+    // Chỉ phát hiện các lớp này (tên trong file lớp; rỗng: mọi lớp). Bộ giải mã bỏ qua channel của lớp bị tắt
+    public static final String[] ENABLED_CLASSES = {};
+    // Ngưỡng độ tin cậy riêng theo lớp, dạng "tên=ngưỡng"; lớp khác dùng ngưỡng mặc định 0.5
+    public static final String[] CLASS_THRESHOLDS = {};
+
+    // Lưu mọi kết quả suy luận (kèm track ID) vào log nhị phân trong <files>/detections để kiểm tra về sau
+    public static final boolean DETECTION_LOG = true;
+    public static final String DETECTION_LOG_DIR = "detections";
+}
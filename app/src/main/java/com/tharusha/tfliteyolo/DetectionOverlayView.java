@@ -0,0 +1,181 @@
+package com.tharusha.tfliteyolo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.List;
+
+// View trong suốt nằm trên camera preview, vẽ bounding box thẳng từ DetectionBuffer.
+// Không chép frame, không cấp phát trong mỗi frame: Paint và nhãn (mảng char) được tạo sẵn,
+// kết quả được chép vào bộ đệm đôi (double buffer) và chỉ vẽ lại khi có kết quả mới.
+public class DetectionOverlayView extends View {
+    private static final float BOX_STROKE_DP = 3;
+    private static final float TEXT_SIZE_SP = 14;
+    private static final int MAX_LABEL_LENGTH = 96;
+
+    // Nhãn phần trăm "0%".."100%" dùng chung
+    private static final char[][] PERCENT_LABELS = new char[101][];
+    static {
+        for (int i = 0; i <= 100; i++) {
+            PERCENT_LABELS[i] = (i + "%").toCharArray();
+        }
+    }
+
+    private final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final char[] label = new char[MAX_LABEL_LENGTH];
+    private char[][] classLabels = new char[0][];
+
+    // Bộ đệm đôi: luồng suy luận ghi vào pending, luồng UI vẽ từ drawing
+    private final Object lock = new Object();
+    private DetectionBuffer pending = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+    private DetectionBuffer drawing = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+    private boolean hasPending;
+    private int pendingSourceWidth, pendingSourceHeight;
+    private float pendingContentAspect;
+
+    // Ánh xạ toạ độ ảnh nguồn -> toạ độ view của lần vẽ hiện tại
+    private int sourceWidth, sourceHeight;
+    private float contentAspect;
+
+    public DetectionOverlayView(Context context) {
+        super(context);
+        init();
+    }
+
+    public DetectionOverlayView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    private void init() {
+        float density = getResources().getDisplayMetrics().density;
+        float scaledDensity = getResources().getDisplayMetrics().scaledDensity;
+        boxPaint.setColor(Color.GREEN);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(BOX_STROKE_DP * density);
+        textPaint.setColor(Color.GREEN);
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setTextSize(TEXT_SIZE_SP * scaledDensity);
+    }
+
+    // Đặt tên lớp dùng cho nhãn (gọi trên luồng UI, trước khi có kết quả)
+    public void setClasses(List<String> classes) {
+        char[][] labels = new char[classes.size()][];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = classes.get(i).toCharArray();
+        }
+        classLabels = labels;
+    }
+
+    // Nhận kết quả mới (gọi từ bất kỳ luồng nào). Toạ độ box theo ảnh nguồn sourceWidth x sourceHeight;
+    // contentAspect là tỉ lệ khung của nội dung đang hiển thị (ví dụ: buffer preview của TextureView):
+    // ảnh nguồn được cắt giữa theo tỉ lệ này rồi giãn ra toàn bộ view, giống cách preview được hiển thị
+    public void setResults(DetectionBuffer results, int sourceWidth, int sourceHeight, float contentAspect) {
+        synchronized (lock) {
+            pending.copyFrom(results);
+            pendingSourceWidth = sourceWidth;
+            pendingSourceHeight = sourceHeight;
+            pendingContentAspect = contentAspect;
+            hasPending = true;
+        }
+        postInvalidateOnAnimation();
+    }
+
+    // Xoá các box đang hiển thị
+    public void clear() {
+        synchronized (lock) {
+            pending.clear();
+            hasPending = true;
+        }
+        postInvalidateOnAnimation();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            if (hasPending) {
+                DetectionBuffer swap = drawing;
+                drawing = pending;
+                pending = swap;
+                sourceWidth = pendingSourceWidth;
+                sourceHeight = pendingSourceHeight;
+                contentAspect = pendingContentAspect;
+                hasPending = false;
+            }
+        }
+        if (drawing.count == 0 || sourceWidth <= 0 || sourceHeight <= 0) return;
+
+        // Vùng ảnh nguồn đang hiển thị (cắt giữa theo tỉ lệ nội dung) và hệ số giãn ra view
+        float cropX = 0, cropY = 0, cropWidth = sourceWidth, cropHeight = sourceHeight;
+        if (contentAspect > 0) {
+            if (sourceWidth > sourceHeight * contentAspect) {
+                cropWidth = sourceHeight * contentAspect;
+                cropX = (sourceWidth - cropWidth) / 2;
+            } else {
+                cropHeight = sourceWidth / contentAspect;
+                cropY = (sourceHeight - cropHeight) / 2;
+            }
+        }
+        float scaleX = getWidth() / cropWidth;
+        float scaleY = getHeight() / cropHeight;
+        float textOffset = boxPaint.getStrokeWidth() * 2;
+        float textSize = textPaint.getTextSize();
+
+        DetectionBuffer d = drawing;
+        for (int i = 0; i < d.count; i++) {
+            int b = i * 4;
+            float left = (d.boxes[b] - cropX) * scaleX;
+            float top = (d.boxes[b + 1] - cropY) * scaleY;
+            float right = (d.boxes[b + 2] - cropX) * scaleX;
+            float bottom = (d.boxes[b + 3] - cropY) * scaleY;
+            if (right < 0 || bottom < 0 || left > getWidth() || top > getHeight()) continue;
+
+            canvas.drawRect(left, top, right, bottom, boxPaint);
+
+            // Nhãn: "#track lớp xx%", đặt trên box (hoặc trong box nếu sát mép trên)
+            int length = buildLabel(d.trackIds[i], d.classIds[i], d.scores[i]);
+            float textY = top - textOffset >= textSize ? top - textOffset : top + textSize;
+            canvas.drawText(label, 0, length, Math.max(0, left), textY, textPaint);
+        }
+        LatencyMetrics.GLOBAL.lap(LatencyMetrics.DRAW, start);
+    }
+
+    // Ghi nhãn vào mảng label, trả về độ dài
+    private int buildLabel(int trackId, int classId, float score) {
+        int length = 0;
+        if (trackId >= 0) {
+            label[length++] = '#';
+            length = appendInt(trackId, length);
+            label[length++] = ' ';
+        }
+        if (classId >= 0 && classId < classLabels.length) {
+            char[] name = classLabels[classId];
+            int n = Math.min(name.length, MAX_LABEL_LENGTH - length - 6);
+            System.arraycopy(name, 0, label, length, n);
+            length += n;
+            label[length++] = ' ';
+        }
+        char[] percent = PERCENT_LABELS[Math.max(0, Math.min(100, Math.round(score * 100)))];
+        System.arraycopy(percent, 0, label, length, percent.length);
+        return length + percent.length;
+    }
+
+    // Ghi số nguyên không âm vào label tại vị trí start, trả về vị trí sau chữ số cuối
+    private int appendInt(int value, int start) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = start + digits - 1; i >= start; i--) {
+            label[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return start + digits;
+    }
+}
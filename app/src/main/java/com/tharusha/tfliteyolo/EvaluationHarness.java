@@ -0,0 +1,305 @@
+package com.tharusha.tfliteyolo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Lớp EvaluationHarness đo đánh đổi độ chính xác / tốc độ trên một tập ảnh có nhãn YOLO trong bộ nhớ máy
+// (không cần mạng): với mỗi cấu hình (mô hình, kích thước đầu vào, số luồng, ngưỡng độ tin cậy, ngưỡng IoU của NMS)
+// chạy YOLODetector trên mọi ảnh, tính mAP@0.5 và mAP@0.5:0.95 theo lớp, phân vị độ trễ và thông lượng,
+// rồi ghi báo cáo so sánh (report.md, report.csv). passesGate() dùng để chặn thay đổi làm giảm chất lượng.
+public class EvaluationHarness {
+    public static final float EVAL_CONFIDENCE_THRESHOLD = 0.001f; // Ngưỡng thấp như khi đánh giá mAP chuẩn
+    // Số lần chạy khởi động trước khi đo độ trễ, trên một ảnh trống cùng kích thước với ảnh đầu tiên: không ảnh nào
+    // của tập đánh giá được chạy hai lần (lần đo thứ hai sẽ có cache nóng hơn các ảnh còn lại)
+    private static final int WARMUP_RUNS = 3;
+
+    // Một cấu hình cần đánh giá
+    public static class Config {
+        public final String modelPath;
+        public final int inputSize;       // 0: giữ kích thước của mô hình
+        public final ExecutionProfile profile;
+        public final float confidenceThreshold;
+        public final float iouThreshold;
+
+        public Config(String modelPath, int inputSize, ExecutionProfile profile, float confidenceThreshold,
+                      float iouThreshold) {
+            this.modelPath = modelPath;
+            this.inputSize = inputSize;
+            this.profile = profile;
+            this.confidenceThreshold = confidenceThreshold;
+            this.iouThreshold = iouThreshold;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s @%s, %d threads, conf %.3f, iou %.2f", new File(modelPath).getName(),
+                    inputSize > 0 ? String.valueOf(inputSize) : "native", profile.numThreads, confidenceThreshold,
+                    iouThreshold);
+        }
+    }
+
+    // Kết quả của một cấu hình
+    public static class Result {
+        public final Config config;
+        public int inputSize;                       // Kích thước đầu vào thực tế
+        public MeanAveragePrecision.Result accuracy;
+        public final LatencyHistogram latency = new LatencyHistogram(); // Mỗi ảnh: tiền xử lý + suy luận + NMS
+        public int images;
+        public int failedImages;                    // Ảnh không giải mã được (nhãn của chúng tính là bị bỏ sót)
+        public long detectNanos;                    // Tổng thời gian phát hiện (không tính đọc / giải mã ảnh)
+        public String error;                        // Khác null nếu cấu hình không chạy được
+        public List<String> classes = new ArrayList<>();
+
+        Result(Config config) {
+            this.config = config;
+        }
+
+        // Số ảnh mỗi giây của một interpreter
+        public float throughput() {
+            return detectNanos > 0 ? images * 1e9f / detectNanos : 0;
+        }
+    }
+
+    // Nhận tiến độ: cấu hình thứ index, đã xong images / total ảnh
+    public interface Listener {
+        void onProgress(int index, Config config, int images, int total);
+    }
+
+    private final Context context;
+    private final YoloDataset dataset;
+    private final String classesPath;
+    private Listener listener;
+
+    // classesPath: file tên lớp (asset hoặc đường dẫn tuyệt đối), dùng cho báo cáo theo lớp
+    public EvaluationHarness(Context context, YoloDataset dataset, String classesPath) {
+        this.context = context;
+        this.dataset = dataset;
+        this.classesPath = classesPath;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Ma trận cấu hình: mọi tổ hợp của các giá trị cho trước
+    public static List<Config> sweep(String[] modelPaths, int[] inputSizes, int[] threadCounts,
+                                     float[] confidenceThresholds, float[] iouThresholds) {
+        List<Config> configs = new ArrayList<>();
+        for (String modelPath : modelPaths) {
+            for (int inputSize : inputSizes) {
+                for (int threads : threadCounts) {
+                    ExecutionProfile profile = new ExecutionProfile(threads, true, false, false);
+                    for (float confidence : confidenceThresholds) {
+                        for (float iou : iouThresholds) {
+                            configs.add(new Config(modelPath, inputSize, profile, confidence, iou));
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    // Đánh giá lần lượt các cấu hình (mỗi cấu hình một interpreter mới, đóng ngay sau khi xong)
+    public List<Result> run(List<Config> configs) {
+        List<Result> results = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            results.add(evaluate(i, configs.get(i)));
+        }
+        return results;
+    }
+
+    private Result evaluate(int index, Config config) {
+        Result result = new Result(config);
+        YOLOModel model = new YOLOModel(context, config.modelPath, classesPath, config.profile);
+        if (model.interpreter == null) {
+            result.error = "Cannot load " + config.modelPath;
+            return result;
+        }
+        result.classes = model.classes;
+        YOLODetector detector = null;
+        try {
+            if (config.inputSize > 0 && !model.resizeInput(config.inputSize)) {
+                result.error = "Input size " + config.inputSize + " not supported";
+                return result;
+            }
+            model.warmUp();
+            result.inputSize = model.getInputShape()[1];
+            detector = new YOLODetector(model);
+            detector.setThresholds(config.confidenceThreshold, config.iouThreshold);
+
+            MeanAveragePrecision map = new MeanAveragePrecision(model.getOutputShape()[1] - 4);
+            DetectionBuffer predictions = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+            DetectionBuffer groundTruth = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+            warmUp(detector, dataset, predictions);
+            int total = dataset.samples.size();
+            for (int i = 0; i < total; i++) {
+                YoloDataset.Sample sample = dataset.samples.get(i);
+                Bitmap bitmap = BitmapFactory.decodeFile(sample.image.getPath());
+                if (bitmap == null) {
+                    // Không bỏ nhãn của ảnh khỏi mẫu số: tính như ảnh không phát hiện được gì (toạ độ không quan trọng)
+                    new IOException("Cannot decode " + sample.image).printStackTrace();
+                    result.failedImages++;
+                    predictions.clear();
+                    groundTruth = YoloDataset.readLabels(sample.labels, 1, 1, groundTruth);
+                    map.add(predictions, groundTruth);
+                    if (listener != null) {
+                        listener.onProgress(index, config, i + 1, total);
+                    }
+                    continue;
+                }
+                try {
+                    long start = System.nanoTime();
+                    detector.detectObjects(bitmap, predictions);
+                    long nanos = System.nanoTime() - start;
+                    result.latency.record(nanos);
+                    result.detectNanos += nanos;
+                    result.images++;
+                    groundTruth = YoloDataset.readLabels(sample.labels, bitmap.getWidth(), bitmap.getHeight(),
+                            groundTruth);
+                    map.add(predictions, groundTruth);
+                } finally {
+                    bitmap.recycle();
+                }
+                if (listener != null) {
+                    listener.onProgress(index, config, i + 1, total);
+                }
+            }
+            result.accuracy = map.compute();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            result.error = e.toString();
+        } finally {
+            if (detector != null) {
+                detector.close();
+            }
+            model.close();
+        }
+        return result;
+    }
+
+    // Chạy detector WARMUP_RUNS lần trên ảnh trống (kích thước của ảnh đầu tiên đọc được, không tính giờ)
+    private static void warmUp(YOLODetector detector, YoloDataset dataset, DetectionBuffer out) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        for (YoloDataset.Sample sample : dataset.samples) {
+            BitmapFactory.decodeFile(sample.image.getPath(), bounds);
+            if (bounds.outWidth > 0 && bounds.outHeight > 0) {
+                break;
+            }
+        }
+        int width = bounds.outWidth > 0 ? bounds.outWidth : detector.getInputImageSize();
+        int height = bounds.outHeight > 0 ? bounds.outHeight : detector.getInputImageSize();
+        Bitmap blank = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                detector.detectObjects(blank, out);
+            }
+        } finally {
+            blank.recycle();
+        }
+    }
+
+    // Cấu hình mới đạt yêu cầu nếu mAP@0.5:0.95 không giảm quá maxMapDrop (tuyệt đối) và độ trễ p90
+    // không tăng quá maxLatencyIncrease (tỉ lệ, ví dụ 0.1 = 10%) so với baseline. Không đạt nếu một trong hai lỗi
+    public static boolean passesGate(Result candidate, Result baseline, float maxMapDrop, float maxLatencyIncrease) {
+        if (candidate.error != null || candidate.accuracy == null) {
+            return false;
+        }
+        if (baseline.error != null || baseline.accuracy == null) {
+            return false; // Không so sánh được với baseline lỗi
+        }
+        boolean accuracyOk = candidate.accuracy.map5095 >= baseline.accuracy.map5095 - maxMapDrop;
+        boolean latencyOk = candidate.latency.getPercentile(90)
+                <= baseline.latency.getPercentile(90) * (1 + maxLatencyIncrease);
+        return accuracyOk && latencyOk;
+    }
+
+    // Ghi report.md (bảng so sánh + AP theo lớp) và report.csv vào directory
+    public void writeReport(List<Result> results, File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        List<String> classes = new ArrayList<>();
+        for (Result result : results) {
+            if (result.classes.size() > classes.size()) classes = result.classes;
+        }
+        try (Writer md = new FileWriter(new File(directory, "report.md"));
+             Writer csv = new FileWriter(new File(directory, "report.csv"))) {
+            md.write(String.format(Locale.US, "# Evaluation: %s (%d images)%n%n",
+                    dataset.imageDirectory.getPath(), dataset.samples.size()));
+            md.write("| # | Config | Input | mAP@0.5 | mAP@0.5:0.95 | p50 ms | p90 ms | p99 ms | img/s |\n");
+            md.write("|---|---|---|---|---|---|---|---|---|\n");
+            csv.write("index,model,input_size,threads,confidence,iou,map50,map50_95,p50_ms,p90_ms,p99_ms,images_per_s,error\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i);
+                Config config = result.config;
+                if (result.error != null) {
+                    md.write(String.format(Locale.US, "| %d | %s | - | error: %s | | | | | |%n", i, config,
+                            result.error));
+                } else {
+                    md.write(String.format(Locale.US, "| %d | %s | %d | %.4f | %.4f | %.1f | %.1f | %.1f | %.1f |%n",
+                            i, config, result.inputSize, result.accuracy.map50, result.accuracy.map5095,
+                            millis(result, 50), millis(result, 90), millis(result, 99), result.throughput()));
+                }
+                csv.write(String.format(Locale.US, "%d,%s,%d,%d,%.4f,%.3f,%.5f,%.5f,%.3f,%.3f,%.3f,%.3f,%s%n", i,
+                        new File(config.modelPath).getName(), result.inputSize, config.profile.numThreads,
+                        config.confidenceThreshold, config.iouThreshold,
+                        result.accuracy != null ? result.accuracy.map50 : Float.NaN,
+                        result.accuracy != null ? result.accuracy.map5095 : Float.NaN,
+                        millis(result, 50), millis(result, 90), millis(result, 99), result.throughput(),
+                        result.error != null ? result.error.replace(',', ';') : ""));
+                if (result.failedImages > 0) {
+                    md.write(String.format(Locale.US, "|   | %d images could not be decoded (labels counted as missed) | | | | | | | |%n",
+                            result.failedImages));
+                }
+            }
+
+            // AP theo lớp (AP@0.5 / AP@0.5:0.95), mỗi cột một cấu hình
+            md.write("\n## Per-class AP@0.5 / AP@0.5:0.95\n\n| Class | Labels |");
+            StringBuilder separator = new StringBuilder("|---|---|");
+            for (int i = 0; i < results.size(); i++) {
+                md.write(" #" + i + " |");
+                separator.append("---|");
+            }
+            md.write("\n" + separator + "\n");
+            int numClasses = 0;
+            for (Result result : results) {
+                if (result.accuracy != null) numClasses = Math.max(numClasses, result.accuracy.ap.length);
+            }
+            for (int c = 0; c < numClasses; c++) {
+                int labels = 0;
+                for (Result result : results) {
+                    if (result.accuracy != null && c < result.accuracy.ap.length) {
+                        labels = result.accuracy.groundTruthCount[c];
+                    }
+                }
+                if (labels == 0) continue;
+                md.write(String.format(Locale.US, "| %s | %d |", c < classes.size() ? classes.get(c) : String.valueOf(c),
+                        labels));
+                for (Result result : results) {
+                    if (result.accuracy != null && c < result.accuracy.ap.length) {
+                        md.write(String.format(Locale.US, " %.3f / %.3f |", result.accuracy.ap50(c),
+                                result.accuracy.ap5095(c)));
+                    } else {
+                        md.write(" - |");
+                    }
+                }
+                md.write("\n");
+            }
+        }
+    }
+
+    private static double millis(Result result, double percentile) {
+        return result.latency.getPercentile(percentile) / 1e6;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tharusha.tfliteyolo;
+
+import org.tensorflow.lite.Interpreter;
+
+// Cấu hình thực thi của TFLite Interpreter: số luồng CPU, XNNPACK, NNAPI và cho phép giảm độ chính xác FP16
+public class ExecutionProfile {
+    // Mặc định: XNNPACK với tối đa 4 luồng (không vượt quá số nhân CPU)
+    public static final ExecutionProfile DEFAULT =
+            new ExecutionProfile(Math.min(4, Runtime.getRuntime().availableProcessors()), true, false, false);
+
+    public final int numThreads;
+    public final boolean useXnnpack;
+    public final boolean useNnapi;
+    public final boolean allowFp16;
+
+    public ExecutionProfile(int numThreads, boolean useXnnpack, boolean useNnapi, boolean allowFp16) {
+        this.numThreads = Math.max(1, numThreads);
+        this.useXnnpack = useXnnpack;
+        this.useNnapi = useNnapi;
+        this.allowFp16 = allowFp16;
+    }
+
+    // Tạo Interpreter.Options tương ứng
+    public Interpreter.Options toOptions() {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(numThreads);
+        options.setUseXNNPACK(useXnnpack);
+        options.setUseNNAPI(useNnapi);
+        options.setAllowFp16PrecisionForFp32(allowFp16);
+        return options;
+    }
+
+    // Chuỗi dùng để lưu vào SharedPreferences, ví dụ: "4,1,0,0"
+    public String encode() {
+        return numThreads + "," + (useXnnpack ? 1 : 0) + "," + (useNnapi ? 1 : 0) + "," + (allowFp16 ? 1 : 0);
+    }
+
+    // Đọc lại chuỗi do encode() tạo ra, trả về null nếu không hợp lệ
+    public static ExecutionProfile decode(String value) {
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        if (parts.length != 4) return null;
+        try {
+            return new ExecutionProfile(Integer.parseInt(parts[0]),
+                    "1".equals(parts[1]), "1".equals(parts[2]), "1".equals(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ExecutionProfile)) return false;
+        ExecutionProfile profile = (ExecutionProfile) other;
+        return numThreads == profile.numThreads && useXnnpack == profile.useXnnpack
+                && useNnapi == profile.useNnapi && allowFp16 == profile.allowFp16;
+    }
+
+    @Override
+    public int hashCode() {
+        return encode().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (useNnapi ? "NNAPI" : "CPU") + ", " + numThreads + " threads"
+                + (useXnnpack ? ", XNNPACK" : "") + (allowFp16 ? ", FP16" : "");
+    }
+}
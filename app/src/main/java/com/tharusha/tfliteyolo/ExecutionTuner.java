@@ -0,0 +1,101 @@
+package com.tharusha.tfliteyolo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Lớp ExecutionTuner đo thời gian suy luận của từng cấu hình ứng viên, chọn cấu hình nhanh nhất
+// và lưu vào SharedPreferences để các lần mở app sau không phải đo lại
+public class ExecutionTuner {
+    private static final String PREFS_NAME = "execution_profile";
+    private static final int WARMUP_RUNS = 2; // Số lần chạy khởi động (không tính giờ)
+    private static final int TIMED_RUNS = 3;  // Số lần chạy tính giờ, lấy trung vị
+
+    // Trả về cấu hình đã lưu cho mô hình, hoặc null nếu chưa từng tune
+    public static ExecutionProfile loadSaved(Context context, String modelPath) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return ExecutionProfile.decode(prefs.getString(modelPath, null));
+    }
+
+    public static void save(Context context, String modelPath, ExecutionProfile profile) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(modelPath, profile.encode())
+                .apply();
+    }
+
+    // Các cấu hình ứng viên: 1/2/4/... luồng với XNNPACK, 4 luồng không XNNPACK và NNAPI
+    public static List<ExecutionProfile> defaultCandidates() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<ExecutionProfile> candidates = new ArrayList<>();
+        for (int threads = 1; threads <= Math.min(cores, 8); threads *= 2) {
+            candidates.add(new ExecutionProfile(threads, true, false, false));
+        }
+        candidates.add(new ExecutionProfile(Math.min(4, cores), false, false, false));
+        candidates.add(new ExecutionProfile(1, false, true, true));
+        return candidates;
+    }
+
+    // Đo từng cấu hình trên một Interpreter tạm (không ảnh hưởng tới interpreter đang dùng của model)
+    public static ExecutionProfile tune(YOLOModel model, List<ExecutionProfile> candidates) {
+        ExecutionProfile best = ExecutionProfile.DEFAULT;
+        long bestNanos = Long.MAX_VALUE;
+
+        for (ExecutionProfile candidate : candidates) {
+            long nanos;
+            try {
+                nanos = measure(model, candidate);
+            } catch (Exception e) {
+                // Cấu hình không được hỗ trợ trên thiết bị này (ví dụ: NNAPI)
+                e.printStackTrace();
+                continue;
+            }
+            if (nanos < bestNanos) {
+                bestNanos = nanos;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    // Tune và lưu kết quả cho model
+    public static ExecutionProfile tuneAndSave(Context context, YOLOModel model) {
+        ExecutionProfile best = tune(model, defaultCandidates());
+        save(context, model.modelPath, best);
+        return best;
+    }
+
+    // Thời gian suy luận trung vị (nano giây) trên tensor đầu vào giả
+    private static long measure(YOLOModel model, ExecutionProfile profile) {
+        Interpreter interpreter = model.createInterpreter(profile);
+        try {
+            ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+            ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                interpreter.run(input, output);
+            }
+
+            long[] timings = new long[TIMED_RUNS];
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                long start = System.nanoTime();
+                interpreter.run(input, output);
+                timings[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(timings);
+            return timings[TIMED_RUNS / 2];
+        } finally {
+            interpreter.close();
+        }
+    }
+}
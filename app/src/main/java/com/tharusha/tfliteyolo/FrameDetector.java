@@ -0,0 +1,35 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import java.util.List;
+
+// Giao diện chung của bộ phát hiện dùng cho chế độ live: một mô hình (YOLODetector) hoặc chia tile (TiledDetector)
+public interface FrameDetector {
+    // Bước 1: đọc frame YUV vào bộ đệm riêng (image có thể được đóng ngay sau đó)
+    void preprocess(Image image, int rotationDegrees);
+
+    // Bước 2: chạy suy luận trên frame đã tiền xử lý, ghi kết quả sau NMS vào out (có thể gọi từ luồng khác)
+    void infer(DetectionBuffer out);
+
+    // Phát hiện một lần trên Bitmap
+    List<YOLODetection> detectObjects(Bitmap bitmap);
+
+    // Phát hiện một lần trên Bitmap, ghi kết quả vào bộ đệm out do caller giữ
+    void detectObjects(Bitmap bitmap, DetectionBuffer out);
+
+    // Mặt nạ ô thay đổi (ChangeGate) của frame sắp suy luận: detector có thể chỉ chạy lại vùng thay đổi.
+    // Mặc định bỏ qua (chạy toàn frame)
+    default void setChangeMask(boolean[] changedCells, float changedFraction) {
+    }
+
+    // Kích thước (cạnh) đầu vào hiện tại của mô hình
+    int getInputImageSize();
+
+    // Đổi kích thước đầu vào của mô hình (mô hình export dạng dynamic shape), chỉ gọi khi không có suy luận nào
+    // đang chạy. Trả về false nếu mô hình không hỗ trợ (kích thước giữ nguyên)
+    boolean setInputImageSize(int size);
+
+    void close();
+}
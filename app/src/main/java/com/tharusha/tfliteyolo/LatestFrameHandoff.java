@@ -0,0 +1,65 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp LatestFrameHandoff chuyển frame từ camera sang luồng suy luận qua một ô nhớ duy nhất ("frame mới nhất thắng").
+// offer() không bao giờ chặn: frame cũ chưa được xử lý sẽ bị đóng và bỏ qua thay vì xếp hàng.
+public class LatestFrameHandoff<T extends AutoCloseable> {
+    private final AtomicReference<T> slot = new AtomicReference<>();
+    private final AtomicLong droppedFrames = new AtomicLong(); // Số frame bị bỏ qua vì đã có frame mới hơn
+    private volatile Thread waiter; // Luồng đang chờ frame (chỉ có một consumer)
+
+    // Gọi từ luồng camera: thay frame đang chờ bằng frame mới
+    public void offer(T frame) {
+        T stale = slot.getAndSet(frame);
+        if (stale != null) {
+            closeQuietly(stale);
+            droppedFrames.incrementAndGet();
+        }
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Gọi từ luồng suy luận: chờ tới khi có frame, caller chịu trách nhiệm đóng frame nhận được
+    public T take() throws InterruptedException {
+        waiter = Thread.currentThread();
+        try {
+            while (true) {
+                T frame = slot.getAndSet(null);
+                if (frame != null) {
+                    return frame;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    // Bỏ frame đang chờ (nếu có)
+    public void clear() {
+        T stale = slot.getAndSet(null);
+        if (stale != null) {
+            closeQuietly(stale);
+        }
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private static void closeQuietly(AutoCloseable frame) {
+        try {
+            frame.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
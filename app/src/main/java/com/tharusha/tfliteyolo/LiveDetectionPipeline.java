@@ -0,0 +1,280 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Lớp LiveDetectionPipeline kết hợp YOLO và tracker cho video: YOLO chạy bất đồng bộ mỗi N frame
+// (N do InferenceScheduler chọn), mọi frame đều có kết quả nhờ tracker ngoại suy vị trí các track.
+// process() được gọi từ một luồng frame duy nhất và không bao giờ chờ suy luận.
+public class LiveDetectionPipeline {
+    private FrameDetector detector; // Chỉ đổi khi đang giữ detectorLock (không có suy luận nào đang chạy)
+    private PendingDetector pendingDetector; // Detector mới chờ được áp dụng, khoá bởi this
+    public final ObjectTracker tracker = new ObjectTracker(128);
+    public final InferenceScheduler scheduler = new InferenceScheduler();
+    public final ChangeGate gate = new ChangeGate(); // Bỏ qua suy luận khi frame không đổi so với lần suy luận trước
+    public boolean changeGating = true;
+    // Kích thước đầu vào theo ngân sách độ trễ; tự tắt nếu mô hình có shape cố định
+    public final ResolutionController resolution;
+    public boolean adaptiveResolution = Constants.ADAPTIVE_INPUT_SIZE;
+    // Ghi kết quả mỗi lần suy luận (sau khi tracker gán track ID); append không chờ đĩa. null: không ghi
+    public volatile DetectionLog detectionLog;
+
+    // Suy luận chạy trên một luồng riêng để luồng frame vẫn xuất kết quả dự đoán cho từng frame
+    private final ExecutorService inferenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "YOLOModel");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore detectorLock = new Semaphore(1); // Bộ đệm đầu vào của detector chỉ phục vụ một frame
+    private final DetectionBuffer inferenceResults = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+    private final Runnable inferenceTask = this::runInference;
+    private long inferenceTimestamp;       // Thời điểm chụp frame đang/vừa suy luận
+    private long frameCount;               // Số frame đã nhận, dùng làm frame ID trong log
+    private long inferenceFrameId;         // Frame ID của frame đang/vừa suy luận
+    private volatile long inferenceNanos;
+    private volatile boolean resultReady;
+    private volatile boolean closed; // Sau close(): không dùng detector nữa (detector có thể đã thuộc pipeline khác)
+
+    // Phát hiện một lần trên Bitmap: kết quả lần trước được dùng lại nếu ảnh không đổi
+    private final ChangeGate bitmapGate = new ChangeGate();
+    private final DetectionBuffer bitmapResults = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+    private int[] bitmapPixels;
+    private int bitmapWidth, bitmapHeight;
+
+    public LiveDetectionPipeline(FrameDetector detector) {
+        this.detector = detector;
+        this.resolution = new ResolutionController(Constants.INPUT_SIZES, Constants.INFERENCE_BUDGET_MS * 1_000_000L,
+                detector.getInputImageSize());
+        LatencyMetrics.GLOBAL.setInputSize(detector.getInputImageSize());
+    }
+
+    // Xử lý một frame camera: nhận kết quả suy luận xong (nếu có), khởi động suy luận mới khi cần,
+    // rồi ghi vị trí các đối tượng tại thời điểm frame này vào out. Trả về true nếu frame được đưa vào YOLO.
+    public boolean process(Image image, int rotationDegrees, DetectionBuffer out) {
+        long timestamp = image.getTimestamp();
+        long frameId = frameCount++;
+        scheduler.onFrame(timestamp);
+
+        long start = System.nanoTime();
+        if (resultReady) {
+            resultReady = false;
+            tracker.update(inferenceResults, inferenceTimestamp);
+            scheduler.onInferenceCompleted(inferenceNanos);
+            DetectionLog log = detectionLog;
+            if (log != null) {
+                log.append(System.currentTimeMillis(), inferenceFrameId, inferenceResults);
+            }
+        }
+        long trackingNanos = System.nanoTime() - start;
+
+        boolean started = false;
+        if (scheduler.shouldRunInference(tracker.meanMotion()) && detectorLock.tryAcquire()) {
+            applyPendingDetector();
+            if (closed) {
+                detectorLock.release();
+            } else if (changeGating && !frameChanged(image, rotationDegrees)) {
+                // Cảnh không đổi: giữ kết quả cũ (track đứng yên, không ngoại suy tiếp theo vận tốc cũ),
+                // chờ hết khoảng suy luận rồi kiểm tra lại
+                detectorLock.release();
+                tracker.freeze();
+                scheduler.onInferenceStarted();
+                LatencyMetrics.GLOBAL.inferenceSkipped();
+            } else {
+                // Tiền xử lý ngay trên luồng frame (image chỉ hợp lệ trước khi bị đóng), suy luận ở luồng khác
+                detector.preprocess(image, rotationDegrees);
+                inferenceTimestamp = timestamp;
+                inferenceFrameId = frameId;
+                scheduler.onInferenceStarted();
+                inferenceExecutor.execute(inferenceTask);
+                started = true;
+            }
+        }
+
+        start = System.nanoTime();
+        tracker.predict(timestamp, out);
+        LatencyMetrics.GLOBAL.record(LatencyMetrics.TRACKING, trackingNanos + System.nanoTime() - start);
+        return started;
+    }
+
+    // Phát hiện một lần trên Bitmap (nút Detect), chờ nếu pipeline đang suy luận
+    public List<YOLODetection> detectObjects(Bitmap bitmap) {
+        detectorLock.acquireUninterruptibly();
+        try {
+            if (closed) {
+                return Collections.emptyList();
+            }
+            applyPendingDetector();
+            return detector.detectObjects(bitmap);
+        } finally {
+            detectorLock.release();
+        }
+    }
+
+    public void detectObjects(Bitmap bitmap, DetectionBuffer out) {
+        detectorLock.acquireUninterruptibly();
+        try {
+            if (closed) {
+                out.clear();
+                return;
+            }
+            applyPendingDetector();
+            if (changeGating && !bitmapChanged(bitmap)) {
+                out.copyFrom(bitmapResults);
+                LatencyMetrics.GLOBAL.inferenceSkipped();
+                return;
+            }
+            detector.detectObjects(bitmap, out);
+            bitmapResults.copyFrom(out);
+            DetectionLog log = detectionLog;
+            if (log != null) {
+                log.append(System.currentTimeMillis(), -1, out); // Ảnh chụp bằng nút Detect: frame ID -1
+            }
+        } finally {
+            detectorLock.release();
+        }
+    }
+
+    // Bắt đầu lại từ đầu (khi bật chế độ live)
+    public void reset() {
+        detectorLock.acquireUninterruptibly(); // Chờ lần suy luận đang chạy (nếu có)
+        resultReady = false;
+        tracker.reset();
+        scheduler.reset();
+        gate.reset();
+        detectorLock.release();
+    }
+
+    // Đổi sang detector khác (ví dụ: mô hình khác) giữa hai frame mà không chặn luồng frame: detector mới được dùng
+    // từ lần suy luận kế tiếp. releasePrevious được gọi (một lần) khi detector đang dùng không còn được dùng nữa
+    public synchronized void setDetector(FrameDetector next, Runnable releasePrevious) {
+        if (pendingDetector != null) {
+            // Detector đang chờ chưa từng được dùng: giải phóng ngay, detector đang dùng vẫn chờ được giải phóng
+            Runnable releaseActive = pendingDetector.releasePrevious;
+            releasePrevious.run();
+            pendingDetector = new PendingDetector(next, releaseActive);
+        } else {
+            pendingDetector = new PendingDetector(next, releasePrevious);
+        }
+    }
+
+    // Dừng pipeline và chờ lần suy luận đang chạy (nếu có) xong: detector dùng chung cho toàn tiến trình,
+    // pipeline mới (Activity được tạo lại) có thể dùng nó ngay sau khi hàm này trả về
+    public void close() {
+        inferenceExecutor.shutdown();
+        detectorLock.acquireUninterruptibly();
+        closed = true;
+        detectorLock.release();
+        PendingDetector pending;
+        synchronized (this) {
+            pending = pendingDetector;
+            pendingDetector = null;
+        }
+        if (pending != null) {
+            pending.releasePrevious.run();
+        }
+    }
+
+    // Lấy mẫu frame cho ChangeGate; nếu có thay đổi thì frame thành tham chiếu mới
+    // và mặt nạ ô thay đổi được chuyển cho detector. Chỉ gọi khi đang giữ detectorLock
+    private boolean frameChanged(Image image, int rotationDegrees) {
+        Image.Plane plane = image.getPlanes()[0];
+        gate.sampleYuv(plane.getBuffer(), plane.getRowStride(), plane.getPixelStride(),
+                image.getWidth(), image.getHeight(), rotationDegrees);
+        if (!gate.hasChanged()) {
+            return false;
+        }
+        gate.accept();
+        detector.setChangeMask(gate.changedCells, gate.changedFraction);
+        return true;
+    }
+
+    // Như frameChanged nhưng cho Bitmap của nút Detect (ảnh khác kích thước luôn được suy luận)
+    private boolean bitmapChanged(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width != bitmapWidth || height != bitmapHeight) {
+            bitmapGate.reset();
+            bitmapWidth = width;
+            bitmapHeight = height;
+        }
+        if (bitmapPixels == null || bitmapPixels.length < width * height) {
+            bitmapPixels = new int[width * height];
+        }
+        bitmap.getPixels(bitmapPixels, 0, width, 0, 0, width, height);
+        bitmapGate.sampleArgb(bitmapPixels, width, width, height);
+        if (!bitmapGate.hasChanged()) {
+            return false;
+        }
+        bitmapGate.accept();
+        return true;
+    }
+
+    // Áp dụng detector mới (nếu có); chỉ gọi khi đang giữ detectorLock
+    private void applyPendingDetector() {
+        PendingDetector pending;
+        synchronized (this) {
+            pending = pendingDetector;
+            pendingDetector = null;
+        }
+        if (pending != null) {
+            detector = pending.detector;
+            pending.releasePrevious.run();
+            // Kết quả cũ thuộc về detector trước: lần kế tiếp luôn suy luận lại
+            gate.reset();
+            bitmapGate.reset();
+            resolution.reset(detector.getInputImageSize());
+            adaptiveResolution = Constants.ADAPTIVE_INPUT_SIZE;
+            LatencyMetrics.GLOBAL.setInputSize(detector.getInputImageSize());
+        }
+    }
+
+    private static class PendingDetector {
+        final FrameDetector detector;
+        final Runnable releasePrevious;
+
+        PendingDetector(FrameDetector detector, Runnable releasePrevious) {
+            this.detector = detector;
+            this.releasePrevious = releasePrevious;
+        }
+    }
+
+    // Đổi kích thước đầu vào nếu ResolutionController yêu cầu; chạy trên luồng suy luận khi vẫn giữ detectorLock
+    // nên lần tiền xử lý kế tiếp đã dùng bộ đệm mới
+    private void adaptResolution(long latencyNanos) {
+        int size = resolution.onInference(latencyNanos);
+        if (size == detector.getInputImageSize()) {
+            return;
+        }
+        if (!detector.setInputImageSize(size)) {
+            adaptiveResolution = false; // Mô hình có shape cố định
+            resolution.reset(detector.getInputImageSize());
+            return;
+        }
+        LatencyMetrics.GLOBAL.setInputSize(size);
+    }
+
+    // Lỗi suy luận (lỗi của TFLite, cấu hình lớp không khớp, resizeInput thất bại...) không được thoát khỏi luồng
+    // suy luận (sẽ làm dừng tiến trình): ghi log, không có kết quả mới, tracker tiếp tục dự đoán và scheduler
+    // thử lại ở lần suy luận kế tiếp
+    private void runInference() {
+        long start = System.nanoTime();
+        try {
+            detector.infer(inferenceResults);
+            inferenceNanos = System.nanoTime() - start;
+            resultReady = true;
+            if (adaptiveResolution) {
+                adaptResolution(inferenceNanos);
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            detectorLock.release();
+        }
+    }
+}
@@ -4,13 +4,17 @@ package com.tharusha.tfliteyolo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.RectF;
+import android.graphics.ImageFormat;
 import android.graphics.SurfaceTexture;
 import android.hardware.camera2.*;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Size;
 
 import com.google.android.material.snackbar.Snackbar;
 
@@ -27,29 +31,69 @@ import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
+import android.widget.TextView;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 
 // Lớp MainActivity là activity chính điều khiển giao diện và xử lý camera + AI
 public class MainActivity extends AppCompatActivity {
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100; // Mã yêu cầu quyền camera
+    private static final int PREVIEW_SIZE = 640; // Kích thước buffer preview (vuông) của TextureView
 
     // Các thành phần giao diện
     private LinearLayout layoutStart;
     private Button buttonStart;
     private RelativeLayout layoutDetect;
     private Button buttonDetect;
+    private Button buttonLive;
+    private Button buttonStats;
+    private Button buttonModel;
+    private TextView textViewMetrics;          // Overlay thời gian từng giai đoạn
     private TextureView textureViewCamera;     // Hiển thị luồng camera
-    private ImageView imageViewDetection;      // Hiển thị ảnh có bounding box
+    private ImageView imageViewDetection;      // Hiển thị ảnh đã chụp (nút Detect)
+    private DetectionOverlayView overlayView;  // Vẽ bounding box phía trên camera preview / ảnh đã chụp
 
     // Biến xử lý camera
     private CameraDevice cameraDevice;
     private CameraCaptureSession cameraCaptureSession;
+    private HandlerThread cameraThread;  // Luồng nền nhận frame từ ImageReader
+    private Handler cameraHandler;
+    private ImageReader imageReader;     // Nhận frame YUV cho chế độ phát hiện liên tục
+    private int frameRotation;           // Góc xoay (độ) để đưa frame cảm biến về đúng chiều hiển thị
+
+    // Chế độ phát hiện liên tục (live): camera -> ô "frame mới nhất" -> một luồng suy luận duy nhất
+    private final LatestFrameHandoff<Image> frameHandoff = new LatestFrameHandoff<>();
+    private final DetectionBuffer liveResults = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+    private final DetectionBuffer detectResults = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS); // Nút Detect
+    private Thread inferenceThread;
+    private volatile boolean liveMode;
+    private long liveFrameId;
+
+    // Kết quả live được phát từ luồng suy luận tới các consumer (overlay, ...), mỗi consumer một luồng riêng
+    private final DetectionPublisher resultPublisher =
+            new DetectionPublisher(64, NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+
+    // Số liệu thời gian xử lý, overlay được làm mới định kỳ khi hiển thị
+    private static final long METRICS_REFRESH_MS = 500;
+    private final LatencyMetrics metrics = LatencyMetrics.GLOBAL;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Runnable metricsRefresher = new Runnable() {
+        @Override
+        public void run() {
+            metrics.setDroppedFrames(frameHandoff.getDroppedFrames());
+            textViewMetrics.setText(metrics.formatReport());
+            uiHandler.postDelayed(this, METRICS_REFRESH_MS);
+        }
+    };
 
     // Biến xử lý mô hình YOLO
     private YOLOModel yoloModel;
-    private YOLODetector yoloDetector;
+    private LiveDetectionPipeline livePipeline; // YOLO bất đồng bộ + tracker cho chế độ live
 
     // Hàm được gọi khi activity được khởi tạo
     @Override
@@ -62,8 +106,20 @@ public class MainActivity extends AppCompatActivity {
         buttonStart = findViewById(R.id.button_start);
         layoutDetect = findViewById(R.id.relativeLayout_detect);
         buttonDetect = findViewById(R.id.button_detect);
+        buttonLive = findViewById(R.id.button_live);
+        buttonStats = findViewById(R.id.button_stats);
+        buttonModel = findViewById(R.id.button_model);
+        textViewMetrics = findViewById(R.id.textView_metrics);
         textureViewCamera = findViewById(R.id.textureView_camera);
         imageViewDetection = findViewById(R.id.imageView_detection);
+        overlayView = findViewById(R.id.overlayView_detections);
+
+        // Overlay chỉ cần kết quả mới nhất (buffer preview vuông PREVIEW_SIZE x PREVIEW_SIZE nên tỉ lệ nội dung là 1)
+        resultPublisher.subscribe("OverlayConsumer", DetectionPublisher.Mode.CONFLATE, frame -> {
+            if (liveMode) {
+                overlayView.setResults(frame.detections, frame.width, frame.height, 1f);
+            }
+        });
 
         // Xử lý khi nhấn nút Start
         buttonStart.setOnClickListener(new View.OnClickListener() {
@@ -87,6 +143,73 @@ public class MainActivity extends AppCompatActivity {
                 }
             }
         });
+
+        // Xử lý khi nhấn nút Live / Stop
+        buttonLive.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (liveMode) {
+                    stopLiveDetection();
+                } else {
+                    startLiveDetection();
+                }
+            }
+        });
+
+        // Nhấn Stats: bật/tắt overlay số liệu; nhấn giữ: xuất số liệu ra file JSON + CSV
+        buttonStats.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                toggleMetricsOverlay();
+            }
+        });
+        // Nhấn Model: chuyển sang mô hình tiếp theo trong ModelRegistry (đổi nóng, kể cả khi đang live)
+        buttonModel.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                selectNextModel();
+            }
+        });
+        buttonStats.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                exportMetrics();
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        uiHandler.removeCallbacks(metricsRefresher);
+        stopLiveDetection();
+        resultPublisher.close();
+        if (inferenceThread != null) {
+            inferenceThread.interrupt();
+            inferenceThread = null;
+        }
+        // Detector thuộc ModelManager (dùng chung cho toàn tiến trình) nên không đóng ở đây
+        if (livePipeline != null) {
+            ModelManager.get(this).setSwapListener(null);
+            livePipeline.close();
+        }
+        if (cameraCaptureSession != null) {
+            cameraCaptureSession.close();
+            cameraCaptureSession = null;
+        }
+        if (cameraDevice != null) {
+            cameraDevice.close();
+            cameraDevice = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+        if (cameraThread != null) {
+            cameraThread.quitSafely();
+            cameraThread = null;
+        }
     }
 
     // Xử lý kết quả khi người dùng cho phép / từ chối quyền camera
@@ -116,6 +239,7 @@ public class MainActivity extends AppCompatActivity {
 
         startCameraStream(); // Bắt đầu stream camera
         loadModel();         // Load mô hình YOLO
+        startInferenceThread();
     }
 
     // Thiết lập TextureView để hiển thị camera
@@ -146,6 +270,33 @@ public class MainActivity extends AppCompatActivity {
 
         try {
             String cameraId = cameraManager.getCameraIdList()[0]; // Dùng camera đầu tiên (thường là camera sau)
+            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+            Integer sensorOrientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+            frameRotation = sensorOrientation != null ? sensorOrientation : 0;
+
+            // ImageReader nhận frame YUV song song với preview, callback chạy trên luồng nền
+            if (cameraThread == null) {
+                cameraThread = new HandlerThread("CameraBackground");
+                cameraThread.start();
+                cameraHandler = new Handler(cameraThread.getLooper());
+            }
+            Size analysisSize = chooseAnalysisSize(characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP),
+                    Constants.TILED_INFERENCE ? Constants.TILED_ANALYSIS_SIZE : 640);
+            // 3 image: một đang xử lý, một đang chờ trong ô handoff, một để camera ghi tiếp
+            imageReader = ImageReader.newInstance(analysisSize.getWidth(), analysisSize.getHeight(), ImageFormat.YUV_420_888, 3);
+            imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+                @Override
+                public void onImageAvailable(ImageReader reader) {
+                    Image image = reader.acquireLatestImage();
+                    if (image == null) return;
+                    if (liveMode) {
+                        frameHandoff.offer(image); // Không bao giờ chặn luồng camera
+                    } else {
+                        image.close();
+                    }
+                }
+            }, cameraHandler);
+
             cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
                 @Override public void onOpened(@NonNull CameraDevice camera) {
                     cameraDevice = camera;
@@ -174,14 +325,15 @@ public class MainActivity extends AppCompatActivity {
 
         try {
             SurfaceTexture surfaceTexture = textureViewCamera.getSurfaceTexture();
-            surfaceTexture.setDefaultBufferSize(640, 640); // Đặt kích thước buffer preview
+            surfaceTexture.setDefaultBufferSize(PREVIEW_SIZE, PREVIEW_SIZE); // Đặt kích thước buffer preview
             Surface surface = new Surface(surfaceTexture);
 
             final CaptureRequest.Builder captureRequestBuilder =
                     cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
             captureRequestBuilder.addTarget(surface);
+            captureRequestBuilder.addTarget(imageReader.getSurface());
 
-            cameraDevice.createCaptureSession(Arrays.asList(surface),
+            cameraDevice.createCaptureSession(Arrays.asList(surface, imageReader.getSurface()),
                     new CameraCaptureSession.StateCallback() {
                         @Override
                         public void onConfigured(@NonNull CameraCaptureSession session) {
@@ -205,8 +357,91 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Chọn kích thước frame YUV nhỏ nhất có cạnh dài >= minLongSide (640: đủ cho đầu vào mô hình,
+    // lớn hơn khi chia tile để giữ chi tiết của vật thể nhỏ)
+    Size chooseAnalysisSize(StreamConfigurationMap map, int minLongSide) {
+        Size[] sizes = map.getOutputSizes(ImageFormat.YUV_420_888);
+        Size best = null;
+        for (Size size : sizes) {
+            if (Math.max(size.getWidth(), size.getHeight()) < minLongSide) continue;
+            if (best == null || size.getWidth() * size.getHeight() < best.getWidth() * best.getHeight()) {
+                best = size;
+            }
+        }
+        return best != null ? best : sizes[0];
+    }
+
+    // Bật chế độ phát hiện liên tục
+    void startLiveDetection() {
+        if (livePipeline == null) return; // Mô hình chưa sẵn sàng
+        livePipeline.reset(); // Track của lần live trước không còn hợp lệ
+        metrics.restartFrameClock();
+        liveMode = true;
+        buttonLive.setText("Stop");
+        buttonDetect.setEnabled(false);
+    }
+
+    // Tắt chế độ phát hiện liên tục và quay lại stream camera
+    void stopLiveDetection() {
+        liveMode = false;
+        frameHandoff.clear();
+        buttonLive.setText("Live");
+        buttonDetect.setEnabled(true);
+        setVisibleCameraStream();
+    }
+
+    // Khởi động luồng suy luận duy nhất, sống suốt vòng đời activity
+    void startInferenceThread() {
+        if (inferenceThread != null) return;
+        inferenceThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runInferenceLoop();
+            }
+        }, "YOLOInference");
+        inferenceThread.start();
+    }
+
+    // Vòng lặp suy luận: luôn lấy frame mới nhất, frame cũ đã bị bỏ trong lúc đang suy luận
+    void runInferenceLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Image image;
+            try {
+                image = frameHandoff.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long frameStart = System.nanoTime();
+            long timestamp = image.getTimestamp();
+            int frameWidth, frameHeight;
+            try {
+                // YOLO chạy trên một số frame (tiền xử lý thẳng từ các plane YUV), các frame khác
+                // lấy vị trí dự đoán từ tracker
+                livePipeline.process(image, frameRotation, liveResults);
+                boolean swap = frameRotation == 90 || frameRotation == 270;
+                frameWidth = swap ? image.getHeight() : image.getWidth();
+                frameHeight = swap ? image.getWidth() : image.getHeight();
+            } finally {
+                image.close(); // Trả image cho camera
+            }
+            if (!liveMode) continue;
+
+            // Camera preview vẫn hiển thị trực tiếp trên TextureView, overlay (một consumer của resultPublisher)
+            // chỉ vẽ box lên trên; publish không chờ consumer nào
+            resultPublisher.publish(timestamp, liveFrameId++, frameWidth, frameHeight, liveResults);
+            metrics.lap(LatencyMetrics.FRAME_TOTAL, frameStart);
+            metrics.frameCompleted();
+        }
+    }
+
     // Chạy luồng phát hiện vật (phát hiện trong background thread)
     void runDetectObjectsThread() {
+        if (livePipeline == null) {
+            Snackbar.make(buttonDetect, "Model is loading...", Snackbar.LENGTH_SHORT)
+                    .setAction("Action", null).show();
+            return;
+        }
         buttonDetect.setText("Please wait...");
         buttonDetect.setActivated(false);
 
@@ -220,7 +455,9 @@ public class MainActivity extends AppCompatActivity {
 
     // Hàm chính thực hiện việc nhận diện vật thể
     void detectObjects() {
+        long frameStart = System.nanoTime();
         Bitmap image = textureViewCamera.getBitmap(); // Lấy frame hiện tại từ camera
+        metrics.lap(LatencyMetrics.FRAME_GRAB, frameStart);
 
         // Vẽ ảnh ban đầu lên UI (trước khi có bounding box)
         runOnUiThread(() -> drawDetectionBitmap(image));
@@ -232,14 +469,14 @@ public class MainActivity extends AppCompatActivity {
         }
 
         // Phát hiện vật thể bằng YOLO
-        List<YOLODetection> detections = yoloDetector.detectObjects(image);
+        livePipeline.detectObjects(image, detectResults);
+        metrics.lap(LatencyMetrics.FRAME_TOTAL, frameStart);
 
-        // Vẽ bounding box lên ảnh
-        Bitmap outputImage = drawBoundingBox(image, detections);
+        // Vẽ bounding box lên overlay phía trên ảnh (ảnh đã vừa khít view nên không cần cắt)
+        overlayView.setResults(detectResults, image.getWidth(), image.getHeight(), 0);
 
-        // Cập nhật UI với ảnh có bounding box
+        // Cập nhật UI
         runOnUiThread(() -> {
-            drawDetectionBitmap(outputImage);
             buttonDetect.setText("Cancel");
             buttonDetect.setActivated(true);
         });
@@ -248,54 +485,107 @@ public class MainActivity extends AppCompatActivity {
                 .setAction("Action", null).show();
     }
 
-    // Hàm vẽ bounding box và label lên ảnh
-    public Bitmap drawBoundingBox(Bitmap bitmap, List<YOLODetection> detections) {
-        System.out.println("Num detections: " + detections.size());
-
-        // Tạo bản sao của ảnh gốc để vẽ lên
-        Bitmap mutableBitmap = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(mutableBitmap);
-
-        Paint paint = new Paint();
-        paint.setColor(Color.GREEN);
-        paint.setStyle(Paint.Style.STROKE);
-
-        for (YOLODetection detection : detections) {
-            float x = detection.box_x;
-            float y = detection.box_y;
-            float width = detection.box_width;
-            float height = detection.box_height;
-
-            // Tính toạ độ góc bounding box
-            float left = x - width / 2;
-            float top = y - height / 2;
-            float right = x + width / 2;
-            float bottom = y + height / 2;
-
-            paint.setStrokeWidth(10);
-            canvas.drawRect(new RectF(left, top, right, bottom), paint);
-
-            // Ghi label và độ chính xác
-            String label = detection.className + " (" + String.format("%.2f", detection.confidence * 100) + "%)";
-            paint.setStrokeWidth(2);
-            paint.setTextSize(20);
-            canvas.drawText(label, left, top - 10, paint);
-
-            System.out.println("ClassIndex: " + detection.classIndex + ", ClassName: " + detection.className + ", Confidence: " + detection.confidence);
+    // Bật/tắt overlay số liệu thời gian xử lý
+    void toggleMetricsOverlay() {
+        if (textViewMetrics.getVisibility() == View.VISIBLE) {
+            uiHandler.removeCallbacks(metricsRefresher);
+            textViewMetrics.setVisibility(View.GONE);
+        } else {
+            textViewMetrics.setVisibility(View.VISIBLE);
+            metricsRefresher.run();
         }
+    }
 
-        return mutableBitmap;
+    // Xuất số liệu ra thư mục file riêng của ứng dụng (metrics-<thời điểm>.json và .csv)
+    void exportMetrics() {
+        metrics.setDroppedFrames(frameHandoff.getDroppedFrames());
+        File directory = getExternalFilesDir(null);
+        if (directory == null) directory = getFilesDir();
+        String name = "metrics-" + System.currentTimeMillis();
+        File jsonFile = new File(directory, name + ".json");
+        try (Writer json = new FileWriter(jsonFile); Writer csv = new FileWriter(new File(directory, name + ".csv"))) {
+            metrics.writeJson(json);
+            metrics.writeCsv(csv);
+            Snackbar.make(buttonStats, "Metrics exported to " + jsonFile.getParent(), Snackbar.LENGTH_LONG)
+                    .setAction("Action", null).show();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Snackbar.make(buttonStats, "Error exporting metrics!", Snackbar.LENGTH_LONG)
+                    .setAction("Action", null).show();
+        }
     }
 
-    // Load mô hình YOLO và khởi tạo detector
+    // Nhận mô hình từ ModelManager (đã bắt đầu load ở luồng nền khi app khởi động, dùng lại qua các lần
+    // tạo lại Activity); giao diện dùng được ngay, detector được gắn khi mô hình sẵn sàng
     void loadModel() {
-        yoloModel = new YOLOModel(this, Constants.MODEL_PATH, Constants.CLASSES_PATH);
-        yoloDetector = new YOLODetector(yoloModel);
+        ModelManager modelManager = ModelManager.get(this);
+        modelManager.ready().whenComplete((manager, error) -> runOnUiThread(() -> {
+            if (isDestroyed()) return;
+            if (error != null) {
+                Snackbar.make(findViewById(R.id.button_start), "Error loading model!", Snackbar.LENGTH_LONG)
+                        .setAction("Action", null).show();
+                return;
+            }
+            onModelReady(manager);
+        }));
+    }
 
-        Snackbar.make(findViewById(R.id.button_start), "Model loaded", Snackbar.LENGTH_LONG)
+    // Gắn detector đã warm-up vào Activity này
+    void onModelReady(ModelManager manager) {
+        yoloModel = manager.yoloModel;
+        FrameDetector detector = manager.frameDetector;
+        livePipeline = new LiveDetectionPipeline(detector);
+        livePipeline.detectionLog = manager.detectionLog;
+        overlayView.setClasses(yoloModel.classes);
+
+        // Khi mô hình được đổi (người dùng chọn hoặc máy quá nóng): pipeline dùng detector mới từ frame kế tiếp
+        FrameDetector current = manager.setSwapListener((handle, releasePrevious) -> {
+            livePipeline.setDetector(handle.detector, releasePrevious);
+            runOnUiThread(() -> {
+                yoloModel = handle.model;
+                overlayView.setClasses(handle.model.classes);
+                Snackbar.make(buttonModel, "Model: " + handle.entry.name, Snackbar.LENGTH_SHORT)
+                        .setAction("Action", null).show();
+            });
+        });
+        if (current != detector) {
+            livePipeline.setDetector(current, () -> { });
+        }
+
+        // Cấu hình thực thi đã được tune (lần chạy đầu) trước khi mô hình sẵn sàng
+        Snackbar.make(findViewById(R.id.button_start), "Model loaded (" + yoloModel.executionProfile + ")", Snackbar.LENGTH_LONG)
                 .setAction("Action", null).show();
     }
 
+    // Chọn mô hình kế tiếp trong danh sách của ModelRegistry
+    void selectNextModel() {
+        ModelManager manager = ModelManager.get(this);
+        if (livePipeline == null) return; // Mô hình chưa sẵn sàng
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                List<ModelRegistry.Entry> entries = manager.registry.list();
+                if (entries.size() < 2) {
+                    Snackbar.make(buttonModel, "No other model available", Snackbar.LENGTH_SHORT)
+                            .setAction("Action", null).show();
+                    return;
+                }
+                int index = 0;
+                for (int i = 0; i < entries.size(); i++) {
+                    if (entries.get(i).name.equals(manager.getActiveModelName())) index = i;
+                }
+                ModelRegistry.Entry next = entries.get((index + 1) % entries.size());
+                manager.selectModel(next.name).whenComplete((handle, error) -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                        Snackbar.make(buttonModel, "Error loading " + next.name, Snackbar.LENGTH_LONG)
+                                .setAction("Action", null).show();
+                    }
+                });
+            }
+        }, "ModelSelect").start();
+    }
+
     // Yêu cầu quyền camera
     void requestCameraPermission() {
         ActivityCompat.requestPermissions(this, new String[]{android.Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST_CODE);
@@ -310,10 +600,11 @@ public class MainActivity extends AppCompatActivity {
     void setVisibleCameraStream() {
         textureViewCamera.setVisibility(View.VISIBLE);
         imageViewDetection.setVisibility(View.INVISIBLE);
+        overlayView.clear();
         buttonDetect.setText("Detect");
     }
 
-    // Hiển thị ảnh đã vẽ bounding box
+    // Hiển thị ảnh đã chụp (bounding box được vẽ trên overlay)
     void drawDetectionBitmap(Bitmap bitmap) {
         textureViewCamera.setVisibility(View.INVISIBLE);
         imageViewDetection.setVisibility(View.VISIBLE);
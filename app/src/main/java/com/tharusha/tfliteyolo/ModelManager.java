@@ -0,0 +1,282 @@
+package com.tharusha.tfliteyolo;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Lớp ModelManager giữ mô hình và detector cho toàn tiến trình (sống qua các lần tạo lại Activity).
+// Việc map mô hình, tạo interpreter và chạy khởi động (warm-up) bắt đầu ngay khi app khởi động
+// trên một luồng nền, để lần phát hiện đầu tiên nhanh như các lần sau.
+// Mô hình được lấy từ ModelRegistry và có thể đổi nóng (hot swap) giữa các frame, kể cả tự động
+// chuyển sang mô hình nhẹ hơn khi máy quá nóng.
+public class ModelManager {
+    private static ModelManager instance;
+
+    // Được gọi (trên luồng nền) khi mô hình đang dùng được đổi. Bên nhận chuyển detector mới vào pipeline
+    // và gọi releasePrevious khi không còn dùng detector cũ (ví dụ: LiveDetectionPipeline.setDetector)
+    public interface ModelSwapListener {
+        void onModelSwapped(ModelRegistry.Handle handle, Runnable releasePrevious);
+    }
+
+    private final Context context; // Application context
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ModelLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<ModelManager> ready;
+    private final CompletableFuture<ExecutionProfile> tuned = new CompletableFuture<>();
+    private ModelSwapListener swapListener;
+
+    public final ModelRegistry registry;
+    private ModelRegistry.Handle active; // Mô hình đang dùng (giữ một tham chiếu trong registry)
+    private String preferredModel = Constants.MODEL_PATH; // Mô hình người dùng chọn (khi máy không quá nóng)
+    private boolean thermalFallback;
+
+    // Có giá trị sau khi ready() hoàn thành, được cập nhật khi đổi mô hình
+    public volatile YOLOModel yoloModel;
+    public volatile YOLODetector yoloDetector;
+    public volatile FrameDetector frameDetector; // yoloDetector, hoặc TiledDetector khi bật chế độ chia tile
+    public volatile DetectionLog detectionLog;   // Log kết quả phát hiện (null nếu tắt hoặc không mở được)
+
+    private ModelManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.registry = new ModelRegistry(this.context, Constants.MODEL_CACHE_BYTES);
+    }
+
+    public static synchronized ModelManager get(Context context) {
+        if (instance == null) {
+            instance = new ModelManager(context);
+        }
+        return instance;
+    }
+
+    // Bắt đầu load mô hình ở luồng nền (gọi nhiều lần cũng chỉ load một lần)
+    public synchronized CompletableFuture<ModelManager> preload() {
+        if (ready == null) {
+            ready = CompletableFuture.supplyAsync(() -> {
+                load();
+                return this;
+            }, loader);
+            ready.whenComplete((manager, error) -> {
+                if (error != null) {
+                    error.printStackTrace();
+                } else {
+                    startThermalFallback();
+                }
+            });
+        }
+        return ready;
+    }
+
+    // Hoàn thành khi mô hình đã load, tune (lần chạy đầu) và warm-up xong
+    public CompletableFuture<ModelManager> ready() {
+        return preload();
+    }
+
+    // Hoàn thành trước ready(): cấu hình thực thi đã lưu, hoặc cấu hình vừa tune ở lần chạy đầu
+    public CompletableFuture<ExecutionProfile> tuned() {
+        return tuned;
+    }
+
+    // Đăng ký listener (null để huỷ), trả về detector đang dùng tại thời điểm đăng ký
+    public synchronized FrameDetector setSwapListener(ModelSwapListener listener) {
+        swapListener = listener;
+        return frameDetector;
+    }
+
+    public synchronized String getActiveModelName() {
+        return active != null ? active.entry.name : null;
+    }
+
+    // Người dùng chọn mô hình khác: load (hoặc lấy từ cache) ở luồng nền rồi đổi nóng
+    public CompletableFuture<ModelRegistry.Handle> selectModel(String name) {
+        synchronized (this) {
+            preferredModel = name;
+            if (thermalFallback) {
+                // Đang dùng mô hình dự phòng vì máy nóng: áp dụng lựa chọn khi máy nguội
+                return CompletableFuture.completedFuture(active);
+            }
+        }
+        return switchModel(name);
+    }
+
+    // Đổi mô hình đang dùng. Chỉ hỗ trợ chế độ một mô hình (TiledDetector giữ nhóm interpreter riêng)
+    public CompletableFuture<ModelRegistry.Handle> switchModel(String name) {
+        if (Constants.TILED_INFERENCE) {
+            CompletableFuture<ModelRegistry.Handle> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Model switching is not supported in tiled mode"));
+            return failed;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            ModelRegistry.Entry entry = registry.find(name);
+            if (entry == null) {
+                throw new IllegalArgumentException("Model not found: " + name);
+            }
+            ModelRegistry.Handle handle = registry.acquire(entry);
+            ModelRegistry.Handle previous;
+            ModelSwapListener listener;
+            synchronized (this) {
+                previous = active;
+                if (previous == handle) {
+                    registry.release(handle); // Đã là mô hình đang dùng
+                    return handle;
+                }
+                activate(handle);
+                listener = swapListener;
+            }
+            // Được gọi từ luồng frame: trả lại (và có thể đóng) mô hình cũ trên luồng loader
+            Runnable releasePrevious = () -> loader.execute(() -> registry.release(previous));
+            if (listener != null) {
+                listener.onModelSwapped(handle, releasePrevious);
+            } else {
+                releasePrevious.run();
+            }
+            return handle;
+        }, loader);
+    }
+
+    private void load() {
+        ModelRegistry.Entry entry = registry.find(Constants.MODEL_PATH);
+        if (entry == null) {
+            throw new IllegalStateException("Cannot find model " + Constants.MODEL_PATH);
+        }
+        ModelRegistry.Handle handle = registry.acquire(entry);
+        synchronized (this) {
+            activate(handle);
+        }
+        tuneIfNeeded(entry);
+        if (Constants.TILED_INFERENCE) {
+            frameDetector = createTiledDetector(); // Chia số luồng của cấu hình đã tune
+        }
+        if (Constants.DETECTION_LOG) {
+            openDetectionLog();
+        }
+    }
+
+    private void activate(ModelRegistry.Handle handle) {
+        active = handle;
+        yoloModel = handle.model;
+        yoloDetector = handle.detector;
+        frameDetector = handle.detector;
+    }
+
+    // Mở log kết quả phát hiện trong <files>/detections, sống cùng tiến trình (luồng ghi là daemon,
+    // group commit nên khi tiến trình bị dừng chỉ mất tối đa một chu kỳ commit)
+    private void openDetectionLog() {
+        try {
+            detectionLog = new DetectionLog(new File(context.getFilesDir(), Constants.DETECTION_LOG_DIR),
+                    new DetectionLog.Options());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Tạo TiledDetector với TILE_POOL_SIZE interpreter, chia đều số luồng CPU của cấu hình hiện tại giữa chúng
+    private FrameDetector createTiledDetector() {
+        YOLOModel[] models = createWorkerModels(active.entry, Constants.TILE_POOL_SIZE);
+        YOLODetector[] workers = new YOLODetector[models.length];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new YOLODetector(models[i]);
+        }
+        return new TiledDetector(workers, yoloModel.classes, Constants.MAX_TILES_PER_FRAME);
+    }
+
+    // Tạo BatchProcessor cho mô hình đang dùng với workers interpreter riêng (chạy song song, số luồng CPU
+    // chia đều giữa chúng). Caller sở hữu BatchProcessor và phải gọi close() khi xong
+    public synchronized BatchProcessor createBatchProcessor(int workers, BatchProcessor.Options options) {
+        return new BatchProcessor(createWorkerModels(active.entry, workers), yoloModel.classes, options);
+    }
+
+    // Tạo DetectionService cho nhiều luồng hình ảnh đồng thời với poolSize interpreter riêng (số luồng CPU chia
+    // đều giữa chúng), tối đa số lõi / số luồng mỗi interpreter suy luận cùng lúc. Caller phải gọi close() khi xong
+    public synchronized DetectionService createDetectionService(int poolSize) {
+        YOLOModel[] models = createWorkerModels(active.entry, poolSize);
+        DetectionEngine[] engines = new DetectionEngine[models.length];
+        for (int i = 0; i < models.length; i++) {
+            engines[i] = new DetectionEngine(models[i], 1); // Song song theo luồng hình ảnh, không theo dải hàng
+            engines[i].config = YOLODetector.createConfig(models[i]);
+        }
+        int maxConcurrent = DetectionService.defaultMaxConcurrent(models[0].executionProfile.numThreads);
+        return new DetectionService(engines, maxConcurrent) {
+            @Override
+            public void close() {
+                super.close();
+                for (YOLOModel model : models) {
+                    model.close();
+                }
+            }
+        };
+    }
+
+    // Tạo count mô hình (đã warm up) của entry, mỗi mô hình một phần số luồng CPU của cấu hình hiện tại
+    private YOLOModel[] createWorkerModels(ModelRegistry.Entry entry, int count) {
+        ExecutionProfile profile = yoloModel.executionProfile;
+        ExecutionProfile workerProfile = new ExecutionProfile(Math.max(1, profile.numThreads / count),
+                profile.useXnnpack, profile.useNnapi, profile.allowFp16);
+        YOLOModel[] models = new YOLOModel[count];
+        for (int i = 0; i < count; i++) {
+            models[i] = new YOLOModel(context, entry.modelPath, entry.classesPath, workerProfile);
+            models[i].warmUp();
+        }
+        return models;
+    }
+
+    // Khi máy bắt đầu nóng: load trước mô hình nhẹ; khi quá nóng: chuyển sang mô hình nhẹ (đã có trong cache
+    // nên chỉ mất vài mili giây); khi máy nguội lại: quay về mô hình người dùng chọn
+    private void startThermalFallback() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || Constants.TILED_INFERENCE) return;
+        ModelRegistry.Entry fallback = registry.find(Constants.THERMAL_FALLBACK_MODEL);
+        if (fallback == null) return;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        powerManager.addThermalStatusListener(loader, status -> {
+            String target = null;
+            synchronized (this) {
+                if (status >= PowerManager.THERMAL_STATUS_SEVERE) {
+                    if (!thermalFallback) {
+                        thermalFallback = true;
+                        target = fallback.name;
+                    }
+                } else if (thermalFallback && status < PowerManager.THERMAL_STATUS_MODERATE) {
+                    thermalFallback = false;
+                    target = preferredModel;
+                }
+            }
+            if (status >= PowerManager.THERMAL_STATUS_MODERATE && !registry.isCached(fallback.name)) {
+                registry.prefetch(fallback);
+            }
+            if (target != null) {
+                switchModel(target);
+            }
+        });
+    }
+
+    // Lần chạy đầu tiên: tìm cấu hình thực thi nhanh nhất rồi áp dụng cho model. Chạy trong load(), trước khi
+    // ready() hoàn thành: lúc đó chưa có suy luận live nào dùng chung lõi CPU, nên phép đo không bị nhiễu
+    // và cấu hình được lưu (dùng cho mọi lần mở app sau) không bị lệch
+    private void tuneIfNeeded(ModelRegistry.Entry entry) {
+        ExecutionProfile savedProfile = ExecutionTuner.loadSaved(context, entry.modelPath);
+        if (savedProfile != null) {
+            tuned.complete(savedProfile);
+            return;
+        }
+        try {
+            YOLOModel model = yoloModel;
+            ExecutionProfile best = ExecutionTuner.tuneAndSave(context, model);
+            if (!best.equals(model.executionProfile)) {
+                model.setExecutionProfile(best);
+            }
+            tuned.complete(best);
+        } catch (Exception e) {
+            // Vẫn dùng được với cấu hình mặc định
+            e.printStackTrace();
+            tuned.completeExceptionally(e);
+        }
+    }
+}
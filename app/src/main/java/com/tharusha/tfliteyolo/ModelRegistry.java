@@ -0,0 +1,209 @@
+package com.tharusha.tfliteyolo;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// Lớp ModelRegistry liệt kê các mô hình .tflite (kèm file tên lớp) trong assets và trong thư mục models/
+// của bộ nhớ app, và giữ một cache LRU giới hạn theo dung lượng các mô hình đã map + khởi tạo + warm-up.
+// Mô hình được đếm tham chiếu: chỉ bị đóng (giải phóng bộ nhớ native) khi bị đẩy ra và không ai còn dùng.
+public class ModelRegistry {
+    private static final String MODEL_EXTENSION = ".tflite";
+    private static final String MODELS_DIRECTORY = "models";
+
+    // Một cặp mô hình / file tên lớp
+    public static class Entry {
+        public final String name;        // Tên file mô hình, ví dụ: "best_float32.tflite"
+        public final String modelPath;   // Tên asset, hoặc đường dẫn tuyệt đối trong bộ nhớ app
+        public final String classesPath;
+
+        Entry(String name, String modelPath, String classesPath) {
+            this.name = name;
+            this.modelPath = modelPath;
+            this.classesPath = classesPath;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // Mô hình đã khởi tạo cùng detector của nó; trả lại bằng release() khi không dùng nữa
+    public static class Handle {
+        public final Entry entry;
+        public final YOLOModel model;
+        public final YOLODetector detector;
+        final long bytes;   // Ước lượng bộ nhớ chiếm dụng
+        int refCount;       // Số nơi đang dùng, mô hình đang dùng không bị đẩy ra khỏi cache
+
+        Handle(Entry entry, YOLOModel model, YOLODetector detector, long bytes) {
+            this.entry = entry;
+            this.model = model;
+            this.detector = detector;
+            this.bytes = bytes;
+        }
+
+        void close() {
+            detector.close();
+            model.close();
+        }
+    }
+
+    private final Context context;
+    private final long maxBytes; // Giới hạn tổng dung lượng cache (có thể vượt tạm thời bởi các mô hình đang dùng)
+    private final LinkedHashMap<String, Handle> cache = new LinkedHashMap<>(8, 0.75f, true); // Thứ tự truy cập (LRU)
+    private long cachedBytes;
+
+    public ModelRegistry(Context context, long maxBytes) {
+        this.context = context.getApplicationContext();
+        this.maxBytes = maxBytes;
+    }
+
+    // Liệt kê các mô hình trong assets và trong <files>/models, file tên lớp được ghép theo tên mô hình
+    public List<Entry> list() {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            String[] assets = context.getAssets().list("");
+            if (assets != null) {
+                List<String> names = Arrays.asList(assets);
+                for (String name : assets) {
+                    if (!name.endsWith(MODEL_EXTENSION)) continue;
+                    String base = name.substring(0, name.length() - MODEL_EXTENSION.length());
+                    String classes = names.contains(base + ".txt") ? base + ".txt"
+                            : names.contains(base + "_classes.txt") ? base + "_classes.txt" : Constants.CLASSES_PATH;
+                    entries.add(new Entry(name, name, classes));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        File[] files = new File(context.getFilesDir(), MODELS_DIRECTORY).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(MODEL_EXTENSION)) continue;
+                String base = name.substring(0, name.length() - MODEL_EXTENSION.length());
+                File classes = new File(file.getParentFile(), base + ".txt");
+                if (!classes.exists()) classes = new File(file.getParentFile(), base + "_classes.txt");
+                entries.add(new Entry(name, file.getAbsolutePath(),
+                        classes.exists() ? classes.getAbsolutePath() : Constants.CLASSES_PATH));
+            }
+        }
+        return entries;
+    }
+
+    // Tìm mô hình theo tên, null nếu không có
+    public Entry find(String name) {
+        for (Entry entry : list()) {
+            if (entry.name.equals(name)) return entry;
+        }
+        return null;
+    }
+
+    // Lấy mô hình đã sẵn sàng (load + warm-up nếu chưa có trong cache). Chậm khi cache miss:
+    // gọi từ luồng nền, không gọi từ luồng frame. Việc load chạy ngoài lock của registry nên không chặn release()
+    public Handle acquire(Entry entry) {
+        synchronized (this) {
+            Handle handle = cache.get(entry.name);
+            if (handle != null) {
+                handle.refCount++;
+                return handle;
+            }
+        }
+        Handle loaded = load(entry);
+        Handle handle;
+        List<Handle> evicted;
+        synchronized (this) {
+            handle = cache.get(entry.name);
+            if (handle == null) {
+                handle = loaded;
+                loaded = null;
+                cache.put(entry.name, handle);
+                cachedBytes += handle.bytes;
+            }
+            handle.refCount++;
+            evicted = trim();
+        }
+        if (loaded != null) {
+            loaded.close(); // Luồng khác đã load cùng mô hình trong lúc này
+        }
+        close(evicted);
+        return handle;
+    }
+
+    // Trả lại mô hình đã acquire; mô hình vẫn nằm trong cache cho tới khi bị đẩy ra.
+    // Mô hình bị đẩy ra được đóng trên luồng gọi (ngoài lock): không gọi từ luồng frame
+    public void release(Handle handle) {
+        List<Handle> evicted;
+        synchronized (this) {
+            handle.refCount--;
+            evicted = trim();
+        }
+        close(evicted);
+    }
+
+    // Load trước vào cache (ví dụ: mô hình nhẹ dự phòng khi máy bắt đầu nóng) để lần chuyển sau gần như tức thì
+    public void prefetch(Entry entry) {
+        release(acquire(entry));
+    }
+
+    public synchronized boolean isCached(String name) {
+        return cache.containsKey(name);
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    private Handle load(Entry entry) {
+        ExecutionProfile savedProfile = ExecutionTuner.loadSaved(context, entry.modelPath);
+        YOLOModel model = new YOLOModel(context, entry.modelPath, entry.classesPath,
+                savedProfile != null ? savedProfile : ExecutionProfile.DEFAULT);
+        if (model.interpreter == null) {
+            throw new IllegalStateException("Cannot load model " + entry.modelPath);
+        }
+        model.warmUp();
+        YOLODetector detector = new YOLODetector(model);
+        // Ước lượng: file đã map + bộ nhớ interpreter (trọng số đã đóng gói, tensor trung gian) + bộ đệm của detector
+        long tensorBytes = (long) model.inputSpec.bytesPerElement() * product(model.inputShape)
+                + (long) model.outputSpec.bytesPerElement() * product(model.outputShape);
+        return new Handle(entry, model, detector, 2 * model.getModelBytes() + 2 * tensorBytes);
+    }
+
+    // Đẩy các mô hình ít dùng nhất (không ai đang dùng) ra khỏi cache cho tới khi vừa giới hạn.
+    // Gọi khi giữ lock; caller đóng các mô hình trả về sau khi nhả lock
+    private List<Handle> trim() {
+        List<Handle> evicted = new ArrayList<>();
+        Iterator<Handle> iterator = cache.values().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            Handle handle = iterator.next();
+            if (handle.refCount > 0) continue;
+            iterator.remove();
+            cachedBytes -= handle.bytes;
+            evicted.add(handle);
+        }
+        return evicted;
+    }
+
+    private static void close(List<Handle> handles) {
+        for (Handle handle : handles) {
+            handle.close();
+        }
+    }
+
+    private static long product(int[] shape) {
+        long n = 1;
+        for (int dimension : shape) {
+            n *= dimension;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,287 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp TiledDetector phát hiện vật thể nhỏ trên frame độ phân giải cao: chia frame thành các tile chồng lắp
+// (TileLayout), chạy các tile song song trên một nhóm YOLODetector (mỗi cái có mô hình / interpreter riêng),
+// đổi kết quả về toạ độ frame rồi gộp bằng NMS toàn cục để bỏ các box trùng ở vùng chồng lắp.
+public class TiledDetector implements FrameDetector {
+    private final YOLODetector[] workers; // Mỗi worker chạy trên một luồng, không dùng chung interpreter
+    private final List<String> classes;
+    private int modelSize;
+    public final int maxTiles;            // Ngân sách: số tile tối đa mỗi frame (kể cả tile toàn ảnh)
+    public float overlap = 0.2f;          // Tỉ lệ chồng lắp giữa hai tile liền kề
+    public boolean includeFullFrame = true;
+    public float fullFrameRerunFraction = 0.3f; // Tile toàn ảnh chỉ chạy lại khi tỉ lệ ô thay đổi đạt mức này
+
+    // NMS gộp kết quả giữa các tile: IoU 0.5, theo từng lớp
+    public final NonMaxSuppression mergeNms = new NonMaxSuppression(0.5f, false);
+
+    private final TileLayout layout;
+    private final YuvConverter yuvConverter = new YuvConverter();
+    private int[] bitmapPixels = new int[0];
+    private int[] frame;                  // Frame ARGB (đã xoay) đang xử lý
+    private int frameWidth, frameHeight;
+
+    private final DetectionBuffer[] tileResults; // Kết quả của tile hiện tại, theo từng worker
+    private final DetectionBuffer[] tileCache;   // Kết quả gần nhất của từng tile (toạ độ frame), dùng lại khi tile không đổi
+    private final int[] runList;                 // Các tile cần chạy ở frame hiện tại
+    private int runCount;
+    private int cachedWidth, cachedHeight;       // Kích thước frame của tileCache (0: chưa có)
+    private int cachedTileSize, cachedTileCount; // Bố cục tile của tileCache
+
+    // Mặt nạ thay đổi (ChangeGate) cho lần suy luận kế tiếp
+    private final boolean[] changeMask = new boolean[ChangeGate.GRID * ChangeGate.GRID];
+    private float changeFraction;
+    private boolean hasChangeMask;
+
+    private final DetectionBuffer merged;
+    private final DetectionBuffer results;
+
+    private final ExecutorService executor; // null nếu chỉ có một worker
+    private final Runnable[] workerTasks;
+    private final AtomicInteger nextTile = new AtomicInteger();
+    private final AtomicInteger pendingWorkers = new AtomicInteger();
+    private final AtomicReference<Throwable> workerFailure = new AtomicReference<>(); // Lỗi đầu tiên của worker
+    private volatile Thread caller;
+
+    public TiledDetector(YOLODetector[] workers, List<String> classes, int maxTiles) {
+        this.workers = workers;
+        this.classes = classes;
+        this.modelSize = workers[0].getInputImageSize();
+        this.maxTiles = Math.max(1, maxTiles);
+        this.layout = new TileLayout(this.maxTiles);
+
+        int maxDetections = mergeNms.maxDetections;
+        this.tileResults = new DetectionBuffer[workers.length];
+        this.workerTasks = new Runnable[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            tileResults[i] = new DetectionBuffer(maxDetections);
+            final int worker = i;
+            workerTasks[i] = () -> runWorker(worker);
+        }
+        this.tileCache = new DetectionBuffer[this.maxTiles];
+        for (int i = 0; i < this.maxTiles; i++) {
+            tileCache[i] = new DetectionBuffer(maxDetections);
+        }
+        this.runList = new int[this.maxTiles];
+        this.merged = new DetectionBuffer(this.maxTiles * maxDetections);
+        this.results = new DetectionBuffer(maxDetections);
+
+        this.executor = workers.length > 1 ? Executors.newFixedThreadPool(workers.length - 1, runnable -> {
+            Thread thread = new Thread(runnable, "YOLOTile");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Chuyển frame YUV sang ARGB (đã xoay) với độ phân giải đầy đủ để cắt tile
+    @Override
+    public void preprocess(Image image, int rotationDegrees) {
+        long start = System.nanoTime();
+        frame = yuvConverter.convertPixels(image, rotationDegrees);
+        frameWidth = yuvConverter.outWidth;
+        frameHeight = yuvConverter.outHeight;
+        LatencyMetrics.GLOBAL.lap(LatencyMetrics.PREPROCESS, start);
+    }
+
+    @Override
+    public void infer(DetectionBuffer out) {
+        detectFrame(out);
+    }
+
+    @Override
+    public List<YOLODetection> detectObjects(Bitmap bitmap) {
+        detectObjects(bitmap, results);
+        return results.toDetections(classes);
+    }
+
+    @Override
+    public void detectObjects(Bitmap bitmap, DetectionBuffer out) {
+        long start = System.nanoTime();
+        frameWidth = bitmap.getWidth();
+        frameHeight = bitmap.getHeight();
+        if (bitmapPixels.length < frameWidth * frameHeight) {
+            bitmapPixels = new int[frameWidth * frameHeight];
+        }
+        bitmap.getPixels(bitmapPixels, 0, frameWidth, 0, 0, frameWidth, frameHeight);
+        frame = bitmapPixels;
+        LatencyMetrics.GLOBAL.lap(LatencyMetrics.PREPROCESS, start);
+        detectFrame(out);
+    }
+
+    // Lần suy luận kế tiếp chỉ chạy lại các tile chứa ô thay đổi, các tile khác dùng kết quả cũ
+    @Override
+    public void setChangeMask(boolean[] changedCells, float changedFraction) {
+        System.arraycopy(changedCells, 0, changeMask, 0, changeMask.length);
+        changeFraction = changedFraction;
+        hasChangeMask = true;
+    }
+
+    @Override
+    public int getInputImageSize() {
+        return modelSize;
+    }
+
+    // Đổi kích thước đầu vào của mọi worker; bố cục tile được tính lại và kết quả cũ của các tile bị bỏ
+    @Override
+    public boolean setInputImageSize(int size) {
+        if (size == modelSize) {
+            return true;
+        }
+        for (int i = 0; i < workers.length; i++) {
+            if (!workers[i].setInputImageSize(size)) {
+                // Giữ mọi worker cùng một kích thước
+                for (int j = 0; j < i; j++) {
+                    workers[j].setInputImageSize(modelSize);
+                }
+                return false;
+            }
+        }
+        modelSize = size;
+        cachedWidth = cachedHeight = 0;
+        return true;
+    }
+
+    // Số tile của frame gần nhất
+    public int getTileCount() {
+        return layout.count;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (YOLODetector worker : workers) {
+            worker.close();
+        }
+    }
+
+    // Chạy các tile cần thiết của frame hiện tại rồi gộp kết quả (cả tile dùng lại) vào out
+    private void detectFrame(DetectionBuffer out) {
+        layout.compute(frameWidth, frameHeight, modelSize, overlap, includeFullFrame);
+        selectTiles();
+        int numWorkers = Math.max(1, Math.min(workers.length, runCount));
+
+        // Worker 0 chạy trên luồng gọi, các worker khác nhận tile từ cùng một bộ đếm
+        nextTile.set(0);
+        caller = Thread.currentThread();
+        workerFailure.set(null);
+        pendingWorkers.set(numWorkers - 1);
+        boolean completed = false;
+        try {
+            for (int i = 1; i < numWorkers; i++) {
+                try {
+                    executor.execute(workerTasks[i]);
+                } catch (RejectedExecutionException e) {
+                    // Không gửi được: luồng gọi chạy các tile còn lại
+                    pendingWorkers.addAndGet(-(numWorkers - i));
+                    break;
+                }
+            }
+            processTiles(0);
+            completed = true;
+        } finally {
+            while (pendingWorkers.get() > 0) {
+                LockSupport.park(this);
+            }
+            if (!completed || workerFailure.get() != null) {
+                // Bộ nhớ tile chỉ được ghi một phần: frame sau chạy lại mọi tile
+                cachedWidth = cachedHeight = 0;
+            }
+        }
+        Throwable failure = workerFailure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+
+        merged.clear();
+        for (int t = 0; t < layout.count; t++) {
+            DetectionBuffer source = tileCache[t];
+            for (int j = 0; j < source.count; j++) {
+                merged.addFrom(source, j);
+            }
+        }
+        long start = System.nanoTime();
+        mergeNms.run(merged, out);
+        LatencyMetrics.GLOBAL.lap(LatencyMetrics.NMS, start);
+    }
+
+    // Chọn các tile cần chạy: tất cả khi không có mặt nạ hoặc frame/bố cục tile thay đổi,
+    // ngược lại chỉ các tile có ô thay đổi (tile toàn ảnh chỉ khi thay đổi lớn)
+    private void selectTiles() {
+        boolean partial = hasChangeMask && cachedWidth == frameWidth && cachedHeight == frameHeight
+                && cachedTileSize == layout.tileSize && cachedTileCount == layout.count;
+        hasChangeMask = false;
+        cachedWidth = frameWidth;
+        cachedHeight = frameHeight;
+        cachedTileSize = layout.tileSize;
+        cachedTileCount = layout.count;
+        runCount = 0;
+        boolean fullFrameTile = includeFullFrame && layout.count > 1;
+        for (int t = 0; t < layout.count; t++) {
+            boolean run;
+            if (!partial) {
+                run = true;
+            } else if (t == 0 && fullFrameTile) {
+                run = changeFraction >= fullFrameRerunFraction;
+            } else {
+                int b = t * 4;
+                run = ChangeGate.regionChanged(changeMask, layout.tiles[b], layout.tiles[b + 1],
+                        layout.tiles[b + 2], layout.tiles[b + 3], frameWidth, frameHeight);
+            }
+            if (run) {
+                runList[runCount++] = t;
+            }
+        }
+        if (runCount < layout.count) {
+            LatencyMetrics.GLOBAL.tilesSkipped(layout.count - runCount);
+        }
+    }
+
+    private void runWorker(int worker) {
+        try {
+            processTiles(worker);
+        } catch (RuntimeException | Error e) {
+            workerFailure.compareAndSet(null, e);
+        } finally {
+            if (pendingWorkers.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    // Lấy tile tiếp theo cho tới khi hết, kết quả đổi từ toạ độ tile sang toạ độ frame
+    private void processTiles(int worker) {
+        YOLODetector detector = workers[worker];
+        DetectionBuffer tile = tileResults[worker];
+        int next;
+        while ((next = nextTile.getAndIncrement()) < runCount) {
+            int t = runList[next];
+            DetectionBuffer out = tileCache[t];
+            out.clear();
+            int b = t * 4;
+            int x = layout.tiles[b];
+            int y = layout.tiles[b + 1];
+            detector.detectTile(frame, frameWidth, x, y, layout.tiles[b + 2], layout.tiles[b + 3], tile);
+            for (int i = 0; i < tile.count; i++) {
+                int k = i * 4;
+                out.add(tile.boxes[k] + x, tile.boxes[k + 1] + y, tile.boxes[k + 2] + x, tile.boxes[k + 3] + y,
+                        tile.scores[i], tile.classIds[i]);
+            }
+        }
+    }
+}
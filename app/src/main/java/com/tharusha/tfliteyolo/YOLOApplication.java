@@ -0,0 +1,12 @@
+package com.tharusha.tfliteyolo;
+
+import android.app.Application;
+
+// Application của app: bắt đầu load mô hình ngay khi tiến trình khởi động, song song với việc tạo Activity
+public class YOLOApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ModelManager.get(this).preload();
+    }
+}
@@ -1,158 +1,182 @@
 package com.tharusha.tfliteyolo;
 
 import android.graphics.Bitmap;
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.support.common.ops.CastOp;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import android.media.Image;
+
 import java.util.List;
 
-// Lớp YOLODetector dùng để xử lý ảnh đầu vào, chạy mô hình YOLO và trả về các đối tượng phát hiện được
-public class YOLODetector {
+// Lớp YOLODetector dùng để xử lý ảnh đầu vào, chạy mô hình YOLO và trả về các đối tượng phát hiện được.
+// Không an toàn khi nhiều luồng gọi cùng lúc (letterbox và bộ đệm của frame hiện tại là trạng thái chung);
+// nhiều luồng hình ảnh đồng thời dùng DetectionService (ModelManager.createDetectionService)
+public class YOLODetector implements FrameDetector {
     private final YOLOModel yoloModel; // Mô hình YOLO đã load
-    private final int inputImageSize;  // Kích thước ảnh đầu vào mà mô hình yêu cầu (ví dụ: 224x224)
+    private final DetectionEngine engine; // Tiền xử lý, suy luận, giải mã và NMS (module yolo-core)
+
+    private static final int MAX_BATCH = 4; // Số ảnh tối đa mỗi lần chạy mô hình ở API batch
+
+    // Số luồng tiền xử lý (chia ảnh theo dải hàng)
+    private static final int PREPROCESS_THREADS = Runtime.getRuntime().availableProcessors() >= 4 ? 2 : 1;
 
-    private float imageWidthOriginal;  // Chiều rộng ảnh gốc
-    private float imageHeightOriginal; // Chiều cao ảnh gốc
+    private int[] argbPixels = new int[0]; // Pixel của Bitmap đầu vào
+    private final DetectionBuffer results;    // Bộ đệm dùng cho API trả về List
+    private BatchDetector batchDetector;      // Tạo khi lần đầu phát hiện theo batch
 
-    // Khởi tạo bộ xử lý ảnh (image preprocessor)
-    // NormalizeOp: chia pixel cho 255 → đưa về khoảng [0, 1]
-    // CastOp: ép kiểu sang FLOAT32 (kiểu dữ liệu mà mô hình yêu cầu)
-    private final ImageProcessor imageProcessor = new ImageProcessor.Builder()
-            .add(new NormalizeOp(0f, 255f)) // Normalize pixel từ [0,255] -> [0,1]
-            .add(new CastOp(DataType.FLOAT32)) // Ép kiểu dữ liệu sang float32
-            .build();
+    // Bộ NMS: IoU 0.5, chỉ loại bỏ chồng lắp trong cùng một lớp, tối đa 300 box
+    public final NonMaxSuppression nms;
 
     // Hàm khởi tạo YOLODetector, nhận vào đối tượng YOLOModel
     public YOLODetector(YOLOModel model) {
         this.yoloModel = model; // Gán model YOLO
-        this.inputImageSize = model.inputShape[1]; // Lấy kích thước ảnh đầu vào từ model
+        this.engine = new DetectionEngine(model, PREPROCESS_THREADS);
+        this.nms = engine.nms;
+        this.results = new DetectionBuffer(nms.maxDetections);
+        engine.config = createConfig(model);
     }
 
-    // Hàm phát hiện đối tượng trong ảnh Bitmap
-    public List<YOLODetection> detectObjects(Bitmap bitmap) {
-        // Lưu lại kích thước ảnh gốc để scale bounding box sau này
-        imageWidthOriginal = bitmap.getWidth();
-        imageHeightOriginal = bitmap.getHeight();
+    // Cấu hình lớp mặc định của mô hình: các lớp trong Constants.ENABLED_CLASSES (rỗng: mọi lớp) với ngưỡng
+    // Constants.CLASS_THRESHOLDS ("tên=ngưỡng"), lớp khác dùng ngưỡng mặc định. Nếu cấu hình không áp dụng được
+    // cho mô hình này thì dùng cấu hình mặc định (mọi lớp, ngưỡng chung), không áp dụng một phần
+    public static DetectorConfig createConfig(YOLOModel model) {
+        DetectorConfig defaults = new DetectorConfig(model.outputShape[1] - 4,
+                DetectionEngine.DEFAULT_CONFIDENCE_THRESHOLD, model.classes);
+        try {
+            DetectorConfig config = defaults;
+            if (Constants.ENABLED_CLASSES.length > 0) {
+                config = config.withClassNames(Constants.ENABLED_CLASSES);
+            }
+            for (String entry : Constants.CLASS_THRESHOLDS) {
+                int separator = entry.lastIndexOf('=');
+                if (separator <= 0 || separator == entry.length() - 1) {
+                    throw new IllegalArgumentException("Invalid class threshold \"" + entry
+                            + "\", expected \"name=threshold\"");
+                }
+                config = config.withThreshold(entry.substring(0, separator),
+                        Float.parseFloat(entry.substring(separator + 1).trim()));
+            }
+            return config;
+        } catch (IllegalArgumentException e) {
+            // Mô hình không có các lớp này (ví dụ: mô hình khác trong registry) hoặc cấu hình sai: phát hiện mọi lớp
+            e.printStackTrace();
+            return defaults;
+        }
+    }
 
-        // Resize ảnh về đúng kích thước mà mô hình yêu cầu
-        Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, inputImageSize, inputImageSize, false);
+    // Đổi lớp được bật / ngưỡng theo lớp, có hiệu lực từ lần giải mã kế tiếp (an toàn khi đang suy luận)
+    public void setConfig(DetectorConfig config) {
+        engine.config = config;
+    }
 
-        // Tạo đối tượng TensorImage và load ảnh vào
-        TensorImage tensorImage = new TensorImage(DataType.FLOAT32);
-        tensorImage.load(resizedBitmap);
+    public DetectorConfig getConfig() {
+        return engine.config;
+    }
 
-        // Áp dụng tiền xử lý ảnh: normalize + cast
-        tensorImage = imageProcessor.process(tensorImage);
+    // Hàm phát hiện đối tượng trong ảnh Bitmap
+    @Override
+    public List<YOLODetection> detectObjects(Bitmap bitmap) {
+        detectObjects(bitmap, results);
+        return results.toLabeledDetections(engine.config.labels);
+    }
 
-        // Tạo mảng đầu ra để chứa kết quả từ mô hình
-        float[][][] output = new float[1][yoloModel.outputShape[1]][yoloModel.outputShape[2]];
+    // Phát hiện đối tượng trên nhiều ảnh, MAX_BATCH ảnh mỗi lần chạy mô hình (ưu tiên thông lượng hơn độ trễ)
+    public synchronized List<List<YOLODetection>> detectObjects(List<Bitmap> bitmaps) {
+        if (batchDetector == null) {
+            batchDetector = new BatchDetector(yoloModel, MAX_BATCH, Runtime.getRuntime().availableProcessors());
+        }
+        batchDetector.config = engine.config;
+        batchDetector.iouThreshold = nms.iouThreshold;
+        return batchDetector.detectObjects(bitmaps);
+    }
 
-        // Chạy mô hình YOLO với ảnh đầu vào đã xử lý
-        yoloModel.interpreter.run(tensorImage.getBuffer(), output);
+    // Phát hiện đối tượng và ghi kết quả (đã qua NMS, điểm giảm dần) vào bộ đệm out do caller giữ lại qua các frame
+    @Override
+    public void detectObjects(Bitmap bitmap, DetectionBuffer out) {
+        preprocess(bitmap);
+        engine.detect(out);
+    }
 
-        // Xử lý kết quả đầu ra và trả về danh sách các đối tượng phát hiện được
-        return processYOLOOutput(output);
+    // Phát hiện đối tượng trực tiếp trên frame YUV_420_888 của camera (không qua Bitmap)
+    public void detectObjects(Image image, int rotationDegrees, DetectionBuffer out) {
+        preprocess(image, rotationDegrees);
+        infer(out);
     }
 
-    // Hàm xử lý kết quả đầu ra của mô hình YOLO để tạo danh sách YOLODetection
-    List<YOLODetection> processYOLOOutput(float[][][] yoloOutput) {
-        List<YOLODetection> detections = new ArrayList<>();
+    // Bước 1: tiền xử lý frame YUV vào bộ đệm đầu vào (image có thể được đóng ngay sau đó)
+    @Override
+    public void preprocess(Image image, int rotationDegrees) {
+        Image.Plane[] planes = image.getPlanes();
+        engine.preprocessYuv(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), rotationDegrees);
+    }
 
-        int numDetections = yoloModel.outputShape[2]; // Số lượng hộp phát hiện (detection boxes)
-        int numClasses = yoloModel.outputShape[1] - 4; // Số lượng lớp (channels trừ đi 4: x, y, w, h)
+    // Bước 2: chạy mô hình trên frame đã tiền xử lý, ghi kết quả sau NMS vào out (có thể gọi từ luồng khác)
+    @Override
+    public void infer(DetectionBuffer out) {
+        engine.detect(out);
+    }
 
-        // Duyệt qua từng detection
-        for (int i = 0; i < numDetections; i++) {
-            int bestClass = -1;
-            float bestClassScore = 0;
+    // Chạy mô hình và ghi các box vượt ngưỡng (chưa qua NMS) vào bộ đệm out do caller giữ lại qua các frame
+    public void detectCandidates(Bitmap bitmap, DetectionBuffer out) {
+        preprocess(bitmap);
+        engine.detectCandidates(out);
+    }
 
-            // Tìm lớp có xác suất cao nhất trong detection này
-            for (int j = 4; j < 4 + numClasses; j++) {
-                if (yoloOutput[0][j][i] > bestClassScore) {
-                    bestClassScore = yoloOutput[0][j][i];
-                    bestClass = j - 4; // Lấy chỉ số lớp
-                }
-            }
+    // Phát hiện đối tượng trong một tile [x, x + width) x [y, y + height) của ảnh ARGB có stride pixel mỗi hàng.
+    // Kết quả (đã qua NMS) có toạ độ tính theo góc trên trái của tile
+    public void detectTile(int[] pixels, int stride, int x, int y, int width, int height, DetectionBuffer out) {
+        engine.preprocessTile(pixels, stride, x, y, width, height);
+        engine.detect(out);
+    }
 
-            // Bỏ qua nếu xác suất thấp (confidence < 0.5)
-            if (bestClassScore < 0.5) {
-                continue;
-            }
+    // Một ngưỡng độ tin cậy chung cho mọi lớp (bỏ cấu hình lớp) và ngưỡng IoU của NMS (mặc định 0.5 / 0.5)
+    public void setThresholds(float confidence, float iou) {
+        engine.config = new DetectorConfig(engine.config.numClasses, confidence, yoloModel.classes);
+        nms.iouThreshold = iou;
+    }
 
-            // Tạo đối tượng YOLODetection
-            YOLODetection detection = new YOLODetection();
-            detection.classIndex = bestClass;
-            detection.confidence = bestClassScore;
-
-            // Lấy toạ độ bounding box từ kết quả và scale theo kích thước ảnh gốc
-            detection.box_x = yoloOutput[0][0][i] * imageWidthOriginal;
-            detection.box_y = yoloOutput[0][1][i] * imageHeightOriginal;
-            detection.box_width = yoloOutput[0][2][i] * imageWidthOriginal;
-            detection.box_height = yoloOutput[0][3][i] * imageHeightOriginal;
-
-            // Gán tên lớp nếu có trong danh sách
-            if (yoloModel.classes.size() > bestClass) {
-                detection.className = yoloModel.classes.get(bestClass);
-            } else {
-                detection.className = "";
-            }
+    // Kích thước (cạnh) đầu vào của mô hình
+    @Override
+    public int getInputImageSize() {
+        return engine.getInputImageSize();
+    }
 
-            detections.add(detection);
+    // Đổi kích thước đầu vào (mô hình dynamic shape), bộ đệm chỉ được cấp phát lại khi kích thước thay đổi.
+    // Không gọi khi đang có suy luận trên detector này. Trả về false nếu mô hình không hỗ trợ kích thước size
+    @Override
+    public synchronized boolean setInputImageSize(int size) {
+        if (size == engine.getInputImageSize()) {
+            return true;
         }
-
-        // Loại bỏ các bounding box bị chồng lắp bằng NMS (Non-Max Suppression)
-        return applyNMS(detections, 0.5f);
+        if (!engine.setInputImageSize(size)) {
+            return false;
+        }
+        // Detector batch dùng kích thước của mô hình lúc tạo: tạo lại ở lần gọi sau
+        if (batchDetector != null) {
+            batchDetector.close();
+            batchDetector = null;
+        }
+        return true;
     }
 
-    // Hàm thực hiện Non-Maximum Suppression (NMS) để loại bỏ các box chồng nhau
-    private List<YOLODetection> applyNMS(List<YOLODetection> detections, float iouThreshold) {
-        // Sắp xếp các detection theo độ tin cậy giảm dần
-        Collections.sort(detections, new Comparator<YOLODetection>() {
-            @Override
-            public int compare(YOLODetection d1, YOLODetection d2) {
-                return Float.compare(d2.confidence, d1.confidence);
-            }
-        });
-
-        List<YOLODetection> finalDetections = new ArrayList<>();
-
-        // Lặp qua từng detection và loại bỏ các box có IoU cao (chồng lắp)
-        while (!detections.isEmpty()) {
-            YOLODetection bestDetection = detections.remove(0);
-            finalDetections.add(bestDetection);
-
-            // Loại bỏ các box có IoU lớn hơn ngưỡng
-            detections.removeIf(d -> computeIoU(bestDetection, d) > iouThreshold);
+    // Đọc pixel của Bitmap rồi resize giữ tỉ lệ (letterbox) + chuẩn hoá, ghi thẳng vào bộ đệm đầu vào
+    private void preprocess(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (argbPixels.length < width * height) {
+            argbPixels = new int[width * height];
         }
-
-        return finalDetections;
+        bitmap.getPixels(argbPixels, 0, width, 0, 0, width, height);
+        engine.preprocessArgb(argbPixels, width, 0, 0, width, height);
     }
 
-    // Hàm tính IoU (Intersection over Union) giữa hai bounding box
-    private float computeIoU(YOLODetection box1, YOLODetection box2) {
-        // Tính toạ độ phần giao nhau
-        float x1 = Math.max(box1.box_x, box2.box_x);
-        float y1 = Math.max(box1.box_y, box2.box_y);
-        float x2 = Math.min(box1.box_x + box1.box_width, box2.box_x + box2.box_width);
-        float y2 = Math.min(box1.box_y + box1.box_height, box2.box_y + box2.box_height);
-
-        // Diện tích phần giao nhau
-        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
-
-        // Diện tích từng box
-        float box1Area = box1.box_width * box1.box_height;
-        float box2Area = box2.box_width * box2.box_height;
-
-        // Tính IoU theo công thức: IoU = Intersection / Union
-        float union = box1Area + box2Area - intersection;
-        return union > 0 ? intersection / union : 0;
+    // Giải phóng thread pool tiền xử lý
+    @Override
+    public void close() {
+        engine.close();
+        synchronized (this) {
+            if (batchDetector != null) {
+                batchDetector.close();
+            }
+        }
     }
 }
-
-
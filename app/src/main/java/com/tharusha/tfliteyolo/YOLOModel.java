@@ -1,29 +1,51 @@
 package com.tharusha.tfliteyolo;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class YOLOModel {
+public class YOLOModel implements InferenceBackend {
     public Interpreter interpreter;
     public List<String> classes = new ArrayList<>();
     public int[] inputShape;
     public int[] outputShape;
+    public TensorSpec inputSpec;  // Input dtype and quantization (FLOAT32, UINT8 or INT8)
+    public TensorSpec outputSpec; // Output dtype and quantization
+    public final String modelPath;
+    public ExecutionProfile executionProfile;
+    private MappedByteBuffer modelBuffer;
 
     public YOLOModel(Context context, String modelPath, String classesPath) {
+        this(context, modelPath, classesPath, ExecutionProfile.DEFAULT);
+    }
+
+    public YOLOModel(Context context, String modelPath, String classesPath, ExecutionProfile profile) {
+        this.modelPath = modelPath;
         try {
             // Load the model
-            interpreter = new Interpreter(loadModelFile(context, modelPath));
+            modelBuffer = loadModelFile(context, modelPath);
+            interpreter = createInterpreter(profile);
+            executionProfile = profile;
             // Get the input & output shape
             inputShape = interpreter.getInputTensor(0).shape();
             outputShape = interpreter.getOutputTensor(0).shape();
+            // Get the input & output data types so quantized models are handled too
+            inputSpec = tensorSpec(interpreter.getInputTensor(0));
+            outputSpec = tensorSpec(interpreter.getOutputTensor(0));
             // Load the classes
             if (classesPath != null) loadClasses(context, classesPath);
         } catch (Exception e) {
@@ -31,17 +53,150 @@ public class YOLOModel {
         }
     }
 
+    // Create a new interpreter over the same mapped model with the given execution options
+    public Interpreter createInterpreter(ExecutionProfile profile) {
+        return new Interpreter(modelBuffer, profile.toOptions());
+    }
+
+    // Rebuild the interpreter with another execution profile; safe to call while another thread runs inference.
+    // The new interpreter is built and warmed up before taking the lock, so inference is only blocked for the swap
+    public void setExecutionProfile(ExecutionProfile profile) {
+        Interpreter next = createInterpreter(profile);
+        int[] shape = getInputShape();
+        resize(next, shape);
+        warmUp(next);
+        Interpreter previous;
+        synchronized (this) {
+            if (!Arrays.equals(shape, inputShape)) {
+                resize(next, inputShape); // resizeInput was called meanwhile
+            }
+            previous = interpreter;
+            interpreter = next;
+            executionProfile = profile;
+        }
+        previous.close();
+    }
+
+    // Run one inference on a zero tensor so tensor allocation and kernel preparation
+    // happen now instead of on the first real frame
+    public synchronized void warmUp() {
+        warmUp(interpreter);
+    }
+
+    private static void warmUp(Interpreter interpreter) {
+        ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+        ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+        interpreter.run(input, output);
+    }
+
+    // Switch the input to size x size for models exported with dynamic shapes (e.g. 320 / 480 / 640).
+    // Tensors are reallocated and warmed up only when the size actually changes; inputShape and outputShape
+    // follow the new size. Returns false (and keeps the current size) if the model has a fixed input shape
+    @Override
+    public synchronized boolean resizeInput(int size) {
+        if (inputShape[1] == size && inputShape[2] == size) {
+            return true;
+        }
+        int[] previous = inputShape;
+        try {
+            resize(interpreter, new int[]{previous[0], size, size, previous[3]});
+            warmUp(interpreter);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            resize(interpreter, previous);
+            return false;
+        }
+        inputShape = interpreter.getInputTensor(0).shape();
+        outputShape = interpreter.getOutputTensor(0).shape();
+        return true;
+    }
+
+    @Override
+    public synchronized int[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    @Override
+    public synchronized int[] getOutputShape() {
+        return outputShape.clone();
+    }
+
+    @Override
+    public TensorSpec getInputSpec() {
+        return inputSpec;
+    }
+
+    @Override
+    public TensorSpec getOutputSpec() {
+        return outputSpec;
+    }
+
+    private static void resize(Interpreter interpreter, int[] shape) {
+        if (!Arrays.equals(interpreter.getInputTensor(0).shape(), shape)) {
+            interpreter.resizeInput(0, shape);
+            interpreter.allocateTensors();
+        }
+    }
+
+    // Run one inference; serialized with setExecutionProfile so the interpreter is never swapped mid-run
+    @Override
+    public synchronized void run(ByteBuffer input, ByteBuffer output) {
+        interpreter.run(input, output);
+    }
+
+    private static TensorSpec tensorSpec(Tensor tensor) {
+        DataType dataType = tensor.dataType();
+        if (dataType == DataType.FLOAT32) {
+            return TensorSpec.FLOAT32;
+        }
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        if (dataType == DataType.UINT8) {
+            return new TensorSpec(TensorSpec.Type.UINT8, params.getScale(), params.getZeroPoint());
+        }
+        if (dataType == DataType.INT8) {
+            return new TensorSpec(TensorSpec.Type.INT8, params.getScale(), params.getZeroPoint());
+        }
+        throw new IllegalArgumentException("Unsupported tensor type: " + dataType);
+    }
+
+    // Size of the memory-mapped model file in bytes
+    public long getModelBytes() {
+        return modelBuffer != null ? modelBuffer.capacity() : 0;
+    }
+
+    // Release the native interpreter; the model must not be used afterwards
+    public synchronized void close() {
+        if (interpreter != null) {
+            interpreter.close();
+            interpreter = null;
+        }
+    }
+
+    // Paths starting with "/" are files in app storage, anything else is an asset name
+    static boolean isFilePath(String path) {
+        return path.startsWith(File.separator);
+    }
+
+    // Map the model asset once; the mapping stays valid after the descriptor and channel are closed
     private MappedByteBuffer loadModelFile(Context context, String modelPath) throws Exception {
-        FileInputStream fileInputStream = new FileInputStream(context.getAssets().openFd(modelPath).getFileDescriptor());
-        FileChannel fileChannel = fileInputStream.getChannel();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY,
-                context.getAssets().openFd(modelPath).getStartOffset(),
-                context.getAssets().openFd(modelPath).getDeclaredLength());
+        if (isFilePath(modelPath)) {
+            try (FileInputStream fileInputStream = new FileInputStream(modelPath);
+                 FileChannel fileChannel = fileInputStream.getChannel()) {
+                return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            }
+        }
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelPath);
+             FileInputStream fileInputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+             FileChannel fileChannel = fileInputStream.getChannel()) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+        }
     }
 
     private void loadClasses(Context context, String classesPath) {
         try {
-            InputStream inputStream = context.getAssets().open(classesPath);
+            InputStream inputStream = isFilePath(classesPath)
+                    ? new FileInputStream(classesPath) : context.getAssets().open(classesPath);
             BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
             String line;
             while ((line = bufferedReader.readLine()) != null) {
@@ -0,0 +1,76 @@
+package com.tharusha.tfliteyolo;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+// Lớp YuvConverter chuyển frame YUV_420_888 từ ImageReader sang Bitmap ARGB (có xoay theo hướng cảm biến).
+// Mảng pixel và Bitmap đầu ra được dùng lại giữa các frame.
+public class YuvConverter {
+    private int[] pixels = new int[0];
+    private Bitmap bitmap;
+    public int outWidth, outHeight; // Kích thước ảnh đã xoay của lần chuyển đổi gần nhất
+
+    // Chuyển đổi image, rotationDegrees là 0/90/180/270. Bitmap trả về sẽ bị ghi đè ở lần gọi tiếp theo.
+    public Bitmap convert(Image image, int rotationDegrees) {
+        convertPixels(image, rotationDegrees);
+        if (bitmap == null || bitmap.getWidth() != outWidth || bitmap.getHeight() != outHeight) {
+            bitmap = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.setPixels(pixels, 0, outWidth, 0, 0, outWidth, outHeight);
+        return bitmap;
+    }
+
+    // Chuyển đổi image sang mảng ARGB outWidth x outHeight (đã xoay). Mảng trả về sẽ bị ghi đè ở lần gọi tiếp theo.
+    public int[] convertPixels(Image image, int rotationDegrees) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = rotationDegrees == 90 || rotationDegrees == 270;
+        outWidth = swap ? height : width;
+        outHeight = swap ? width : height;
+
+        if (pixels.length != width * height) {
+            pixels = new int[width * height];
+        }
+
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+
+        for (int y = 0; y < height; y++) {
+            int yRow = y * yRowStride;
+            int uvRow = (y >> 1) * uvRowStride;
+            for (int x = 0; x < width; x++) {
+                int uvIndex = uvRow + (x >> 1) * uvPixelStride;
+                int argb = LetterboxPreprocessor.yuvToArgb(yBuffer.get(yRow + x * yPixelStride) & 0xff,
+                        uBuffer.get(uvIndex) & 0xff, vBuffer.get(uvIndex) & 0xff);
+
+                // Vị trí pixel sau khi xoay
+                int index;
+                switch (rotationDegrees) {
+                    case 90:
+                        index = x * outWidth + (height - 1 - y);
+                        break;
+                    case 180:
+                        index = (height - 1 - y) * outWidth + (width - 1 - x);
+                        break;
+                    case 270:
+                        index = (width - 1 - x) * outWidth + y;
+                        break;
+                    default:
+                        index = y * outWidth + x;
+                        break;
+                }
+                pixels[index] = argb;
+            }
+        }
+
+        return pixels;
+    }
+}
@@ -0,0 +1,55 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that resuming from results.jsonl only trusts newline-terminated lines and truncates a torn tail.
+ */
+public class BatchProcessorTest {
+    private static final String FIRST = "{\"key\":\"a.jpg\",\"detections\":[]}\n";
+    private static final String SECOND = "{\"key\":\"b.jpg\",\"detections\":[{\"class\":0,\"box\":[1.0,2.0,3.0,4.0]}]}\n";
+
+    @Test
+    public void tornLastLine_isTruncatedEvenIfItEndsWithBrace() throws Exception {
+        // Dòng cuối bị cắt ngay sau một detection: kết thúc bằng "]}" nhưng chưa có '\n'
+        String torn = "{\"key\":\"c.jpg\",\"detections\":[{\"class\":1,\"box\":[5.0,6.0,7.0,8.0]}";
+        File file = write(FIRST + SECOND + torn);
+
+        Set<String> keys = BatchProcessor.loadCompleted(file);
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("a.jpg"));
+        assertTrue(keys.contains("b.jpg"));
+        assertFalse(keys.contains("c.jpg"));
+        assertEquals(FIRST + SECOND, read(file));
+    }
+
+    @Test
+    public void completeFile_isLeftUntouched() throws Exception {
+        File file = write(FIRST + SECOND);
+        assertEquals(2, BatchProcessor.loadCompleted(file).size());
+        assertEquals(FIRST + SECOND, read(file));
+
+        // Dòng hoàn chỉnh nhưng chưa có '\n' cũng bị cắt: bản ghi kế tiếp sẽ không bị nối vào cùng dòng
+        File unterminated = write(FIRST + SECOND.trim());
+        assertEquals(1, BatchProcessor.loadCompleted(unterminated).size());
+        assertEquals(FIRST, read(unterminated));
+    }
+
+    private static File write(String content) throws Exception {
+        File file = File.createTempFile("results", ".jsonl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
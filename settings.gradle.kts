@@ -15,3 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "My Application"
 include(":app")
+include(":yolo-core")
+include(":yolo-bench")
@@ -0,0 +1,29 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(project(":yolo-core"))
+}
+
+// ./gradlew :yolo-bench:jmh  (kết quả: build/results/jmh/results.json)
+// Chỉ chạy một nhóm: ./gradlew :yolo-bench:jmh -Pjmh.includes=NmsBenchmark
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.set(listOf("gc")) // Tốc độ cấp phát bộ nhớ (gc.alloc.rate.norm: byte mỗi lần gọi)
+    resultFormat.set("JSON")
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
@@ -0,0 +1,155 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Dữ liệu giả lập cho benchmark, tạo tất định theo seed
+final class BenchmarkData {
+    static final int NUM_CLASSES = 80;
+    static final int NUM_CHANNELS = 4 + NUM_CLASSES;
+    static final int NUM_ANCHORS = 8400;
+    static final int INPUT_SIZE = 640;
+
+    private BenchmarkData() {
+    }
+
+    // Tỉ lệ anchor vượt ngưỡng 0.5 theo kiểu cảnh: "empty" (không có đối tượng), "typical" (~40 ứng viên),
+    // "crowded" (~1000 ứng viên)
+    static float positiveFraction(String distribution) {
+        switch (distribution) {
+            case "empty":
+                return 0f;
+            case "typical":
+                return 0.005f;
+            case "crowded":
+                return 0.12f;
+            default:
+                throw new IllegalArgumentException(distribution);
+        }
+    }
+
+    // Tensor đầu ra [4 + 80][8400] giống YOLO11: điểm nền thấp, các anchor dương tụ quanh một số đối tượng
+    // (nhiều anchor chồng lắp cho mỗi đối tượng như đầu ra thật, để NMS có việc)
+    static float[] output(float positiveFraction, long seed) {
+        Random random = new Random(seed);
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        int numObjects = Math.max(1, (int) (NUM_ANCHORS * positiveFraction / 8));
+        float[] objects = new float[numObjects * 5]; // x, y, w, h, lớp
+        for (int o = 0; o < numObjects; o++) {
+            objects[o * 5] = 0.1f + random.nextFloat() * 0.8f;
+            objects[o * 5 + 1] = 0.1f + random.nextFloat() * 0.8f;
+            objects[o * 5 + 2] = 0.02f + random.nextFloat() * 0.2f;
+            objects[o * 5 + 3] = 0.02f + random.nextFloat() * 0.2f;
+            objects[o * 5 + 4] = random.nextInt(NUM_CLASSES);
+        }
+        for (int i = 0; i < NUM_ANCHORS; i++) {
+            boolean positive = random.nextFloat() < positiveFraction;
+            int o = random.nextInt(numObjects) * 5;
+            float jitter = positive ? 0.01f : 0.3f;
+            output[i] = objects[o] + (random.nextFloat() - 0.5f) * jitter;
+            output[NUM_ANCHORS + i] = objects[o + 1] + (random.nextFloat() - 0.5f) * jitter;
+            output[2 * NUM_ANCHORS + i] = objects[o + 2] * (0.9f + random.nextFloat() * 0.2f);
+            output[3 * NUM_ANCHORS + i] = objects[o + 3] * (0.9f + random.nextFloat() * 0.2f);
+            for (int c = 0; c < NUM_CLASSES; c++) {
+                output[(4 + c) * NUM_ANCHORS + i] = random.nextFloat() * random.nextFloat() * 0.3f;
+            }
+            if (positive) {
+                output[(4 + (int) objects[o + 4]) * NUM_ANCHORS + i] = 0.5f + random.nextFloat() * 0.49f;
+            }
+        }
+        return output;
+    }
+
+    // Bộ đệm direct như bộ đệm đầu ra của interpreter, lượng tử hoá nếu cần
+    static ByteBuffer toBuffer(float[] output, TensorSpec spec) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(output.length * spec.bytesPerElement()).order(ByteOrder.nativeOrder());
+        for (float value : output) {
+            if (spec.isQuantized()) {
+                buffer.put((byte) spec.quantize(value));
+            } else {
+                buffer.putFloat(value);
+            }
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    // Dạng float[1][channels][anchors] mà code ban đầu nhận từ interpreter
+    static float[][][] toArray(float[] output) {
+        float[][][] array = new float[1][NUM_CHANNELS][NUM_ANCHORS];
+        for (int c = 0; c < NUM_CHANNELS; c++) {
+            System.arraycopy(output, c * NUM_ANCHORS, array[0][c], 0, NUM_ANCHORS);
+        }
+        return array;
+    }
+
+    // Cảnh đông: count ứng viên trên frame 1280x720, mỗi đối tượng ~10 box chồng lắp, vài lớp
+    static DetectionBuffer crowdedCandidates(int count, long seed) {
+        Random random = new Random(seed);
+        DetectionBuffer candidates = new DetectionBuffer(count);
+        float x = 0, y = 0, w = 0, h = 0;
+        int classId = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 0) {
+                w = 20 + random.nextFloat() * 120;
+                h = 20 + random.nextFloat() * 120;
+                x = random.nextFloat() * (1280 - w);
+                y = random.nextFloat() * (720 - h);
+                classId = random.nextInt(3);
+            }
+            float dx = (random.nextFloat() - 0.5f) * w * 0.2f;
+            float dy = (random.nextFloat() - 0.5f) * h * 0.2f;
+            candidates.add(x + dx, y + dy, x + dx + w, y + dy + h, 0.5f + random.nextFloat() * 0.49f, classId);
+        }
+        return candidates;
+    }
+
+    // Chuyển ứng viên sang danh sách YOLODetection (góc trên trái + kích thước) như code ban đầu
+    static List<YOLODetection> toLegacy(DetectionBuffer candidates) {
+        List<YOLODetection> detections = new ArrayList<>(candidates.count);
+        for (int i = 0; i < candidates.count; i++) {
+            int b = i * 4;
+            YOLODetection detection = new YOLODetection();
+            detection.classIndex = candidates.classIds[i];
+            detection.confidence = candidates.scores[i];
+            detection.box_x = candidates.boxes[b];
+            detection.box_y = candidates.boxes[b + 1];
+            detection.box_width = candidates.boxes[b + 2] - candidates.boxes[b];
+            detection.box_height = candidates.boxes[b + 3] - candidates.boxes[b + 1];
+            detections.add(detection);
+        }
+        return detections;
+    }
+
+    static List<String> classNames() {
+        List<String> classes = new ArrayList<>(NUM_CLASSES);
+        for (int c = 0; c < NUM_CLASSES; c++) {
+            classes.add("class" + c);
+        }
+        return classes;
+    }
+
+    // Frame ARGB ngẫu nhiên width x height
+    static int[] argbFrame(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    // Plane ngẫu nhiên (direct, như plane của android.media.Image)
+    static ByteBuffer plane(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(bytes);
+        buffer.rewind();
+        return buffer;
+    }
+}
@@ -0,0 +1,90 @@
+package com.tharusha.tfliteyolo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Giải mã tensor đầu ra 84x8400 (+ NMS) so với processYOLOOutput ban đầu, với nhiều mức số ứng viên
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DecodeBenchmark {
+    private static final float CONFIDENCE_THRESHOLD = 0.5f;
+    private static final TensorSpec INT8 = new TensorSpec(TensorSpec.Type.INT8, 1f / 255, -128);
+
+    @Param({"empty", "typical", "crowded"})
+    public String distribution;
+
+    private ByteBuffer floatOutput;
+    private ByteBuffer int8Output;
+    private float[][][] legacyOutput;
+    private YOLOOutputDecoder floatDecoder;
+    private YOLOOutputDecoder int8Decoder;
+    private DetectorConfig subsetConfig;
+    private final Letterbox letterbox = new Letterbox();
+    private final NonMaxSuppression nms = new NonMaxSuppression(0.5f, false);
+    private DetectionBuffer candidates;
+    private DetectionBuffer results;
+    private LegacyDetector legacy;
+
+    @Setup
+    public void setup() {
+        float[] output = BenchmarkData.output(BenchmarkData.positiveFraction(distribution), 42);
+        floatOutput = BenchmarkData.toBuffer(output, TensorSpec.FLOAT32);
+        int8Output = BenchmarkData.toBuffer(output, INT8);
+        legacyOutput = BenchmarkData.toArray(output);
+        floatDecoder = new YOLOOutputDecoder(BenchmarkData.NUM_CHANNELS, BenchmarkData.NUM_ANCHORS);
+        int8Decoder = new YOLOOutputDecoder(BenchmarkData.NUM_CHANNELS, BenchmarkData.NUM_ANCHORS, INT8);
+        letterbox.set(BenchmarkData.INPUT_SIZE, BenchmarkData.INPUT_SIZE, 1280, 720);
+        // 3 / 80 lớp được bật, một lớp có ngưỡng riêng
+        subsetConfig = new DetectorConfig(BenchmarkData.NUM_CLASSES, CONFIDENCE_THRESHOLD, null)
+                .withClasses(0, 2, 7).withThreshold(7, 0.6f);
+        candidates = new DetectionBuffer(BenchmarkData.NUM_ANCHORS);
+        results = new DetectionBuffer(nms.maxDetections);
+        legacy = new LegacyDetector(BenchmarkData.classNames(), BenchmarkData.NUM_CHANNELS, BenchmarkData.NUM_ANCHORS);
+        legacy.setImageSize(1280, 720);
+    }
+
+    @Benchmark
+    public int decode() {
+        floatDecoder.decode(floatOutput, CONFIDENCE_THRESHOLD, letterbox, candidates);
+        return candidates.count;
+    }
+
+    @Benchmark
+    public int decodeInt8() {
+        int8Decoder.decode(int8Output, CONFIDENCE_THRESHOLD, letterbox, candidates);
+        return candidates.count;
+    }
+
+    @Benchmark
+    public int decodeClassSubset() {
+        floatDecoder.decode(floatOutput, subsetConfig, letterbox, candidates);
+        return candidates.count;
+    }
+
+    // Cùng phạm vi với processYOLOOutput ban đầu: giải mã + NMS
+    @Benchmark
+    public int decodeAndNms() {
+        floatDecoder.decode(floatOutput, CONFIDENCE_THRESHOLD, letterbox, candidates);
+        return nms.run(candidates, results);
+    }
+
+    @Benchmark
+    public List<YOLODetection> baselineProcessYOLOOutput() {
+        return legacy.processYOLOOutput(legacyOutput);
+    }
+}
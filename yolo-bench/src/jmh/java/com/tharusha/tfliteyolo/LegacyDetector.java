@@ -0,0 +1,132 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Bản sao phần xử lý của YOLODetector ban đầu (trước khi tối ưu), dùng làm mốc so sánh trong benchmark:
+// processYOLOOutput / applyNMS / computeIoU giữ nguyên thuật toán và cách cấp phát bộ nhớ.
+// Tiền xử lý ban đầu dùng Bitmap.createScaledBitmap + TensorImage (chỉ có trên Android), ở đây được mô phỏng
+// bằng các bước tương đương trên mảng: resize nearest vào ảnh mới rồi chuẩn hoá vào mảng float mới.
+public class LegacyDetector {
+    private final List<String> classes;
+    private final int numClasses;
+    private final int numDetections;
+    private float imageWidthOriginal;  // Chiều rộng ảnh gốc
+    private float imageHeightOriginal; // Chiều cao ảnh gốc
+
+    public LegacyDetector(List<String> classes, int numChannels, int numAnchors) {
+        this.classes = classes;
+        this.numClasses = numChannels - 4;
+        this.numDetections = numAnchors;
+    }
+
+    public void setImageSize(int width, int height) {
+        imageWidthOriginal = width;
+        imageHeightOriginal = height;
+    }
+
+    // Tương đương createScaledBitmap(filter = false) + TensorImage.load + NormalizeOp(0, 255) + CastOp(FLOAT32)
+    public static float[] preprocess(int[] pixels, int width, int height, int inputImageSize) {
+        int[] scaled = new int[inputImageSize * inputImageSize];
+        for (int y = 0; y < inputImageSize; y++) {
+            int sy = y * height / inputImageSize;
+            for (int x = 0; x < inputImageSize; x++) {
+                scaled[y * inputImageSize + x] = pixels[sy * width + x * width / inputImageSize];
+            }
+        }
+        float[] rgb = new float[inputImageSize * inputImageSize * 3];
+        for (int i = 0, j = 0; i < scaled.length; i++, j += 3) {
+            int argb = scaled[i];
+            rgb[j] = (argb >> 16) & 0xff;
+            rgb[j + 1] = (argb >> 8) & 0xff;
+            rgb[j + 2] = argb & 0xff;
+        }
+        float[] normalized = new float[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            normalized[i] = rgb[i] / 255f;
+        }
+        return normalized;
+    }
+
+    // Hàm xử lý kết quả đầu ra của mô hình YOLO để tạo danh sách YOLODetection
+    public List<YOLODetection> processYOLOOutput(float[][][] yoloOutput) {
+        List<YOLODetection> detections = new ArrayList<>();
+
+        // Duyệt qua từng detection
+        for (int i = 0; i < numDetections; i++) {
+            int bestClass = -1;
+            float bestClassScore = 0;
+
+            // Tìm lớp có xác suất cao nhất trong detection này
+            for (int j = 4; j < 4 + numClasses; j++) {
+                if (yoloOutput[0][j][i] > bestClassScore) {
+                    bestClassScore = yoloOutput[0][j][i];
+                    bestClass = j - 4; // Lấy chỉ số lớp
+                }
+            }
+
+            // Bỏ qua nếu xác suất thấp (confidence < 0.5)
+            if (bestClassScore < 0.5) {
+                continue;
+            }
+
+            YOLODetection detection = new YOLODetection();
+            detection.classIndex = bestClass;
+            detection.confidence = bestClassScore;
+
+            // Lấy toạ độ bounding box từ kết quả và scale theo kích thước ảnh gốc
+            detection.box_x = yoloOutput[0][0][i] * imageWidthOriginal;
+            detection.box_y = yoloOutput[0][1][i] * imageHeightOriginal;
+            detection.box_width = yoloOutput[0][2][i] * imageWidthOriginal;
+            detection.box_height = yoloOutput[0][3][i] * imageHeightOriginal;
+
+            if (classes.size() > bestClass) {
+                detection.className = classes.get(bestClass);
+            } else {
+                detection.className = "";
+            }
+
+            detections.add(detection);
+        }
+
+        return applyNMS(detections, 0.5f);
+    }
+
+    // Hàm thực hiện Non-Maximum Suppression (NMS) để loại bỏ các box chồng nhau
+    public List<YOLODetection> applyNMS(List<YOLODetection> detections, float iouThreshold) {
+        Collections.sort(detections, new Comparator<YOLODetection>() {
+            @Override
+            public int compare(YOLODetection d1, YOLODetection d2) {
+                return Float.compare(d2.confidence, d1.confidence);
+            }
+        });
+
+        List<YOLODetection> finalDetections = new ArrayList<>();
+
+        while (!detections.isEmpty()) {
+            YOLODetection bestDetection = detections.remove(0);
+            finalDetections.add(bestDetection);
+            detections.removeIf(d -> computeIoU(bestDetection, d) > iouThreshold);
+        }
+
+        return finalDetections;
+    }
+
+    // Hàm tính IoU (Intersection over Union) giữa hai bounding box
+    public static float computeIoU(YOLODetection box1, YOLODetection box2) {
+        float x1 = Math.max(box1.box_x, box2.box_x);
+        float y1 = Math.max(box1.box_y, box2.box_y);
+        float x2 = Math.min(box1.box_x + box1.box_width, box2.box_x + box2.box_width);
+        float y2 = Math.min(box1.box_y + box1.box_height, box2.box_y + box2.box_height);
+
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+
+        float box1Area = box1.box_width * box1.box_height;
+        float box2Area = box2.box_width * box2.box_height;
+
+        float union = box1Area + box2Area - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.tharusha.tfliteyolo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// NMS trên cảnh đông (1k - 10k ứng viên) so với applyNMS / computeIoU ban đầu
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NmsBenchmark {
+    @Param({"1000", "5000", "10000"})
+    public int candidateCount;
+
+    private final NonMaxSuppression nms = new NonMaxSuppression(0.5f, false);
+    private DetectionBuffer candidates;
+    private DetectionBuffer results;
+    private List<YOLODetection> legacyCandidates;
+    private LegacyDetector legacy;
+
+    @Setup
+    public void setup() {
+        candidates = BenchmarkData.crowdedCandidates(candidateCount, 7);
+        results = new DetectionBuffer(nms.maxDetections);
+        legacyCandidates = BenchmarkData.toLegacy(candidates);
+        legacy = new LegacyDetector(BenchmarkData.classNames(), BenchmarkData.NUM_CHANNELS, BenchmarkData.NUM_ANCHORS);
+    }
+
+    @Benchmark
+    public int nms() {
+        return nms.run(candidates, results);
+    }
+
+    // applyNMS sắp xếp và xoá trên chính danh sách nên phải chép lại mỗi lần (chi phí chép nhỏ so với NMS O(n^2))
+    @Benchmark
+    public List<YOLODetection> baselineApplyNms() {
+        return legacy.applyNMS(new ArrayList<>(legacyCandidates), 0.5f);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tharusha.tfliteyolo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+// Tiền xử lý letterbox (ARGB và YUV_420_888) frame 640 / 1280 pixel vào đầu vào 640x640
+// so với resize + chuẩn hoá ban đầu (mô phỏng createScaledBitmap + TensorImage)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PreprocessBenchmark {
+    @Param({"640", "1280"})
+    public int frameWidth;
+
+    @Param({"1", "2"})
+    public int threads;
+
+    private int frameHeight;
+    private int[] argb;
+    private ByteBuffer y, u, v;
+    private LetterboxPreprocessor preprocessor;
+    private final Letterbox letterbox = new Letterbox();
+
+    @Setup
+    public void setup() {
+        frameHeight = frameWidth * 3 / 4;
+        argb = BenchmarkData.argbFrame(frameWidth, frameHeight, 1);
+        // YUV_420_888 dạng semi-planar (NV21) như đa số camera: u và v xen kẽ, pixel stride 2
+        y = BenchmarkData.plane(frameWidth * frameHeight, 2);
+        ByteBuffer uv = BenchmarkData.plane(frameWidth * frameHeight / 2, 3);
+        v = uv.duplicate();
+        uv.position(1);
+        u = uv.slice();
+        int size = BenchmarkData.INPUT_SIZE;
+        ByteBuffer input = ByteBuffer.allocateDirect(4 * size * size * 3).order(ByteOrder.nativeOrder());
+        preprocessor = new LetterboxPreprocessor(input, size, size, TensorSpec.FLOAT32, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        preprocessor.close();
+    }
+
+    @Benchmark
+    public Letterbox letterboxArgb() {
+        preprocessor.processArgb(argb, frameWidth, frameHeight, letterbox);
+        return letterbox;
+    }
+
+    @Benchmark
+    public Letterbox letterboxYuv() {
+        preprocessor.processYuv(y, frameWidth, 1, u, v, frameWidth, 2, frameWidth, frameHeight, 90, letterbox);
+        return letterbox;
+    }
+
+    // Không phụ thuộc threads (luôn một luồng)
+    @Benchmark
+    public float[] baselineScaleAndNormalize() {
+        return LegacyDetector.preprocess(argb, frameWidth, frameHeight, BenchmarkData.INPUT_SIZE);
+    }
+}
@@ -0,0 +1,147 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Lớp ChangeGate quyết định có cần chạy YOLO trên frame mới hay không (camera cố định: đa số frame gần như
+// giống frame đã suy luận gần nhất). Frame được thu nhỏ thành ảnh độ sáng (luma) GRID x GRID (ảnh đã xoay),
+// so với ảnh thu nhỏ của lần suy luận gần nhất theo từng ô, sau khi bù thay đổi độ sáng chung (tự động phơi sáng).
+// Kết quả: frame có thay đổi không, và mặt nạ các ô đã thay đổi để chỉ chạy lại các tile bị ảnh hưởng.
+public class ChangeGate {
+    public static final int GRID = 32;         // Số ô mỗi chiều của ảnh thu nhỏ
+    private static final int SAMPLES = 4;      // Lấy SAMPLES x SAMPLES điểm mỗi ô
+
+    public float cellThreshold = 12f;          // Chênh lệch độ sáng trung bình (0..255) để coi một ô là thay đổi
+    public float minChangedFraction = 0.002f;  // Tỉ lệ ô thay đổi tối thiểu để chạy lại suy luận
+    public int maxSkippedFrames = 90;          // Số lần bỏ qua liên tiếp tối đa trước khi buộc chạy lại
+
+    private final float[] reference = new float[GRID * GRID]; // Ảnh thu nhỏ của lần suy luận gần nhất
+    private final float[] current = new float[GRID * GRID];   // Ảnh thu nhỏ của frame hiện tại
+    private boolean hasReference;
+    private int skippedInARow;
+
+    public final boolean[] changedCells = new boolean[GRID * GRID]; // Mặt nạ ô thay đổi của frame hiện tại
+    public float changedFraction;                                   // Tỉ lệ ô thay đổi của frame hiện tại
+
+    // Thu nhỏ mặt phẳng Y của frame YUV_420_888 (width x height theo cảm biến), xoay rotationDegrees
+    public void sampleYuv(ByteBuffer y, int rowStride, int pixelStride, int width, int height, int rotationDegrees) {
+        boolean swap = rotationDegrees == 90 || rotationDegrees == 270;
+        int outWidth = swap ? height : width;
+        int outHeight = swap ? width : height;
+        for (int cy = 0; cy < GRID; cy++) {
+            for (int cx = 0; cx < GRID; cx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    // Toạ độ điểm lấy mẫu trên ảnh đã xoay
+                    int uy = ((cy * SAMPLES + sy) * 2 + 1) * outHeight / (GRID * SAMPLES * 2);
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int ux = ((cx * SAMPLES + sx) * 2 + 1) * outWidth / (GRID * SAMPLES * 2);
+                        int px, py;
+                        switch (rotationDegrees) {
+                            case 90:
+                                px = uy;
+                                py = height - 1 - ux;
+                                break;
+                            case 180:
+                                px = width - 1 - ux;
+                                py = height - 1 - uy;
+                                break;
+                            case 270:
+                                px = width - 1 - uy;
+                                py = ux;
+                                break;
+                            default:
+                                px = ux;
+                                py = uy;
+                                break;
+                        }
+                        sum += y.get(py * rowStride + px * pixelStride) & 0xff;
+                    }
+                }
+                current[cy * GRID + cx] = sum / (float) (SAMPLES * SAMPLES);
+            }
+        }
+    }
+
+    // Thu nhỏ ảnh ARGB width x height (stride pixel mỗi hàng), độ sáng theo BT.601
+    public void sampleArgb(int[] pixels, int stride, int width, int height) {
+        for (int cy = 0; cy < GRID; cy++) {
+            for (int cx = 0; cx < GRID; cx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int py = ((cy * SAMPLES + sy) * 2 + 1) * height / (GRID * SAMPLES * 2);
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int px = ((cx * SAMPLES + sx) * 2 + 1) * width / (GRID * SAMPLES * 2);
+                        int argb = pixels[py * stride + px];
+                        sum += (77 * ((argb >> 16) & 0xff) + 150 * ((argb >> 8) & 0xff) + 29 * (argb & 0xff)) >> 8;
+                    }
+                }
+                current[cy * GRID + cx] = sum / (float) (SAMPLES * SAMPLES);
+            }
+        }
+    }
+
+    // So frame vừa lấy mẫu với frame tham chiếu, cập nhật changedCells / changedFraction.
+    // Trả về true nếu cần chạy suy luận (khi đó gọi accept() để frame này thành tham chiếu mới)
+    public boolean hasChanged() {
+        if (!hasReference) {
+            Arrays.fill(changedCells, true);
+            changedFraction = 1;
+            return true;
+        }
+
+        // Bù thay đổi độ sáng chung của cả frame
+        float meanDelta = 0;
+        for (int i = 0; i < current.length; i++) {
+            meanDelta += current[i] - reference[i];
+        }
+        meanDelta /= current.length;
+
+        int changed = 0;
+        for (int i = 0; i < current.length; i++) {
+            boolean cellChanged = Math.abs(current[i] - reference[i] - meanDelta) > cellThreshold;
+            changedCells[i] = cellChanged;
+            if (cellChanged) changed++;
+        }
+        changedFraction = changed / (float) current.length;
+
+        if (changedFraction < minChangedFraction && skippedInARow < maxSkippedFrames) {
+            skippedInARow++;
+            return false;
+        }
+        if (changedFraction < minChangedFraction) {
+            // Buộc chạy lại định kỳ: coi cả frame là thay đổi
+            Arrays.fill(changedCells, true);
+            changedFraction = 1;
+        }
+        return true;
+    }
+
+    // Frame vừa lấy mẫu được đưa vào suy luận: dùng làm tham chiếu cho các frame sau
+    public void accept() {
+        System.arraycopy(current, 0, reference, 0, current.length);
+        hasReference = true;
+        skippedInARow = 0;
+    }
+
+    // Bắt đầu lại (frame tiếp theo luôn được suy luận)
+    public void reset() {
+        hasReference = false;
+        skippedInARow = 0;
+    }
+
+    // Vùng [x, x + width) x [y, y + height) của frame frameWidth x frameHeight có ô nào thay đổi không
+    public static boolean regionChanged(boolean[] cells, int x, int y, int width, int height,
+                                        int frameWidth, int frameHeight) {
+        int cx0 = x * GRID / frameWidth;
+        int cy0 = y * GRID / frameHeight;
+        int cx1 = Math.min(GRID - 1, ((x + width) * GRID - 1) / frameWidth);
+        int cy1 = Math.min(GRID - 1, ((y + height) * GRID - 1) / frameHeight);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                if (cells[cy * GRID + cx]) return true;
+            }
+        }
+        return false;
+    }
+}
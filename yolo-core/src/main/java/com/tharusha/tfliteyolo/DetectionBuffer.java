@@ -0,0 +1,101 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Bộ đệm kết quả phát hiện dạng struct-of-arrays (mảng nguyên thuỷ), cấp phát một lần và dùng lại qua các frame
+public class DetectionBuffer {
+    public final int capacity; // Số detection tối đa bộ đệm chứa được
+    public int count;          // Số detection hiện có
+
+    // Mỗi detection chiếm 4 phần tử liên tiếp: left, top, right, bottom (toạ độ ảnh gốc)
+    public final float[] boxes;
+    public final float[] scores;
+    public final int[] classIds;
+    public final int[] trackIds; // ID theo dõi (track) ổn định giữa các frame, -1 nếu chưa gán
+
+    public DetectionBuffer(int capacity) {
+        this.capacity = capacity;
+        this.boxes = new float[capacity * 4];
+        this.scores = new float[capacity];
+        this.classIds = new int[capacity];
+        this.trackIds = new int[capacity];
+    }
+
+    // Xoá toàn bộ detection (không giải phóng bộ nhớ)
+    public void clear() {
+        count = 0;
+    }
+
+    // Thêm một detection, trả về false nếu bộ đệm đã đầy
+    public boolean add(float left, float top, float right, float bottom, float score, int classId) {
+        if (count >= capacity) {
+            return false;
+        }
+        int b = count * 4;
+        boxes[b] = left;
+        boxes[b + 1] = top;
+        boxes[b + 2] = right;
+        boxes[b + 3] = bottom;
+        scores[count] = score;
+        classIds[count] = classId;
+        trackIds[count] = -1;
+        count++;
+        return true;
+    }
+
+    // Chép detection thứ index của bộ đệm khác vào cuối bộ đệm này
+    public boolean addFrom(DetectionBuffer source, int index) {
+        int b = index * 4;
+        if (!add(source.boxes[b], source.boxes[b + 1], source.boxes[b + 2], source.boxes[b + 3],
+                source.scores[index], source.classIds[index])) {
+            return false;
+        }
+        trackIds[count - 1] = source.trackIds[index];
+        return true;
+    }
+
+    // Chép toàn bộ nội dung của bộ đệm khác (cắt bớt nếu vượt quá capacity)
+    public void copyFrom(DetectionBuffer source) {
+        count = Math.min(source.count, capacity);
+        System.arraycopy(source.boxes, 0, boxes, 0, count * 4);
+        System.arraycopy(source.scores, 0, scores, 0, count);
+        System.arraycopy(source.classIds, 0, classIds, 0, count);
+        System.arraycopy(source.trackIds, 0, trackIds, 0, count);
+    }
+
+    // Chuyển sang danh sách YOLODetection với tên lớp lấy từ mảng labels đã chuẩn bị sẵn (DetectorConfig.labels)
+    public List<YOLODetection> toLabeledDetections(String[] labels) {
+        List<YOLODetection> detections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            YOLODetection detection = toDetection(i);
+            detection.className = classIds[i] < labels.length ? labels[classIds[i]] : "";
+            detections.add(detection);
+        }
+        return detections;
+    }
+
+    // Chuyển sang danh sách YOLODetection (toạ độ tâm + kích thước) cho các API cũ
+    public List<YOLODetection> toDetections(List<String> classes) {
+        List<YOLODetection> detections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            YOLODetection detection = toDetection(i);
+            detection.className = classes != null && classes.size() > classIds[i] ? classes.get(classIds[i]) : "";
+            detections.add(detection);
+        }
+        return detections;
+    }
+
+    private YOLODetection toDetection(int i) {
+        int b = i * 4;
+        YOLODetection detection = new YOLODetection();
+        detection.classIndex = classIds[i];
+        detection.confidence = scores[i];
+        detection.trackId = trackIds[i];
+        detection.box_width = boxes[b + 2] - boxes[b];
+        detection.box_height = boxes[b + 3] - boxes[b + 1];
+        detection.box_x = boxes[b] + detection.box_width / 2;
+        detection.box_y = boxes[b + 1] + detection.box_height / 2;
+        return detection;
+    }
+}
@@ -0,0 +1,146 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Lớp DetectionEngine là phần không phụ thuộc nền tảng của bộ phát hiện: tiền xử lý letterbox vào bộ đệm đầu vào,
+// chạy InferenceBackend, giải mã tensor đầu ra và NMS. Trên Android backend là YOLOModel (TFLite),
+// trên JVM có thể dùng ReplayBackend để chạy toàn bộ phần sau suy luận trong unit test.
+public class DetectionEngine {
+    public static final float DEFAULT_CONFIDENCE_THRESHOLD = 0.5f;
+
+    private final InferenceBackend backend;
+    private final int preprocessThreads;
+    private int inputImageSize; // Kích thước (cạnh) đầu vào hiện tại của mô hình
+
+    private final Letterbox letterbox = new Letterbox(); // Tham số letterbox của frame hiện tại
+
+    // Bộ đệm đầu vào/đầu ra (direct) và bộ giải mã được cấp phát một lần, dùng lại cho mọi frame
+    // (chỉ cấp phát lại khi kích thước đầu vào thay đổi)
+    private ByteBuffer inputBuffer;
+    private LetterboxPreprocessor preprocessor;
+    private ByteBuffer outputBuffer;
+    private YOLOOutputDecoder outputDecoder;
+    private int numClasses;
+    private DetectionBuffer candidates; // Các box vượt ngưỡng, chưa qua NMS
+
+    private final LatencyMetrics metrics = LatencyMetrics.GLOBAL; // Đo thời gian từng giai đoạn
+
+    // Ngưỡng độ tin cậy khi giải mã (đánh giá mAP dùng ngưỡng thấp, ví dụ 0.001)
+    public volatile float confidenceThreshold = DEFAULT_CONFIDENCE_THRESHOLD;
+    // Lớp được bật và ngưỡng theo lớp; khi khác null được dùng thay confidenceThreshold
+    // (phải có cùng số lớp với mô hình, nếu không detect() ném IllegalStateException)
+    public volatile DetectorConfig config;
+
+    // Bộ NMS: IoU 0.5, chỉ loại bỏ chồng lắp trong cùng một lớp, tối đa 300 box
+    public final NonMaxSuppression nms = new NonMaxSuppression(0.5f, false);
+
+    // preprocessThreads: số luồng tiền xử lý (chia ảnh theo dải hàng)
+    public DetectionEngine(InferenceBackend backend, int preprocessThreads) {
+        this.backend = backend;
+        this.preprocessThreads = preprocessThreads;
+        allocateBuffers();
+    }
+
+    // Cấp phát bộ đệm theo kích thước đầu vào/đầu ra hiện tại của backend
+    private void allocateBuffers() {
+        int[] inputShape = backend.getInputShape();
+        int[] outputShape = backend.getOutputShape();
+        inputImageSize = inputShape[1];
+
+        // Đầu vào [1][size][size][3] theo kiểu dữ liệu của mô hình (FLOAT32 chuẩn hoá [0, 1] hoặc lượng tử hoá)
+        TensorSpec inputSpec = backend.getInputSpec();
+        inputBuffer = ByteBuffer.allocateDirect(inputSpec.bytesPerElement() * inputImageSize * inputImageSize * 3)
+                .order(ByteOrder.nativeOrder());
+        preprocessor = new LetterboxPreprocessor(inputBuffer, inputImageSize, inputImageSize, inputSpec, preprocessThreads);
+
+        // Số anchor đổi theo kích thước đầu vào (ví dụ: 8400 ở 640, 2100 ở 320), box luôn được quy đổi
+        // về ảnh gốc theo letterbox của kích thước hiện tại
+        int numChannels = outputShape[1]; // 4 + số lớp
+        int numAnchors = outputShape[2];  // Số hộp dự đoán (ví dụ: 8400)
+        TensorSpec outputSpec = backend.getOutputSpec();
+        outputBuffer = ByteBuffer.allocateDirect(outputSpec.bytesPerElement() * numChannels * numAnchors)
+                .order(ByteOrder.nativeOrder());
+        outputDecoder = new YOLOOutputDecoder(numChannels, numAnchors, outputSpec);
+        numClasses = numChannels - 4;
+        candidates = new DetectionBuffer(numAnchors);
+    }
+
+    // Tiền xử lý vùng [x, x + width) x [y, y + height) của ảnh ARGB có stride pixel mỗi hàng
+    public void preprocessArgb(int[] pixels, int stride, int x, int y, int width, int height) {
+        long start = System.nanoTime();
+        preprocessor.processArgb(pixels, stride, x, y, width, height, letterbox);
+        metrics.lap(LatencyMetrics.PREPROCESS, start);
+    }
+
+    // Như preprocessArgb nhưng không ghi thời gian PREPROCESS: dùng cho các tile của một frame,
+    // caller (TiledDetector) đo tiền xử lý một lần cho cả frame
+    public void preprocessTile(int[] pixels, int stride, int x, int y, int width, int height) {
+        preprocessor.processArgb(pixels, stride, x, y, width, height, letterbox);
+    }
+
+    // Tiền xử lý frame YUV_420_888 (các plane của camera), xoay rotationDegrees (0/90/180/270)
+    public void preprocessYuv(ByteBuffer y, int yRowStride, int yPixelStride,
+                              ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                              int width, int height, int rotationDegrees) {
+        long start = System.nanoTime();
+        preprocessor.processYuv(y, yRowStride, yPixelStride, u, v, uvRowStride, uvPixelStride,
+                width, height, rotationDegrees, letterbox);
+        metrics.lap(LatencyMetrics.PREPROCESS, start);
+    }
+
+    // Chạy mô hình trên bộ đệm đầu vào đã tiền xử lý, ghi kết quả (đã qua NMS, điểm giảm dần) vào out
+    public void detect(DetectionBuffer out) {
+        detectCandidates(candidates);
+        long start = System.nanoTime();
+        nms.run(candidates, out);
+        metrics.lap(LatencyMetrics.NMS, start);
+    }
+
+    // Chạy mô hình trên bộ đệm đầu vào đã tiền xử lý và giải mã các box vượt ngưỡng (chưa qua NMS) vào out
+    public void detectCandidates(DetectionBuffer out) {
+        // Chạy mô hình YOLO, kết quả được ghi thẳng vào bộ đệm đầu ra đã cấp phát sẵn
+        long start = System.nanoTime();
+        inputBuffer.rewind();
+        outputBuffer.rewind();
+        backend.run(inputBuffer, outputBuffer);
+        start = metrics.lap(LatencyMetrics.INFERENCE, start);
+
+        // Giải mã kết quả đầu ra vào bộ đệm detection, box được đổi về toạ độ ảnh gốc theo letterbox
+        DetectorConfig current = config;
+        if (current != null) {
+            if (current.numClasses != numClasses) {
+                throw new IllegalStateException("DetectorConfig has " + current.numClasses
+                        + " classes but the model outputs " + numClasses);
+            }
+            outputDecoder.decode(outputBuffer, current, letterbox, out);
+        } else {
+            outputDecoder.decode(outputBuffer, confidenceThreshold, letterbox, out);
+        }
+        metrics.lap(LatencyMetrics.DECODE, start);
+    }
+
+    // Kích thước (cạnh) đầu vào của mô hình
+    public int getInputImageSize() {
+        return inputImageSize;
+    }
+
+    // Đổi kích thước đầu vào, bộ đệm chỉ được cấp phát lại khi kích thước thay đổi.
+    // Không gọi khi đang có suy luận. Trả về false nếu backend không hỗ trợ kích thước size
+    public boolean setInputImageSize(int size) {
+        if (size == inputImageSize) {
+            return true;
+        }
+        if (!backend.resizeInput(size)) {
+            return false;
+        }
+        preprocessor.close();
+        allocateBuffers();
+        return true;
+    }
+
+    // Giải phóng thread pool tiền xử lý (backend do caller giữ)
+    public void close() {
+        preprocessor.close();
+    }
+}
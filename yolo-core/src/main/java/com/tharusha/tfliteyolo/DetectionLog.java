@@ -0,0 +1,394 @@
+package com.tharusha.tfliteyolo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp DetectionLog lưu kết quả phát hiện lâu dài (cho kiểm tra / audit) dưới dạng log nhị phân chỉ ghi thêm.
+// append() chỉ chép các detection vào một ring buffer trong bộ nhớ rồi trả về ngay (ring đầy thì bỏ frame và đếm
+// vào droppedRecords, không bao giờ chờ đĩa); một luồng nền gom mọi bản ghi đang chờ, chép vào segment được
+// memory-map và commit cả nhóm một lần (cập nhật số bản ghi trong header + force) mỗi commitIntervalMs.
+// Mỗi segment là một file <số thứ tự>.ydl kích thước cố định; đầy thì chuyển sang segment mới, các segment cũ nhất
+// bị xoá khi vượt maxSegments. Chỉ mục thưa (mỗi BLOCK_RECORDS bản ghi: thời điểm nhỏ / lớn nhất và số bản ghi
+// theo lớp) cho phép truy vấn theo khoảng thời gian và đếm theo lớp mà chỉ đọc các block nằm ở biên khoảng.
+public class DetectionLog {
+    private static final int MAGIC = 0x59444c47; // "YDLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;  // magic, version, recordBytes, số bản ghi đã commit
+    private static final String SUFFIX = ".ydl";
+
+    // Bản ghi: timestamp (long), frameId (long), classId (int), score (float), left/top/right/bottom (float), trackId (int)
+    public static final int RECORD_BYTES = 44;
+    public static final int BLOCK_RECORDS = 256; // Số bản ghi mỗi mục của chỉ mục thưa
+
+    public static class Options {
+        public int segmentBytes = 16 * 1024 * 1024; // Kích thước mỗi file segment
+        public int maxSegments = 32;                // Giữ tối đa bấy nhiêu segment (segment cũ nhất bị xoá)
+        public int bufferRecords = 8192;            // Sức chứa ring buffer (luỹ thừa của 2)
+        public long commitIntervalMs = 200;         // Chu kỳ group commit
+    }
+
+    // Nhận từng bản ghi của truy vấn, theo thứ tự ghi
+    public interface Visitor {
+        void visit(long timestamp, long frameId, int classId, float score,
+                   float left, float top, float right, float bottom, int trackId);
+    }
+
+    // Một file segment và chỉ mục thưa của nó
+    private static class Segment {
+        final File file;
+        final long sequence;
+        final MappedByteBuffer buffer;
+        final int capacity; // Số bản ghi tối đa
+        int count;          // Số bản ghi đã ghi (chỉ tăng, khoá bởi DetectionLog)
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        int blockCount;
+        long[] blockMin = new long[16];
+        long[] blockMax = new long[16];
+        int[][] blockClassCounts = new int[16][];
+
+        Segment(File file, long sequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.buffer = buffer;
+            this.capacity = (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+        }
+
+        // Cập nhật chỉ mục cho bản ghi thứ record
+        void index(int record, long timestamp, int classId) {
+            int block = record / BLOCK_RECORDS;
+            if (block == blockCount) {
+                if (block == blockMin.length) {
+                    blockMin = Arrays.copyOf(blockMin, block * 2);
+                    blockMax = Arrays.copyOf(blockMax, block * 2);
+                    blockClassCounts = Arrays.copyOf(blockClassCounts, block * 2);
+                }
+                blockMin[block] = Long.MAX_VALUE;
+                blockMax[block] = Long.MIN_VALUE;
+                blockClassCounts[block] = new int[classId + 1];
+                blockCount++;
+            }
+            blockMin[block] = Math.min(blockMin[block], timestamp);
+            blockMax[block] = Math.max(blockMax[block], timestamp);
+            int[] counts = blockClassCounts[block];
+            if (classId >= counts.length) {
+                counts = Arrays.copyOf(counts, classId + 1);
+                blockClassCounts[block] = counts;
+            }
+            counts[classId]++;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+
+        int offset(int record) {
+            return HEADER_BYTES + record * RECORD_BYTES;
+        }
+    }
+
+    private final File directory;
+    private final Options options;
+    private final List<Segment> segments = new ArrayList<>(); // Tăng dần theo sequence, khoá bởi this
+    private Segment active;
+
+    // Ring buffer: luồng gọi append() ghi ở head, luồng ghi nền đọc ở tail
+    private final ByteBuffer ring;
+    private final int ringMask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final Object producerLock = new Object(); // Chỉ bao phần chép vào ring, không bao giờ chờ đĩa
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public DetectionLog(File directory, Options options) throws IOException {
+        if (Integer.bitCount(options.bufferRecords) != 1) {
+            throw new IllegalArgumentException("bufferRecords must be a power of two: " + options.bufferRecords);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.options = options;
+        this.ring = ByteBuffer.allocate(options.bufferRecords * RECORD_BYTES);
+        this.ringMask = options.bufferRecords - 1;
+        openSegments();
+
+        writer = new Thread(this::writeLoop, "DetectionLog");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Ghi các detection của một frame; trả về false nếu ring buffer không đủ chỗ (frame bị bỏ, không chờ)
+    public boolean append(long timestamp, long frameId, DetectionBuffer detections) {
+        int n = detections.count;
+        if (n == 0) {
+            return true;
+        }
+        if (closed) {
+            droppedRecords.addAndGet(n);
+            return false;
+        }
+        long used;
+        synchronized (producerLock) {
+            long h = head.get();
+            if (n > ring.capacity() / RECORD_BYTES - (h - tail.get())) {
+                droppedRecords.addAndGet(n);
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                int p = (int) ((h + i) & ringMask) * RECORD_BYTES;
+                int b = i * 4;
+                ring.putLong(p, timestamp);
+                ring.putLong(p + 8, frameId);
+                ring.putInt(p + 16, detections.classIds[i]);
+                ring.putFloat(p + 20, detections.scores[i]);
+                ring.putFloat(p + 24, detections.boxes[b]);
+                ring.putFloat(p + 28, detections.boxes[b + 1]);
+                ring.putFloat(p + 32, detections.boxes[b + 2]);
+                ring.putFloat(p + 36, detections.boxes[b + 3]);
+                ring.putInt(p + 40, detections.trackIds[i]);
+            }
+            head.set(h + n); // Ghi volatile: công bố các bản ghi cho luồng ghi nền
+            used = h + n - tail.get();
+        }
+        // Ring đã đầy quá nửa: commit sớm thay vì chờ hết chu kỳ
+        if (used > options.bufferRecords / 2) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    // Chờ tới khi mọi bản ghi đã append trước lời gọi này được commit
+    public void flush() {
+        long target = head.get();
+        while (tail.get() < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, 1_000_000L);
+        }
+    }
+
+    // Commit các bản ghi còn lại rồi dừng luồng ghi
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    // Tổng số bản ghi đã commit trong các segment còn giữ
+    public synchronized long getRecordCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    // Số bản ghi có timestamp trong [from, to)
+    public synchronized long count(long from, long to) {
+        long total = 0;
+        for (long count : countByClass(from, to)) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Số bản ghi có timestamp trong [from, to) theo từng lớp (phần tử thứ classId).
+    // Block nằm trọn trong khoảng được cộng từ chỉ mục, chỉ các block ở biên khoảng được đọc từ file
+    public synchronized long[] countByClass(long from, long to) {
+        long[] counts = new long[0];
+        for (Segment segment : segments) {
+            if (segment.count == 0 || segment.maxTimestamp < from || segment.minTimestamp >= to) {
+                continue;
+            }
+            for (int block = 0; block < segment.blockCount; block++) {
+                if (segment.blockMax[block] < from || segment.blockMin[block] >= to) {
+                    continue;
+                }
+                if (segment.blockMin[block] >= from && segment.blockMax[block] < to) {
+                    int[] blockCounts = segment.blockClassCounts[block];
+                    if (blockCounts.length > counts.length) {
+                        counts = Arrays.copyOf(counts, blockCounts.length);
+                    }
+                    for (int c = 0; c < blockCounts.length; c++) {
+                        counts[c] += blockCounts[c];
+                    }
+                    continue;
+                }
+                int end = Math.min(segment.count, (block + 1) * BLOCK_RECORDS);
+                for (int record = block * BLOCK_RECORDS; record < end; record++) {
+                    int p = segment.offset(record);
+                    long timestamp = segment.buffer.getLong(p);
+                    if (timestamp >= from && timestamp < to) {
+                        int classId = segment.buffer.getInt(p + 16);
+                        if (classId >= counts.length) {
+                            counts = Arrays.copyOf(counts, classId + 1);
+                        }
+                        counts[classId]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    // Duyệt các bản ghi có timestamp trong [from, to), bỏ qua các block nằm ngoài khoảng
+    public synchronized void query(long from, long to, Visitor visitor) {
+        for (Segment segment : segments) {
+            if (segment.count == 0 || segment.maxTimestamp < from || segment.minTimestamp >= to) {
+                continue;
+            }
+            ByteBuffer buffer = segment.buffer;
+            for (int block = 0; block < segment.blockCount; block++) {
+                if (segment.blockMax[block] < from || segment.blockMin[block] >= to) {
+                    continue;
+                }
+                int end = Math.min(segment.count, (block + 1) * BLOCK_RECORDS);
+                for (int record = block * BLOCK_RECORDS; record < end; record++) {
+                    int p = segment.offset(record);
+                    long timestamp = buffer.getLong(p);
+                    if (timestamp < from || timestamp >= to) {
+                        continue;
+                    }
+                    visitor.visit(timestamp, buffer.getLong(p + 8), buffer.getInt(p + 16), buffer.getFloat(p + 20),
+                            buffer.getFloat(p + 24), buffer.getFloat(p + 28), buffer.getFloat(p + 32),
+                            buffer.getFloat(p + 36), buffer.getInt(p + 40));
+                }
+            }
+        }
+    }
+
+    // Luồng ghi nền: mỗi chu kỳ (hoặc khi ring đầy quá nửa) gom mọi bản ghi đang chờ và commit một lần
+    private void writeLoop() {
+        long intervalNanos = options.commitIntervalMs * 1_000_000L;
+        while (true) {
+            boolean last = closed;
+            long h = head.get();
+            long t = tail.get();
+            if (h > t) {
+                droppedRecords.addAndGet(writeBatch(t, h));
+                tail.set(h);
+            }
+            if (last) {
+                return;
+            }
+            LockSupport.parkNanos(this, intervalNanos);
+        }
+    }
+
+    // Chép các bản ghi [from, to) của ring vào segment rồi commit; trả về số bản ghi không ghi được
+    // (khi lỗi giữa chừng, các bản ghi đã chép vẫn được giữ và được commit ở lần sau)
+    private synchronized long writeBatch(long from, long to) {
+        byte[] records = ring.array();
+        long r = from;
+        try {
+            for (; r < to; r++) {
+                if (active.count == active.capacity) {
+                    commit(active);
+                    roll();
+                }
+                int p = (int) (r & ringMask) * RECORD_BYTES;
+                int record = active.count;
+                ByteBuffer target = active.buffer.duplicate();
+                target.position(active.offset(record));
+                target.put(records, p, RECORD_BYTES);
+                active.index(record, ring.getLong(p), ring.getInt(p + 16));
+                active.count++;
+            }
+            commit(active);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        return to - r;
+    }
+
+    // Ghi số bản ghi vào header rồi đẩy trang đã sửa xuống đĩa: bản ghi chỉ được tính sau khi header được cập nhật
+    private static void commit(Segment segment) {
+        segment.buffer.putInt(12, segment.count);
+        segment.buffer.force();
+    }
+
+    // Tạo segment mới, xoá segment cũ nhất nếu vượt maxSegments
+    private void roll() throws IOException {
+        long sequence = active != null ? active.sequence + 1 : 0;
+        File file = new File(directory, String.format(Locale.US, "%016d%s", sequence, SUFFIX));
+        MappedByteBuffer buffer = map(file, options.segmentBytes);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_BYTES);
+        buffer.putInt(12, 0);
+        active = new Segment(file, sequence, buffer);
+        segments.add(active);
+        while (segments.size() > Math.max(1, options.maxSegments)) {
+            Segment oldest = segments.remove(0);
+            if (!oldest.file.delete()) {
+                new IOException("Cannot delete " + oldest.file).printStackTrace();
+            }
+        }
+    }
+
+    // Mở các segment có sẵn và dựng lại chỉ mục thưa (đọc tuần tự một lần khi khởi động)
+    private void openSegments() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                String name = file.getName();
+                long sequence;
+                try {
+                    sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                MappedByteBuffer buffer = map(file, (int) file.length());
+                if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || buffer.getInt(8) != RECORD_BYTES) {
+                    new IOException("Skipping invalid detection log segment " + file).printStackTrace();
+                    continue;
+                }
+                Segment segment = new Segment(file, sequence, buffer);
+                segment.count = Math.min(buffer.getInt(12), segment.capacity);
+                for (int record = 0; record < segment.count; record++) {
+                    int p = segment.offset(record);
+                    segment.index(record, buffer.getLong(p), buffer.getInt(p + 16));
+                }
+                segments.add(segment);
+                active = segment;
+            }
+        }
+        if (active == null || active.count == active.capacity) {
+            roll();
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        // Vùng map vẫn hợp lệ sau khi đóng file
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp DetectionPublisher phát kết quả phát hiện từ luồng suy luận tới nhiều consumer (overlay, log, luật cảnh báo,
+// bộ đếm...) qua một ring buffer cấp phát sẵn kiểu Disruptor: một producer, nhiều consumer, không khoá.
+// publish() chép kết quả vào slot kế tiếp rồi tăng cursor, không bao giờ chờ consumer. Mỗi consumer có luồng và
+// cursor riêng, đọc slot theo kiểu seqlock (chép ra bản sao riêng rồi kiểm tra slot không bị ghi đè trong lúc chép),
+// nên consumer chậm không làm chậm suy luận hay các consumer khác.
+public class DetectionPublisher {
+    // Cách consumer theo kịp producer
+    public enum Mode {
+        CONFLATE,    // Chỉ nhận frame mới nhất, bỏ qua các frame ở giữa (overlay, hiển thị)
+        BACKPRESSURE // Nhận mọi frame theo thứ tự; tụt sau quá sức chứa ring thì mất các frame cũ nhất (đếm overruns)
+    }
+
+    // Một frame kết quả. Consumer nhận bản sao riêng, chỉ hợp lệ trong lời gọi onFrame
+    public static class Frame {
+        public long sequence;  // Số thứ tự trong publisher (tăng liên tục từ 0)
+        public long timestamp; // Thời điểm của frame (do producer chọn, ví dụ timestamp camera)
+        public long frameId;
+        public int width, height; // Kích thước frame nguồn (hệ toạ độ của box)
+        public final DetectionBuffer detections;
+
+        Frame(int capacity) {
+            detections = new DetectionBuffer(capacity);
+        }
+    }
+
+    public interface Handler {
+        void onFrame(Frame frame);
+    }
+
+    // Slot của ring. version = 2 * sequence + 1 khi đang ghi, 2 * sequence + 2 khi đã ghi xong
+    private static class Slot {
+        volatile long version;
+        final Frame frame;
+
+        Slot(int capacity) {
+            frame = new Frame(capacity);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1); // Sequence của frame mới nhất đã phát
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // ringSize: số slot (luỹ thừa của 2), maxDetections: số detection tối đa mỗi frame
+    public DetectionPublisher(int ringSize, int maxDetections) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ringSize must be a power of two: " + ringSize);
+        }
+        slots = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new Slot(maxDetections);
+        }
+        mask = ringSize - 1;
+    }
+
+    // Phát một frame. Chỉ gọi từ một luồng (producer duy nhất); không cấp phát, không chờ
+    public void publish(long timestamp, long frameId, int width, int height, DetectionBuffer detections) {
+        long sequence = cursor.get() + 1;
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.version = 2 * sequence + 1;
+        // Đọc volatile sau khi ghi: các lệnh ghi dữ liệu bên dưới không bị đưa lên trước khi slot được đánh dấu đang ghi
+        if (slot.version != 2 * sequence + 1) {
+            throw new IllegalStateException("Concurrent publish");
+        }
+        Frame frame = slot.frame;
+        frame.sequence = sequence;
+        frame.timestamp = timestamp;
+        frame.frameId = frameId;
+        frame.width = width;
+        frame.height = height;
+        frame.detections.copyFrom(detections);
+        slot.version = 2 * sequence + 2;
+        cursor.set(sequence);
+
+        for (Subscription subscription : subscriptions) {
+            Thread waiter = subscription.waiter;
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    // Sequence của frame mới nhất đã phát (-1 nếu chưa có)
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    // Đăng ký consumer chạy trên luồng daemon riêng tên name, nhận các frame phát sau thời điểm đăng ký
+    public Subscription subscribe(String name, Mode mode, Handler handler) {
+        Subscription subscription = new Subscription(mode, handler, slots[0].frame.detections.capacity);
+        subscription.next = cursor.get() + 1;
+        subscriptions.add(subscription);
+        Thread thread = new Thread(subscription::run, name);
+        thread.setDaemon(true);
+        subscription.thread = thread;
+        thread.start();
+        return subscription;
+    }
+
+    // Dừng mọi consumer
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    // Chép slot chứa frame sequence vào out; trả về false nếu slot đã bị ghi đè (trước hoặc trong lúc chép)
+    private boolean read(long sequence, Frame out, Subscription reader) {
+        Slot slot = slots[(int) (sequence & mask)];
+        long version = slot.version;
+        if (version != 2 * sequence + 2) {
+            return false;
+        }
+        Frame frame = slot.frame;
+        out.sequence = frame.sequence;
+        out.timestamp = frame.timestamp;
+        out.frameId = frame.frameId;
+        out.width = frame.width;
+        out.height = frame.height;
+        out.detections.copyFrom(frame.detections);
+        // Ghi volatile rồi đọc lại version: các lệnh đọc dữ liệu ở trên không bị dời xuống sau lần kiểm tra
+        reader.fence = sequence;
+        return slot.version == version;
+    }
+
+    // Một consumer: cursor riêng, bản sao frame riêng, luồng riêng
+    public class Subscription {
+        public final Mode mode;
+        private final Handler handler;
+        private final Frame frame;
+        private long next;             // Sequence sẽ đọc tiếp (chỉ luồng consumer dùng)
+        private volatile long consumed = -1;
+        private final AtomicLong skipped = new AtomicLong();  // CONFLATE: frame bị gộp bỏ
+        private final AtomicLong overruns = new AtomicLong(); // BACKPRESSURE: frame bị ghi đè trước khi kịp đọc
+        volatile long fence;
+        volatile Thread waiter;
+        private volatile boolean closed;
+        private Thread thread;
+
+        Subscription(Mode mode, Handler handler, int maxDetections) {
+            this.mode = mode;
+            this.handler = handler;
+            this.frame = new Frame(maxDetections);
+        }
+
+        // Sequence của frame đã xử lý gần nhất
+        public long getConsumed() {
+            return consumed;
+        }
+
+        // Số frame consumer còn chậm hơn producer
+        public long getLag() {
+            return cursor.get() - consumed;
+        }
+
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        public long getOverruns() {
+            return overruns.get();
+        }
+
+        // Dừng consumer (frame đang xử lý được xử lý xong)
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        private void run() {
+            while (!closed) {
+                long available = cursor.get();
+                if (available < next) {
+                    waiter = Thread.currentThread();
+                    if (cursor.get() < next && !closed) {
+                        LockSupport.park(this);
+                    }
+                    waiter = null;
+                    continue;
+                }
+                if (mode == Mode.CONFLATE) {
+                    skipped.addAndGet(available - next);
+                    next = available;
+                } else if (available - next >= slots.length) {
+                    // Tụt sau cả ring: các frame cũ nhất đã bị ghi đè, tiếp tục từ frame cũ nhất còn lại
+                    long resume = available - slots.length + 1;
+                    overruns.addAndGet(resume - next);
+                    next = resume;
+                }
+                if (!read(next, frame, this)) {
+                    // Slot bị ghi đè trong lúc chép: CONFLATE đọc lại frame mới nhất, BACKPRESSURE bỏ frame này
+                    if (mode == Mode.BACKPRESSURE) {
+                        overruns.incrementAndGet();
+                        next++;
+                    }
+                    continue;
+                }
+                try {
+                    handler.onFrame(frame);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                consumed = next;
+                next++;
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp DetectionService phục vụ nhiều luồng hình ảnh (camera, video) cùng lúc từ một nhóm DetectionEngine cố định,
+// mỗi engine có interpreter riêng. YOLODetector / DetectionEngine giữ trạng thái theo frame (letterbox, bộ đệm)
+// nên không thể gọi song song; ở đây mỗi lần gọi mượn riêng một engine trong suốt tiền xử lý -> suy luận ->
+// giải mã, nên các lần gọi không chia sẻ trạng thái và thông lượng tăng theo số engine.
+// Khi engine không đủ, các lần gọi đang chờ được cấp lần lượt theo vòng tròn giữa các luồng (mỗi luồng một lượt),
+// nên một luồng gửi nhiều frame không làm các luồng khác phải chờ. maxConcurrent giới hạn số suy luận chạy cùng lúc
+// trên toàn dịch vụ (thường: số lõi / số luồng của mỗi interpreter).
+public class DetectionService implements AutoCloseable {
+    // Dữ liệu đầu vào của một lần gọi: ghi frame vào bộ đệm đầu vào của engine được cấp
+    // (engine.preprocessArgb / engine.preprocessYuv). Chạy trên luồng gọi, trong khi giữ engine
+    public interface Input {
+        void preprocess(DetectionEngine engine);
+    }
+
+    // Một luồng hình ảnh. Có thể gọi detect() từ nhiều luồng Java cho cùng một Stream
+    public class Stream implements AutoCloseable {
+        public final String name;
+        // Lớp được bật / ngưỡng riêng của luồng này (null: cấu hình của engine lúc tạo dịch vụ)
+        public volatile DetectorConfig config;
+
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>(); // Các lần gọi đang chờ engine
+        private boolean queued;                                      // Đang nằm trong hàng vòng tròn
+        private boolean closed;
+        private final AtomicLong frames = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+
+        private Stream(String name) {
+            this.name = name;
+        }
+
+        // Phát hiện trên ảnh ARGB width x height (stride = width), ghi kết quả (đã qua NMS) vào out.
+        // Chặn cho tới khi có engine; InterruptedException nếu luồng gọi bị ngắt khi đang chờ
+        public void detect(int[] pixels, int width, int height, DetectionBuffer out) throws InterruptedException {
+            detect(engine -> engine.preprocessArgb(pixels, width, 0, 0, width, height), out);
+        }
+
+        public void detect(Input input, DetectionBuffer out) throws InterruptedException {
+            long start = System.nanoTime();
+            DetectionEngine engine = acquire(this);
+            waitNanos.addAndGet(System.nanoTime() - start);
+            try {
+                DetectorConfig streamConfig = config;
+                engine.config = streamConfig != null ? streamConfig : engineConfigs[indexOf(engine)];
+                input.preprocess(engine);
+                engine.detect(out);
+                frames.incrementAndGet();
+            } finally {
+                release(engine);
+            }
+        }
+
+        // Số frame đã xử lý
+        public long getFrameCount() {
+            return frames.get();
+        }
+
+        // Tổng thời gian các lần gọi phải chờ engine
+        public long getWaitNanos() {
+            return waitNanos.get();
+        }
+
+        // Huỷ đăng ký luồng; các lần gọi đang chờ nhận IllegalStateException
+        @Override
+        public void close() {
+            synchronized (lock) {
+                closed = true;
+                streams.remove(this);
+                ready.remove(this);
+                queued = false;
+                waiting -= waiters.size();
+                for (Waiter waiter : waiters) {
+                    LockSupport.unpark(waiter.thread);
+                }
+                waiters.clear();
+            }
+        }
+    }
+
+    // Một lần gọi đang chờ: engine được gán khi tới lượt
+    private static class Waiter {
+        final Thread thread = Thread.currentThread();
+        DetectionEngine engine;
+    }
+
+    private final DetectionEngine[] engines;
+    private final DetectorConfig[] engineConfigs; // Cấu hình ban đầu của từng engine
+    public final int maxConcurrent;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<DetectionEngine> idle = new ArrayDeque<>();
+    private final ArrayDeque<Stream> ready = new ArrayDeque<>(); // Các luồng có lần gọi đang chờ, theo lượt
+    private final List<Stream> streams = new ArrayList<>();
+    private int running;  // Số suy luận đang chạy
+    private int waiting;  // Số lần gọi đang chờ (mọi luồng)
+    private boolean closed;
+
+    // engines: mỗi engine một interpreter riêng (dịch vụ sở hữu và đóng chúng, backend do caller giữ).
+    // maxConcurrent: số suy luận tối đa cùng lúc (không vượt quá số engine)
+    public DetectionService(DetectionEngine[] engines, int maxConcurrent) {
+        this.engines = engines.clone();
+        this.engineConfigs = new DetectorConfig[engines.length];
+        for (int i = 0; i < engines.length; i++) {
+            engineConfigs[i] = engines[i].config;
+            idle.add(engines[i]);
+        }
+        this.maxConcurrent = Math.max(1, Math.min(engines.length, maxConcurrent));
+    }
+
+    // Giới hạn mặc định: mỗi lõi CPU một luồng suy luận, threadsPerEngine luồng cho mỗi interpreter
+    public static int defaultMaxConcurrent(int threadsPerEngine) {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, threadsPerEngine));
+    }
+
+    public Stream openStream(String name) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("DetectionService is closed");
+            }
+            Stream stream = new Stream(name);
+            streams.add(stream);
+            return stream;
+        }
+    }
+
+    public int getEngineCount() {
+        return engines.length;
+    }
+
+    // Số lần gọi đang chờ engine (mọi luồng)
+    public int getWaitingCount() {
+        synchronized (lock) {
+            return waiting;
+        }
+    }
+
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    // Đợi lượt của stream rồi lấy một engine rảnh
+    private DetectionEngine acquire(Stream stream) throws InterruptedException {
+        Waiter waiter = new Waiter();
+        synchronized (lock) {
+            if (closed || stream.closed) {
+                throw new IllegalStateException("Stream " + stream.name + " is closed");
+            }
+            stream.waiters.add(waiter);
+            waiting++;
+            if (!stream.queued) {
+                stream.queued = true;
+                ready.add(stream);
+            }
+            dispatch();
+        }
+        while (true) {
+            synchronized (lock) {
+                if (waiter.engine != null) {
+                    return waiter.engine;
+                }
+                if (closed || stream.closed || Thread.interrupted()) {
+                    // Bỏ lượt chờ (engine chưa được gán nên không cần trả lại)
+                    if (stream.waiters.remove(waiter)) {
+                        waiting--;
+                    }
+                    if (closed || stream.closed) {
+                        throw new IllegalStateException("Stream " + stream.name + " is closed");
+                    }
+                    throw new InterruptedException();
+                }
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    private void release(DetectionEngine engine) {
+        synchronized (lock) {
+            running--;
+            idle.add(engine);
+            dispatch();
+            if (closed && running == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Cấp engine rảnh cho lần gọi đầu tiên của luồng kế tiếp trong hàng vòng tròn (gọi khi giữ lock)
+    private void dispatch() {
+        while (running < maxConcurrent && !idle.isEmpty() && !ready.isEmpty()) {
+            Stream stream = ready.poll();
+            Waiter waiter = stream.waiters.poll();
+            if (!stream.waiters.isEmpty()) {
+                ready.add(stream); // Về cuối hàng: các luồng khác được cấp trước lần gọi kế tiếp của luồng này
+            } else {
+                stream.queued = false;
+            }
+            if (waiter == null) {
+                continue;
+            }
+            waiting--;
+            running++;
+            waiter.engine = idle.poll();
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    private int indexOf(DetectionEngine engine) {
+        for (int i = 0; i < engines.length; i++) {
+            if (engines[i] == engine) return i;
+        }
+        return -1;
+    }
+
+    // Đóng mọi luồng, đợi các suy luận đang chạy xong rồi đóng các engine
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Stream stream : new ArrayList<>(streams)) {
+                stream.close();
+            }
+            boolean interrupted = false;
+            while (running > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (DetectionEngine engine : engines) {
+            engine.close();
+        }
+    }
+}
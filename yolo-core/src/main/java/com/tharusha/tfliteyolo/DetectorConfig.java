@@ -0,0 +1,122 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Lớp DetectorConfig chọn các lớp cần phát hiện và ngưỡng độ tin cậy riêng của từng lớp. Bộ giải mã chỉ đọc
+// channel của các lớp được bật, nên thời gian giải mã giảm theo số lớp bị tắt. Tên lớp được lấy sẵn vào mảng
+// labels một lần thay vì tra List trong mỗi detection. Đối tượng bất biến: with...() trả về cấu hình mới,
+// nên có thể đổi cấu hình cho detector đang chạy mà không cần khoá.
+public class DetectorConfig {
+    public final int numClasses;
+    public final String[] labels; // Tên lớp theo chỉ số ("" nếu không có tên)
+    private final int[] enabledClasses; // Các lớp được bật, tăng dần
+    private final float[] thresholds;   // Ngưỡng theo lớp (chỉ có nghĩa với lớp được bật)
+
+    // Mọi lớp được bật với cùng ngưỡng threshold; classes: tên lớp (có thể null)
+    public DetectorConfig(int numClasses, float threshold, List<String> classes) {
+        this.numClasses = numClasses;
+        this.labels = new String[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            labels[c] = classes != null && classes.size() > c ? classes.get(c) : "";
+        }
+        this.enabledClasses = new int[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            enabledClasses[c] = c;
+        }
+        this.thresholds = new float[numClasses];
+        Arrays.fill(thresholds, threshold);
+    }
+
+    private DetectorConfig(DetectorConfig source, int[] enabledClasses, float[] thresholds) {
+        this.numClasses = source.numClasses;
+        this.labels = source.labels;
+        this.enabledClasses = enabledClasses;
+        this.thresholds = thresholds;
+    }
+
+    // Chỉ bật các lớp classIds; IllegalArgumentException nếu có chỉ số ngoài [0, numClasses)
+    public DetectorConfig withClasses(int... classIds) {
+        boolean[] enabled = new boolean[numClasses];
+        int count = 0;
+        for (int classId : classIds) {
+            checkClass(classId);
+            if (!enabled[classId]) {
+                enabled[classId] = true;
+                count++;
+            }
+        }
+        int[] subset = new int[count];
+        for (int c = 0, i = 0; c < numClasses; c++) {
+            if (enabled[c]) subset[i++] = c;
+        }
+        return new DetectorConfig(this, subset, thresholds);
+    }
+
+    // Chỉ bật các lớp có tên trong names
+    public DetectorConfig withClassNames(String... names) {
+        int[] classIds = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            classIds[i] = indexOf(names[i]);
+            if (classIds[i] < 0) {
+                throw new IllegalArgumentException("Unknown class: " + names[i]);
+            }
+        }
+        return withClasses(classIds);
+    }
+
+    // Đặt ngưỡng riêng cho lớp classId; IllegalArgumentException nếu chỉ số ngoài [0, numClasses)
+    public DetectorConfig withThreshold(int classId, float threshold) {
+        checkClass(classId);
+        float[] next = thresholds.clone();
+        next[classId] = threshold;
+        return new DetectorConfig(this, enabledClasses, next);
+    }
+
+    public DetectorConfig withThreshold(String name, float threshold) {
+        int classId = indexOf(name);
+        if (classId < 0) {
+            throw new IllegalArgumentException("Unknown class: " + name);
+        }
+        return withThreshold(classId, threshold);
+    }
+
+    public int getEnabledCount() {
+        return enabledClasses.length;
+    }
+
+    // Lớp được bật thứ i (tăng dần)
+    public int getEnabledClass(int i) {
+        return enabledClasses[i];
+    }
+
+    public boolean isEnabled(int classId) {
+        return Arrays.binarySearch(enabledClasses, classId) >= 0;
+    }
+
+    public float getThreshold(int classId) {
+        return thresholds[classId];
+    }
+
+    // Ngưỡng nhỏ nhất trong các lớp được bật (Float.MAX_VALUE nếu không bật lớp nào)
+    public float getMinThreshold() {
+        float min = Float.MAX_VALUE;
+        for (int classId : enabledClasses) {
+            min = Math.min(min, thresholds[classId]);
+        }
+        return min;
+    }
+
+    private void checkClass(int classId) {
+        if (classId < 0 || classId >= numClasses) {
+            throw new IllegalArgumentException("Class " + classId + " out of range [0, " + numClasses + ")");
+        }
+    }
+
+    private int indexOf(String name) {
+        for (int c = 0; c < numClasses; c++) {
+            if (labels[c].equals(name)) return c;
+        }
+        return -1;
+    }
+}
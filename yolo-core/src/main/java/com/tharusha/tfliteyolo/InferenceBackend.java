@@ -0,0 +1,23 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+
+// Giao diện chạy mô hình YOLO, tách phần suy luận (TFLite trên Android, backend giả lập trên JVM)
+// khỏi tiền xử lý, giải mã và NMS của DetectionEngine
+public interface InferenceBackend {
+    // Shape đầu vào [1][size][size][3]
+    int[] getInputShape();
+
+    // Shape đầu ra [1][4 + số lớp][số anchor]
+    int[] getOutputShape();
+
+    TensorSpec getInputSpec();
+
+    TensorSpec getOutputSpec();
+
+    // Chạy một lần suy luận: input và output là bộ đệm direct đúng kích thước tensor, đặt ở vị trí 0
+    void run(ByteBuffer input, ByteBuffer output);
+
+    // Đổi kích thước đầu vào thành size x size (mô hình dynamic shape), false nếu không hỗ trợ
+    boolean resizeInput(int size);
+}
@@ -0,0 +1,64 @@
+package com.tharusha.tfliteyolo;
+
+// Lớp InferenceScheduler quyết định frame nào chạy YOLO, các frame còn lại dùng vị trí dự đoán của tracker.
+// Khoảng cách giữa hai lần suy luận thay đổi theo mức chuyển động của cảnh và thời gian suy luận đo được.
+public class InferenceScheduler {
+    public int maxInterval = 6;         // Tối đa số frame giữa hai lần suy luận khi cảnh gần như tĩnh
+    public float lowMotion = 0.1f;      // Chuyển động (kích thước box / giây) coi như tĩnh
+    public float highMotion = 1.5f;     // Chuyển động từ mức này trở lên: suy luận nhanh nhất có thể
+
+    private static final float SMOOTHING = 0.2f; // Hệ số làm mượt trung bình động (EWMA)
+
+    private float frameIntervalNanos;     // Khoảng thời gian trung bình giữa hai frame camera
+    private float inferenceLatencyNanos;  // Thời gian suy luận trung bình
+    private long lastFrameTimestamp = -1;
+    private int framesSinceInference = Integer.MAX_VALUE / 2;
+
+    // Gọi cho mỗi frame camera nhận được
+    public void onFrame(long timestampNanos) {
+        if (lastFrameTimestamp >= 0 && timestampNanos > lastFrameTimestamp) {
+            frameIntervalNanos = smooth(frameIntervalNanos, timestampNanos - lastFrameTimestamp);
+        }
+        lastFrameTimestamp = timestampNanos;
+        framesSinceInference++;
+    }
+
+    // Gọi khi một lần suy luận hoàn thành
+    public void onInferenceCompleted(long latencyNanos) {
+        inferenceLatencyNanos = smooth(inferenceLatencyNanos, latencyNanos);
+    }
+
+    public void onInferenceStarted() {
+        framesSinceInference = 0;
+    }
+
+    // Có nên chạy suy luận trên frame hiện tại không (motion: ObjectTracker.meanMotion())
+    public boolean shouldRunInference(float motion) {
+        return framesSinceInference >= currentInterval(motion);
+    }
+
+    // Số frame giữa hai lần suy luận: lớn khi cảnh tĩnh, 1 khi chuyển động nhanh,
+    // và không nhỏ hơn số frame mà một lần suy luận chiếm (không cố chạy nhanh hơn khả năng thiết bị)
+    public int currentInterval(float motion) {
+        int motionInterval;
+        if (motion >= highMotion) {
+            motionInterval = 1;
+        } else if (motion <= lowMotion) {
+            motionInterval = maxInterval;
+        } else {
+            float t = (motion - lowMotion) / (highMotion - lowMotion);
+            motionInterval = Math.round(maxInterval - t * (maxInterval - 1));
+        }
+        int latencyInterval = frameIntervalNanos > 0 ? (int) Math.ceil(inferenceLatencyNanos / frameIntervalNanos) : 1;
+        return Math.max(1, Math.max(motionInterval, latencyInterval));
+    }
+
+    public void reset() {
+        lastFrameTimestamp = -1;
+        framesSinceInference = Integer.MAX_VALUE / 2;
+    }
+
+    private static float smooth(float average, float sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -0,0 +1,181 @@
+package com.tharusha.tfliteyolo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lớp LatencyMetrics đo thời gian từng giai đoạn của pipeline phát hiện (lấy frame, tiền xử lý, suy luận,
+// giải mã, NMS, tracking, vẽ) bằng System.nanoTime() và LatencyHistogram. Ghi số liệu không khoá, không cấp phát
+// nên có thể bật cả trong bản release; chỉ báo cáo (overlay / xuất file) mới tạo chuỗi.
+public class LatencyMetrics {
+    // Các giai đoạn được đo
+    public static final int FRAME_GRAB = 0;     // Lấy frame: TextureView.getBitmap / chuyển YUV để hiển thị
+    public static final int PREPROCESS = 1;     // Resize + letterbox + chuẩn hoá vào tensor đầu vào
+    public static final int INFERENCE = 2;      // Interpreter.run
+    public static final int DECODE = 3;         // Giải mã tensor đầu ra
+    public static final int NMS = 4;            // Non-Max Suppression
+    public static final int TRACKING = 5;       // Cập nhật / dự đoán tracker
+    public static final int DRAW = 6;           // Vẽ bounding box
+    public static final int FRAME_TOTAL = 7;    // Toàn bộ xử lý một frame
+    public static final int FRAME_INTERVAL = 8; // Khoảng cách giữa hai frame được hiển thị (tính fps)
+    public static final String[] STAGE_NAMES = {
+            "frame_grab", "preprocess", "inference", "decode", "nms", "tracking", "draw", "frame_total", "frame_interval"
+    };
+
+    // Bộ số liệu dùng chung cho toàn ứng dụng
+    public static final LatencyMetrics GLOBAL = new LatencyMetrics();
+
+    public volatile boolean enabled = true;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong skippedInferences = new AtomicLong(); // Frame không đổi, dùng lại kết quả cũ
+    private final AtomicLong skippedTiles = new AtomicLong();      // Tile không đổi, dùng lại kết quả cũ của tile
+    private final AtomicLong lastFrameNanos = new AtomicLong();
+    private volatile int inputSize; // Kích thước đầu vào mô hình đang dùng (0: chưa biết)
+
+    public LatencyMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    // Ghi thời gian từ startNanos tới hiện tại cho giai đoạn stage, trả về thời điểm hiện tại
+    // để đo tiếp giai đoạn sau: t = metrics.lap(PREPROCESS, t); ...; t = metrics.lap(INFERENCE, t);
+    public long lap(int stage, long startNanos) {
+        long now = System.nanoTime();
+        if (enabled) {
+            histograms[stage].record(now - startNanos);
+        }
+        return now;
+    }
+
+    public void record(int stage, long nanos) {
+        if (enabled) {
+            histograms[stage].record(nanos);
+        }
+    }
+
+    // Đánh dấu một frame đã xử lý xong (dùng để tính fps)
+    public void frameCompleted() {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        long previous = lastFrameNanos.getAndSet(now);
+        if (previous != 0) {
+            histograms[FRAME_INTERVAL].record(now - previous);
+        }
+    }
+
+    // Bắt đầu một phiên mới (ví dụ: bật lại chế độ live): frame kế tiếp không tính khoảng cách tới frame
+    // cuối của phiên trước, nên thời gian nghỉ giữa hai phiên không làm giảm fps
+    public void restartFrameClock() {
+        lastFrameNanos.set(0);
+    }
+
+    // Số frame bị bỏ (ví dụ: LatestFrameHandoff.getDroppedFrames())
+    public void setDroppedFrames(long dropped) {
+        droppedFrames.set(dropped);
+    }
+
+    public void setInputSize(int size) {
+        inputSize = size;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public void inferenceSkipped() {
+        skippedInferences.incrementAndGet();
+    }
+
+    public void tilesSkipped(int count) {
+        skippedTiles.addAndGet(count);
+    }
+
+    public long getSkippedInferences() {
+        return skippedInferences.get();
+    }
+
+    public long getSkippedTiles() {
+        return skippedTiles.get();
+    }
+
+    public LatencyHistogram get(int stage) {
+        return histograms[stage];
+    }
+
+    // Số frame mỗi giây tính theo khoảng cách trung bình giữa các frame
+    public float getFps() {
+        long mean = histograms[FRAME_INTERVAL].getMean();
+        return mean > 0 ? 1e9f / mean : 0;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        droppedFrames.set(0);
+        skippedInferences.set(0);
+        skippedTiles.set(0);
+        lastFrameNanos.set(0);
+    }
+
+    // Bảng tóm tắt (mili giây) cho overlay
+    public String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "fps %.1f  dropped %d  input %d%n", getFps(), getDroppedFrames(), inputSize));
+        sb.append(String.format(Locale.US, "saved: inferences %d  tiles %d%n", getSkippedInferences(), getSkippedTiles()));
+        sb.append(String.format(Locale.US, "%-12s %6s %6s %6s %6s %6s%n", "stage", "n", "p50", "p90", "p99", "max"));
+        for (int i = 0; i < histograms.length; i++) {
+            if (i == FRAME_INTERVAL) continue;
+            LatencyHistogram h = histograms[i];
+            if (h.getCount() == 0) continue;
+            sb.append(String.format(Locale.US, "%-12s %6d %6.1f %6.1f %6.1f %6.1f%n", STAGE_NAMES[i], h.getCount(),
+                    toMillis(h.getPercentile(50)), toMillis(h.getPercentile(90)),
+                    toMillis(h.getPercentile(99)), toMillis(h.getMax())));
+        }
+        return sb.toString();
+    }
+
+    // Xuất số liệu dạng JSON (đơn vị nano giây)
+    public void writeJson(Writer writer) throws IOException {
+        writer.write(String.format(Locale.US,
+                "{\"fps\":%.2f,\"dropped_frames\":%d,\"input_size\":%d,\"skipped_inferences\":%d,\"skipped_tiles\":%d,"
+                        + "\"stages\":{",
+                getFps(), getDroppedFrames(), inputSize, getSkippedInferences(), getSkippedTiles()));
+        for (int i = 0; i < histograms.length; i++) {
+            LatencyHistogram h = histograms[i];
+            if (i > 0) writer.write(',');
+            writer.write(String.format(Locale.US,
+                    "\"%s\":{\"count\":%d,\"mean_ns\":%d,\"p50_ns\":%d,\"p90_ns\":%d,\"p99_ns\":%d,\"max_ns\":%d}",
+                    STAGE_NAMES[i], h.getCount(), h.getMean(), h.getPercentile(50), h.getPercentile(90),
+                    h.getPercentile(99), h.getMax()));
+        }
+        writer.write("}}\n");
+    }
+
+    // Xuất số liệu dạng CSV (đơn vị nano giây), mỗi giai đoạn một dòng
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("stage,count,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n");
+        for (int i = 0; i < histograms.length; i++) {
+            LatencyHistogram h = histograms[i];
+            writer.write(STAGE_NAMES[i] + "," + h.getCount() + "," + h.getMean() + "," + h.getPercentile(50) + ","
+                    + h.getPercentile(90) + "," + h.getPercentile(99) + "," + h.getMax() + "\n");
+        }
+        writer.write("fps," + String.format(Locale.US, "%.2f", getFps()) + ",,,,,\n");
+        writer.write("dropped_frames," + getDroppedFrames() + ",,,,,\n");
+        writer.write("input_size," + inputSize + ",,,,,\n");
+        writer.write("skipped_inferences," + getSkippedInferences() + ",,,,,\n");
+        writer.write("skipped_tiles," + getSkippedTiles() + ",,,,,\n");
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,50 @@
+package com.tharusha.tfliteyolo;
+
+// Tham số letterbox: ảnh gốc được thu nhỏ giữ nguyên tỉ lệ rồi đặt giữa đầu vào mô hình, phần thừa được đệm.
+// Dùng để đổi toạ độ box từ không gian đầu vào mô hình về lại ảnh gốc.
+public class Letterbox {
+    public int inputWidth;   // Kích thước đầu vào mô hình
+    public int inputHeight;
+    public int sourceWidth;  // Kích thước ảnh gốc (sau khi xoay)
+    public int sourceHeight;
+    public float scale;      // Tỉ lệ thu phóng ảnh gốc -> đầu vào mô hình
+    public int padX;         // Phần đệm bên trái (pixel đầu vào mô hình)
+    public int padY;         // Phần đệm phía trên
+    public int contentWidth; // Kích thước vùng ảnh thật trong đầu vào mô hình
+    public int contentHeight;
+
+    // Tính tham số letterbox cho ảnh sourceWidth x sourceHeight vào đầu vào inputWidth x inputHeight
+    public void set(int inputWidth, int inputHeight, int sourceWidth, int sourceHeight) {
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.scale = Math.min((float) inputWidth / sourceWidth, (float) inputHeight / sourceHeight);
+        this.contentWidth = Math.min(inputWidth, Math.round(sourceWidth * scale));
+        this.contentHeight = Math.min(inputHeight, Math.round(sourceHeight * scale));
+        this.padX = (inputWidth - contentWidth) / 2;
+        this.padY = (inputHeight - contentHeight) / 2;
+    }
+
+    // Đổi toạ độ x chuẩn hoá (0..1 theo đầu vào mô hình) về toạ độ ảnh gốc
+    public float toSourceX(float normalizedX) {
+        return (normalizedX * inputWidth - padX) / scale;
+    }
+
+    // Đổi toạ độ y chuẩn hoá (0..1 theo đầu vào mô hình) về toạ độ ảnh gốc
+    public float toSourceY(float normalizedY) {
+        return (normalizedY * inputHeight - padY) / scale;
+    }
+
+    public void copyFrom(Letterbox other) {
+        inputWidth = other.inputWidth;
+        inputHeight = other.inputHeight;
+        sourceWidth = other.sourceWidth;
+        sourceHeight = other.sourceHeight;
+        scale = other.scale;
+        padX = other.padX;
+        padY = other.padY;
+        contentWidth = other.contentWidth;
+        contentHeight = other.contentHeight;
+    }
+}
@@ -0,0 +1,313 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Lớp LetterboxPreprocessor ghi ảnh (ARGB hoặc YUV_420_888 từ camera) thẳng vào bộ đệm đầu vào của mô hình.
+// Resize (nearest), đệm letterbox, chuẩn hoá và đổi kiểu dữ liệu (FLOAT32 hoặc lượng tử hoá UINT8/INT8)
+// được gộp trong một lần duyệt,
+// có thể chia theo dải hàng (row band) cho vài luồng. Không cấp phát bộ nhớ trong mỗi frame.
+public class LetterboxPreprocessor {
+    public static final int PAD_VALUE = 114; // Màu đệm xám giống Ultralytics
+
+    private static final int SOURCE_ARGB = 0;
+    private static final int SOURCE_YUV = 1;
+
+    private final int inputWidth;
+    private final int inputHeight;
+    private final TensorSpec inputSpec;
+    private final float[] floatLut = new float[256]; // Bảng chuẩn hoá pixel [0,255] -> [0,1]
+    private final byte[] quantizedLut = new byte[256]; // Bảng pixel [0,255] -> giá trị lượng tử hoá của [0,1]
+
+    // Bảng ánh xạ cột/hàng đầu vào mô hình -> cột/hàng ảnh gốc (đã xoay)
+    private final int[] sourceX;
+    private final int[] sourceY;
+
+    private final Band[] bands;
+    private final ExecutorService executor; // null nếu chỉ dùng luồng gọi
+    private final AtomicInteger pendingBands = new AtomicInteger();
+    private final AtomicReference<Throwable> bandFailure = new AtomicReference<>(); // Lỗi đầu tiên của các dải
+    private volatile Thread caller;
+
+    // Nguồn ảnh của frame hiện tại
+    private int sourceKind;
+    private int[] argbPixels;
+    private int argbStride;   // Số pixel mỗi hàng của mảng ARGB
+    private int cropX, cropY; // Góc trên trái của vùng cắt (toạ độ ảnh đã xoay)
+    private ByteBuffer yPlane, uPlane, vPlane;
+    private int yRowStride, yPixelStride, uvRowStride, uvPixelStride;
+    private int sensorWidth, sensorHeight, rotation;
+    private Letterbox letterbox;
+
+    // input: bộ đệm direct [1][inputHeight][inputWidth][3] theo kiểu inputSpec; numThreads: số dải hàng xử lý song song
+    public LetterboxPreprocessor(ByteBuffer input, int inputWidth, int inputHeight, TensorSpec inputSpec, int numThreads) {
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.inputSpec = inputSpec;
+        this.sourceX = new int[inputWidth];
+        this.sourceY = new int[inputHeight];
+        for (int i = 0; i < 256; i++) {
+            floatLut[i] = i / 255f;
+            quantizedLut[i] = (byte) inputSpec.quantize(floatLut[i]);
+        }
+
+        numThreads = Math.max(1, Math.min(numThreads, inputHeight));
+        this.bands = new Band[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            int rowStart = inputHeight * i / numThreads;
+            int rowEnd = inputHeight * (i + 1) / numThreads;
+            bands[i] = new Band(input, rowStart, rowEnd);
+        }
+        this.executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "YOLOPreprocess");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Tiền xử lý ảnh ARGB (ví dụ: từ Bitmap.getPixels), tham số letterbox được ghi vào out
+    public void processArgb(int[] pixels, int width, int height, Letterbox out) {
+        processArgb(pixels, width, 0, 0, width, height, out);
+    }
+
+    // Tiền xử lý vùng [x, x + width) x [y, y + height) của ảnh ARGB có stride pixel mỗi hàng (ví dụ: một tile).
+    // Letterbox trong out quy đổi về toạ độ của vùng cắt, không phải của cả ảnh
+    public void processArgb(int[] pixels, int stride, int x, int y, int width, int height, Letterbox out) {
+        sourceKind = SOURCE_ARGB;
+        argbPixels = pixels;
+        argbStride = stride;
+        cropX = x;
+        cropY = y;
+        sensorWidth = width;
+        sensorHeight = height;
+        rotation = 0;
+        prepare(width, height, out);
+        runBands();
+        argbPixels = null;
+    }
+
+    // Tiền xử lý frame YUV_420_888 (các plane của android.media.Image), xoay rotationDegrees (0/90/180/270)
+    public void processYuv(ByteBuffer y, int yRowStride, int yPixelStride,
+                           ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                           int width, int height, int rotationDegrees, Letterbox out) {
+        sourceKind = SOURCE_YUV;
+        yPlane = y;
+        uPlane = u;
+        vPlane = v;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        sensorWidth = width;
+        sensorHeight = height;
+        cropX = cropY = 0;
+        rotation = rotationDegrees;
+        boolean swap = rotationDegrees == 90 || rotationDegrees == 270;
+        prepare(swap ? height : width, swap ? width : height, out);
+        runBands();
+        yPlane = uPlane = vPlane = null;
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Tính letterbox và bảng ánh xạ toạ độ (nearest neighbor) cho ảnh đã xoay width x height
+    private void prepare(int width, int height, Letterbox out) {
+        out.set(inputWidth, inputHeight, width, height);
+        letterbox = out;
+        for (int dx = 0; dx < out.contentWidth; dx++) {
+            sourceX[dx] = cropX + Math.min((int) ((dx + 0.5f) / out.scale), width - 1);
+        }
+        for (int dy = 0; dy < out.contentHeight; dy++) {
+            sourceY[dy] = cropY + Math.min((int) ((dy + 0.5f) / out.scale), height - 1);
+        }
+    }
+
+    // Chạy dải đầu trên luồng gọi, các dải còn lại trên thread pool, rồi chờ tất cả hoàn thành.
+    // Luôn chờ các dải đã gửi (kể cả khi có lỗi) rồi ném lại lỗi đầu tiên của chúng cho luồng gọi
+    private void runBands() {
+        if (executor == null) {
+            bands[0].process();
+            return;
+        }
+        caller = Thread.currentThread();
+        bandFailure.set(null);
+        pendingBands.set(bands.length - 1);
+        try {
+            for (int i = 1; i < bands.length; i++) {
+                try {
+                    executor.execute(bands[i]);
+                } catch (RejectedExecutionException e) {
+                    // Không gửi được (pool đã đóng): bỏ các dải chưa gửi khỏi bộ đếm
+                    bandFailure.compareAndSet(null, e);
+                    pendingBands.addAndGet(-(bands.length - i));
+                    break;
+                }
+            }
+            bands[0].process();
+        } finally {
+            while (pendingBands.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+        Throwable failure = bandFailure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    // Ghi một hàng của đầu vào mô hình vào hàng tạm của band (RGB xen kẽ)
+    private void fillRow(int dy, Band band) {
+        Letterbox lb = letterbox;
+        int contentY = dy - lb.padY;
+        if (contentY < 0 || contentY >= lb.contentHeight) {
+            band.pad(0, inputWidth * 3);
+            return;
+        }
+
+        int padLeftEnd = lb.padX * 3;
+        int contentEnd = (lb.padX + lb.contentWidth) * 3;
+        band.pad(0, padLeftEnd);
+        band.pad(contentEnd, inputWidth * 3);
+
+        int uy = sourceY[contentY];
+        if (sourceKind == SOURCE_ARGB) {
+            int rowOffset = uy * argbStride;
+            for (int dx = 0, i = padLeftEnd; dx < lb.contentWidth; dx++, i += 3) {
+                band.put(i, argbPixels[rowOffset + sourceX[dx]]);
+            }
+        } else {
+            for (int dx = 0, i = padLeftEnd; dx < lb.contentWidth; dx++, i += 3) {
+                // Đổi toạ độ ảnh đã xoay về toạ độ cảm biến
+                int ux = sourceX[dx];
+                int sx, sy;
+                switch (rotation) {
+                    case 90:
+                        sx = uy;
+                        sy = sensorHeight - 1 - ux;
+                        break;
+                    case 180:
+                        sx = sensorWidth - 1 - ux;
+                        sy = sensorHeight - 1 - uy;
+                        break;
+                    case 270:
+                        sx = sensorWidth - 1 - uy;
+                        sy = ux;
+                        break;
+                    default:
+                        sx = ux;
+                        sy = uy;
+                        break;
+                }
+                int uvIndex = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                band.put(i, yuvToArgb(yPlane.get(sy * yRowStride + sx * yPixelStride) & 0xff,
+                        uPlane.get(uvIndex) & 0xff, vPlane.get(uvIndex) & 0xff));
+            }
+        }
+    }
+
+    // Chuyển một pixel YUV (BT.601) sang ARGB, dùng số nguyên fixed-point 10 bit
+    static int yuvToArgb(int y, int u, int v) {
+        u -= 128;
+        v -= 128;
+        int r = y + ((1436 * v) >> 10);
+        int g = y - ((352 * u + 731 * v) >> 10);
+        int b = y + ((1815 * u) >> 10);
+        r = r < 0 ? 0 : (r > 255 ? 255 : r);
+        g = g < 0 ? 0 : (g > 255 ? 255 : g);
+        b = b < 0 ? 0 : (b > 255 ? 255 : b);
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    // Một dải hàng [rowStart, rowEnd) của đầu vào mô hình, có view và hàng tạm riêng theo kiểu dữ liệu đầu vào
+    private class Band implements Runnable {
+        private final FloatBuffer floatView; // Dùng khi đầu vào FLOAT32
+        private final ByteBuffer byteView;   // Dùng khi đầu vào lượng tử hoá
+        private final float[] floatRow;
+        private final byte[] byteRow;
+        private final int rowStart;
+        private final int rowEnd;
+
+        Band(ByteBuffer input, int rowStart, int rowEnd) {
+            int rowLength = inputWidth * 3;
+            if (inputSpec.isQuantized()) {
+                this.floatView = null;
+                this.floatRow = null;
+                this.byteView = input.duplicate();
+                this.byteRow = new byte[rowLength];
+            } else {
+                this.floatView = input.asFloatBuffer();
+                this.floatRow = new float[rowLength];
+                this.byteView = null;
+                this.byteRow = null;
+            }
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        // Ghi pixel ARGB vào vị trí i của hàng tạm (đã chuẩn hoá / lượng tử hoá)
+        void put(int i, int argb) {
+            int r = (argb >> 16) & 0xff;
+            int g = (argb >> 8) & 0xff;
+            int b = argb & 0xff;
+            if (floatRow != null) {
+                floatRow[i] = floatLut[r];
+                floatRow[i + 1] = floatLut[g];
+                floatRow[i + 2] = floatLut[b];
+            } else {
+                byteRow[i] = quantizedLut[r];
+                byteRow[i + 1] = quantizedLut[g];
+                byteRow[i + 2] = quantizedLut[b];
+            }
+        }
+
+        // Ghi màu đệm vào [from, to) của hàng tạm
+        void pad(int from, int to) {
+            if (floatRow != null) {
+                Arrays.fill(floatRow, from, to, floatLut[PAD_VALUE]);
+            } else {
+                Arrays.fill(byteRow, from, to, quantizedLut[PAD_VALUE]);
+            }
+        }
+
+        void process() {
+            int rowLength = inputWidth * 3;
+            for (int dy = rowStart; dy < rowEnd; dy++) {
+                fillRow(dy, this);
+                if (floatRow != null) {
+                    floatView.position(dy * rowLength);
+                    floatView.put(floatRow);
+                } else {
+                    byteView.position(dy * rowLength);
+                    byteView.put(byteRow);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (RuntimeException | Error e) {
+                bandFailure.compareAndSet(null, e);
+            } finally {
+                if (pendingBands.decrementAndGet() == 0) {
+                    LockSupport.unpark(caller);
+                }
+            }
+        }
+    }
+}
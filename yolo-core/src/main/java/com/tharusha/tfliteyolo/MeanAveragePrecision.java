@@ -0,0 +1,177 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.Arrays;
+
+// Lớp MeanAveragePrecision tính mAP theo cách của COCO: mỗi ảnh, các dự đoán (điểm giảm dần) được ghép với box nhãn
+// cùng lớp chưa được ghép có IoU lớn nhất, riêng cho từng ngưỡng IoU 0.5, 0.55, ..., 0.95; AP của mỗi lớp là trung
+// bình precision (đã làm đơn điệu) tại 101 mức recall. mAP@0.5 và mAP@0.5:0.95 lấy trung bình trên các lớp có nhãn.
+public class MeanAveragePrecision {
+    public static final float[] IOU_THRESHOLDS = {0.5f, 0.55f, 0.6f, 0.65f, 0.7f, 0.75f, 0.8f, 0.85f, 0.9f, 0.95f};
+    private static final int RECALL_POINTS = 101;
+
+    // Kết quả: AP theo lớp và ngưỡng IoU (NaN với lớp không có box nhãn nào)
+    public static class Result {
+        public final float[][] ap;          // [lớp][ngưỡng IoU]
+        public final int[] groundTruthCount; // Số box nhãn mỗi lớp
+        public final float map50;
+        public final float map5095;
+
+        Result(float[][] ap, int[] groundTruthCount) {
+            this.ap = ap;
+            this.groundTruthCount = groundTruthCount;
+            float sum50 = 0, sum5095 = 0;
+            int classes = 0;
+            for (int c = 0; c < ap.length; c++) {
+                if (groundTruthCount[c] == 0) continue;
+                sum50 += ap[c][0];
+                sum5095 += ap5095(c);
+                classes++;
+            }
+            map50 = classes > 0 ? sum50 / classes : Float.NaN;
+            map5095 = classes > 0 ? sum5095 / classes : Float.NaN;
+        }
+
+        public float ap50(int classId) {
+            return ap[classId][0];
+        }
+
+        public float ap5095(int classId) {
+            float sum = 0;
+            for (float value : ap[classId]) {
+                sum += value;
+            }
+            return sum / ap[classId].length;
+        }
+    }
+
+    private final int numClasses;
+    private final int[] groundTruthCounts;
+    // Mọi dự đoán của từng lớp: điểm và bitmask ngưỡng IoU mà dự đoán là true positive (bit t: IOU_THRESHOLDS[t])
+    private final float[][] scores;
+    private final int[][] matches;
+    private final int[] predictionCounts;
+
+    // Bộ đệm tạm cho một ảnh
+    private boolean[] matched = new boolean[0];
+    private Integer[] order = new Integer[0];
+
+    public MeanAveragePrecision(int numClasses) {
+        this.numClasses = numClasses;
+        this.groundTruthCounts = new int[numClasses];
+        this.scores = new float[numClasses][16];
+        this.matches = new int[numClasses][16];
+        this.predictionCounts = new int[numClasses];
+    }
+
+    // Thêm kết quả của một ảnh: predictions (box, điểm, lớp) và groundTruth (box nhãn, cùng hệ toạ độ)
+    public void add(DetectionBuffer predictions, DetectionBuffer groundTruth) {
+        for (int g = 0; g < groundTruth.count; g++) {
+            int classId = groundTruth.classIds[g];
+            if (classId >= 0 && classId < numClasses) {
+                groundTruthCounts[classId]++;
+            }
+        }
+        int n = predictions.count;
+        if (order.length < n) {
+            order = new Integer[n];
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, 0, n, (a, b) -> Float.compare(predictions.scores[b], predictions.scores[a]));
+        int[] tpMasks = new int[n];
+        if (matched.length < groundTruth.count) {
+            matched = new boolean[groundTruth.count];
+        }
+        for (int t = 0; t < IOU_THRESHOLDS.length; t++) {
+            Arrays.fill(matched, 0, groundTruth.count, false);
+            for (int k = 0; k < n; k++) {
+                int p = order[k];
+                int best = -1;
+                float bestIou = IOU_THRESHOLDS[t];
+                for (int g = 0; g < groundTruth.count; g++) {
+                    if (matched[g] || groundTruth.classIds[g] != predictions.classIds[p]) continue;
+                    float iou = iou(predictions.boxes, p, groundTruth.boxes, g);
+                    if (iou >= bestIou) {
+                        bestIou = iou;
+                        best = g;
+                    }
+                }
+                if (best >= 0) {
+                    matched[best] = true;
+                    tpMasks[k] |= 1 << t;
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            int p = order[k];
+            int classId = predictions.classIds[p];
+            if (classId < 0 || classId >= numClasses) continue;
+            int count = predictionCounts[classId];
+            if (count == scores[classId].length) {
+                scores[classId] = Arrays.copyOf(scores[classId], count * 2);
+                matches[classId] = Arrays.copyOf(matches[classId], count * 2);
+            }
+            scores[classId][count] = predictions.scores[p];
+            matches[classId][count] = tpMasks[k];
+            predictionCounts[classId] = count + 1;
+        }
+    }
+
+    public Result compute() {
+        float[][] ap = new float[numClasses][IOU_THRESHOLDS.length];
+        for (int c = 0; c < numClasses; c++) {
+            if (groundTruthCounts[c] == 0) {
+                Arrays.fill(ap[c], Float.NaN);
+                continue;
+            }
+            int n = predictionCounts[c];
+            Integer[] byScore = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                byScore[i] = i;
+            }
+            float[] classScores = scores[c];
+            Arrays.sort(byScore, (a, b) -> Float.compare(classScores[b], classScores[a]));
+            float[] recall = new float[n];
+            float[] precision = new float[n];
+            for (int t = 0; t < IOU_THRESHOLDS.length; t++) {
+                int tp = 0;
+                for (int i = 0; i < n; i++) {
+                    if ((matches[c][byScore[i]] & (1 << t)) != 0) tp++;
+                    recall[i] = tp / (float) groundTruthCounts[c];
+                    precision[i] = tp / (float) (i + 1);
+                }
+                ap[c][t] = interpolatedAp(recall, precision, n);
+            }
+        }
+        return new Result(ap, groundTruthCounts.clone());
+    }
+
+    // Trung bình precision tại 101 mức recall 0, 0.01, ..., 1 (precision tại recall r là precision lớn nhất
+    // ở mọi recall >= r)
+    private static float interpolatedAp(float[] recall, float[] precision, int n) {
+        for (int i = n - 2; i >= 0; i--) {
+            precision[i] = Math.max(precision[i], precision[i + 1]);
+        }
+        float sum = 0;
+        int i = 0;
+        for (int r = 0; r < RECALL_POINTS; r++) {
+            float level = r / (float) (RECALL_POINTS - 1);
+            while (i < n && recall[i] < level - 1e-6f) i++;
+            if (i == n) break;
+            sum += precision[i];
+        }
+        return sum / RECALL_POINTS;
+    }
+
+    private static float iou(float[] a, int i, float[] b, int j) {
+        int ai = i * 4, bj = j * 4;
+        float width = Math.min(a[ai + 2], b[bj + 2]) - Math.max(a[ai], b[bj]);
+        float height = Math.min(a[ai + 3], b[bj + 3]) - Math.max(a[ai + 1], b[bj + 1]);
+        if (width <= 0 || height <= 0) return 0;
+        float intersection = width * height;
+        float union = (a[ai + 2] - a[ai]) * (a[ai + 3] - a[ai + 1]) + (b[bj + 2] - b[bj]) * (b[bj + 3] - b[bj + 1])
+                - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+}
@@ -0,0 +1,258 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.Arrays;
+
+// Lớp NonMaxSuppression thực hiện NMS trên mảng chỉ số nguyên thuỷ (không tạo object trong mỗi frame).
+// Hỗ trợ chế độ theo lớp (class-aware) / không phân biệt lớp (class-agnostic), giới hạn top-k
+// và lưới không gian (spatial grid) để xử lý nhanh khi có hàng nghìn box ứng viên.
+public class NonMaxSuppression {
+    public static final int DEFAULT_MAX_DETECTIONS = 300;   // Số box tối đa giữ lại (max_det)
+    public static final int DEFAULT_MAX_CANDIDATES = 30000; // Số ứng viên tối đa đưa vào NMS (max_nms)
+
+    private static final int GRID_MIN_CANDIDATES = 256; // Dưới ngưỡng này so sánh trực tiếp nhanh hơn dùng lưới
+    private static final int GRID_SIZE = 16;            // Lưới GRID_SIZE x GRID_SIZE ô
+    private static final int MAX_CELLS_PER_BOX = 16;    // Box phủ nhiều ô hơn được xếp vào danh sách "box lớn"
+
+    public float iouThreshold;     // Ngưỡng IoU để loại bỏ box
+    public boolean classAgnostic;  // true: loại bỏ chồng lắp giữa mọi lớp, false: chỉ trong cùng một lớp
+    public final int maxDetections;
+    public final int maxCandidates;
+
+    private long[] sortKeys = new long[0]; // (điểm << 32) | chỉ số đảo, sắp xếp tăng dần
+
+    // Thông tin các box đã giữ lại
+    private final float[] keptAreas;
+    private final int[] keptStamps; // Đánh dấu box đã được kiểm tra với ứng viên hiện tại
+
+    // Lưới không gian: mỗi ô là một danh sách liên kết (qua mảng) các box đã giữ lại
+    private final int[] cellHeads = new int[GRID_SIZE * GRID_SIZE];
+    private final int[] entryNext;
+    private final int[] entryKept;
+    private int entryCount;
+    private final int[] largeKept; // Các box phủ quá nhiều ô, luôn được kiểm tra
+    private int largeCount;
+    private float gridMinX, gridMinY, cellWidth, cellHeight;
+
+    public NonMaxSuppression(float iouThreshold, boolean classAgnostic) {
+        this(iouThreshold, classAgnostic, DEFAULT_MAX_DETECTIONS, DEFAULT_MAX_CANDIDATES);
+    }
+
+    public NonMaxSuppression(float iouThreshold, boolean classAgnostic, int maxDetections, int maxCandidates) {
+        this.iouThreshold = iouThreshold;
+        this.classAgnostic = classAgnostic;
+        this.maxDetections = maxDetections;
+        this.maxCandidates = maxCandidates;
+        this.keptAreas = new float[maxDetections];
+        this.keptStamps = new int[maxDetections];
+        this.entryNext = new int[maxDetections * MAX_CELLS_PER_BOX];
+        this.entryKept = new int[maxDetections * MAX_CELLS_PER_BOX];
+        this.largeKept = new int[maxDetections];
+    }
+
+    // Chạy NMS trên các ứng viên trong candidates, ghi box giữ lại (theo thứ tự điểm giảm dần) vào out.
+    // Trả về số box giữ lại.
+    public int run(DetectionBuffer candidates, DetectionBuffer out) {
+        out.clear();
+        int n = candidates.count;
+        if (n == 0) {
+            return 0;
+        }
+        if (sortKeys.length < n) {
+            sortKeys = new long[n]; // Chỉ cấp phát khi số ứng viên vượt quá lần trước
+        }
+
+        // Khoá sắp xếp: bit của điểm (không âm nên thứ tự bit trùng thứ tự số) + chỉ số đảo
+        // để các box cùng điểm giữ nguyên thứ tự ban đầu như sắp xếp ổn định
+        for (int i = 0; i < n; i++) {
+            int scoreBits = Float.floatToIntBits(Math.max(candidates.scores[i], 0f));
+            sortKeys[i] = ((long) scoreBits << 32) | (Integer.MAX_VALUE - i);
+        }
+
+        // Chọn top-k ứng viên rồi chỉ sắp xếp k phần tử đó
+        int k = Math.min(n, maxCandidates);
+        if (k < n) {
+            selectLargest(sortKeys, n, k);
+        }
+        Arrays.sort(sortKeys, n - k, n);
+
+        boolean useGrid = k >= GRID_MIN_CANDIDATES;
+        if (useGrid) {
+            resetGrid(candidates, n - k, n);
+        }
+
+        int maxKept = Math.min(maxDetections, out.capacity);
+        int stamp = 0;
+        Arrays.fill(keptStamps, 0);
+
+        // Duyệt từ điểm cao xuống thấp, giữ box nếu nó không chồng lắp box nào đã giữ
+        for (int s = n - 1; s >= n - k && out.count < maxKept; s--) {
+            int index = Integer.MAX_VALUE - (int) (sortKeys[s] & 0xffffffffL);
+            int b = index * 4;
+            float left = candidates.boxes[b];
+            float top = candidates.boxes[b + 1];
+            float right = candidates.boxes[b + 2];
+            float bottom = candidates.boxes[b + 3];
+            int classId = candidates.classIds[index];
+            float area = (right - left) * (bottom - top);
+
+            boolean suppressed;
+            if (useGrid) {
+                suppressed = isSuppressedGrid(out, left, top, right, bottom, area, classId, ++stamp);
+            } else {
+                suppressed = isSuppressedRange(out, 0, out.count, left, top, right, bottom, area, classId);
+            }
+            if (suppressed) {
+                continue;
+            }
+
+            int kept = out.count;
+            out.addFrom(candidates, index);
+            keptAreas[kept] = area;
+            if (useGrid) {
+                insertGrid(kept, left, top, right, bottom);
+            }
+        }
+
+        return out.count;
+    }
+
+    // So sánh trực tiếp với các box đã giữ trong khoảng [from, to)
+    private boolean isSuppressedRange(DetectionBuffer kept, int from, int to,
+                                      float left, float top, float right, float bottom, float area, int classId) {
+        for (int j = from; j < to; j++) {
+            if (overlaps(kept, j, left, top, right, bottom, area, classId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Chỉ so sánh với các box đã giữ nằm trong các ô lưới mà ứng viên phủ lên
+    private boolean isSuppressedGrid(DetectionBuffer kept, float left, float top, float right, float bottom,
+                                     float area, int classId, int stamp) {
+        int cx0 = cellX(left), cx1 = cellX(right);
+        int cy0 = cellY(top), cy1 = cellY(bottom);
+        if ((cx1 - cx0 + 1) * (cy1 - cy0 + 1) > MAX_CELLS_PER_BOX) {
+            // Ứng viên quá lớn: duyệt qua tất cả box đã giữ (tối đa maxDetections) rẻ hơn
+            return isSuppressedRange(kept, 0, kept.count, left, top, right, bottom, area, classId);
+        }
+
+        for (int i = 0; i < largeCount; i++) {
+            if (overlaps(kept, largeKept[i], left, top, right, bottom, area, classId)) {
+                return true;
+            }
+        }
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int e = cellHeads[cy * GRID_SIZE + cx]; e >= 0; e = entryNext[e]) {
+                    int j = entryKept[e];
+                    if (keptStamps[j] == stamp) {
+                        continue; // Đã kiểm tra ở ô khác
+                    }
+                    keptStamps[j] = stamp;
+                    if (overlaps(kept, j, left, top, right, bottom, area, classId)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Kiểm tra box đã giữ thứ j có làm ứng viên bị loại bỏ không (IoU > ngưỡng)
+    private boolean overlaps(DetectionBuffer kept, int j, float left, float top, float right, float bottom,
+                             float area, int classId) {
+        if (!classAgnostic && kept.classIds[j] != classId) {
+            return false;
+        }
+        int b = j * 4;
+        float width = Math.min(right, kept.boxes[b + 2]) - Math.max(left, kept.boxes[b]);
+        if (width <= 0) {
+            return false;
+        }
+        float height = Math.min(bottom, kept.boxes[b + 3]) - Math.max(top, kept.boxes[b + 1]);
+        if (height <= 0) {
+            return false;
+        }
+        float intersection = width * height;
+        float union = area + keptAreas[j] - intersection;
+        return union > 0 && intersection / union > iouThreshold;
+    }
+
+    // Tính phạm vi lưới từ các ứng viên sẽ được xét
+    private void resetGrid(DetectionBuffer candidates, int from, int to) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int s = from; s < to; s++) {
+            int b = (Integer.MAX_VALUE - (int) (sortKeys[s] & 0xffffffffL)) * 4;
+            minX = Math.min(minX, candidates.boxes[b]);
+            minY = Math.min(minY, candidates.boxes[b + 1]);
+            maxX = Math.max(maxX, candidates.boxes[b + 2]);
+            maxY = Math.max(maxY, candidates.boxes[b + 3]);
+        }
+        gridMinX = minX;
+        gridMinY = minY;
+        cellWidth = Math.max((maxX - minX) / GRID_SIZE, 1e-6f);
+        cellHeight = Math.max((maxY - minY) / GRID_SIZE, 1e-6f);
+        Arrays.fill(cellHeads, -1);
+        entryCount = 0;
+        largeCount = 0;
+    }
+
+    // Đăng ký box vừa giữ vào các ô lưới mà nó phủ lên
+    private void insertGrid(int kept, float left, float top, float right, float bottom) {
+        int cx0 = cellX(left), cx1 = cellX(right);
+        int cy0 = cellY(top), cy1 = cellY(bottom);
+        int cells = (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+        if (cells > MAX_CELLS_PER_BOX || entryCount + cells > entryKept.length) {
+            largeKept[largeCount++] = kept;
+            return;
+        }
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int cell = cy * GRID_SIZE + cx;
+                entryKept[entryCount] = kept;
+                entryNext[entryCount] = cellHeads[cell];
+                cellHeads[cell] = entryCount++;
+            }
+        }
+    }
+
+    private int cellX(float x) {
+        int cell = (int) ((x - gridMinX) / cellWidth);
+        return cell < 0 ? 0 : (cell >= GRID_SIZE ? GRID_SIZE - 1 : cell);
+    }
+
+    private int cellY(float y) {
+        int cell = (int) ((y - gridMinY) / cellHeight);
+        return cell < 0 ? 0 : (cell >= GRID_SIZE ? GRID_SIZE - 1 : cell);
+    }
+
+    // Quickselect: đưa k khoá lớn nhất về cuối mảng keys[0, n) (không sắp xếp)
+    private static void selectLargest(long[] keys, int n, int k) {
+        int target = n - k;
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            long pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    long tmp = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.tharusha.tfliteyolo;
+
+import java.util.Arrays;
+
+// Lớp ObjectTracker theo dõi nhiều đối tượng kiểu ByteTrack: mỗi track có bộ lọc Kalman vận tốc không đổi,
+// ghép detection theo IoU hai giai đoạn (điểm cao trước, điểm thấp sau) và gán ID ổn định giữa các frame.
+// Giữa hai lần suy luận, predict() ngoại suy vị trí các track tới thời điểm frame hiện tại.
+// Toàn bộ trạng thái là mảng nguyên thuỷ cấp phát một lần. Không thread-safe (dùng từ một luồng).
+public class ObjectTracker {
+    private static final float NANOS_PER_SECOND = 1e9f;
+    private static final float NOMINAL_FRAME_SECONDS = 1f / 30; // Nhiễu Kalman được định nghĩa theo frame 30 fps
+
+    // Độ lệch chuẩn nhiễu theo chiều cao box (giống ByteTrack: 1/20 vị trí, 1/160 vận tốc mỗi frame)
+    private static final float POSITION_STD = 1f / 20;
+    private static final float VELOCITY_STD = 1f / 160 / NOMINAL_FRAME_SECONDS;
+
+    public float highThreshold = 0.6f;      // Detection có điểm >= ngưỡng này được ghép trước và có thể tạo track mới
+    public float matchIouThreshold = 0.2f;  // IoU tối thiểu khi ghép detection điểm cao
+    public float lowMatchIouThreshold = 0.5f; // IoU tối thiểu khi ghép detection điểm thấp
+    public int maxAge = 30;                 // Số lần cập nhật liên tiếp không ghép được trước khi xoá track
+
+    private final int maxTracks;
+    private int trackCount;
+    private int nextTrackId = 1;
+    private long lastTimestamp = -1; // Thời điểm (ns) của lần cập nhật gần nhất
+
+    // Trạng thái track: 4 chiều (cx, cy, w, h), mỗi chiều là một bộ lọc Kalman (vị trí, vận tốc) độc lập
+    private final int[] trackIds;
+    private final int[] trackClasses;
+    private final float[] trackScores;
+    private final int[] trackMisses;   // Số lần cập nhật liên tiếp không ghép được
+    private final float[] position;    // [track * 4 + dim]
+    private final float[] velocity;    // Đơn vị: pixel / giây
+    private final float[] covariance;  // [track * 12 + dim * 3]: var(p), cov(p, v), var(v)
+
+    // Bộ nhớ tạm cho việc ghép cặp
+    private final boolean[] trackMatched;
+    private boolean[] detectionMatched = new boolean[0];
+    private long[] pairs = new long[0];
+    private final float[] measurement = new float[4];
+
+    public ObjectTracker(int maxTracks) {
+        this.maxTracks = maxTracks;
+        this.trackIds = new int[maxTracks];
+        this.trackClasses = new int[maxTracks];
+        this.trackScores = new float[maxTracks];
+        this.trackMisses = new int[maxTracks];
+        this.position = new float[maxTracks * 4];
+        this.velocity = new float[maxTracks * 4];
+        this.covariance = new float[maxTracks * 12];
+        this.trackMatched = new boolean[maxTracks];
+    }
+
+    public void reset() {
+        trackCount = 0;
+        lastTimestamp = -1;
+    }
+
+    // Cập nhật tracker với kết quả suy luận của frame chụp tại timestampNanos.
+    // trackIds của detections được gán ID track tương ứng (-1 nếu detection không được theo dõi).
+    public void update(DetectionBuffer detections, long timestampNanos) {
+        float dt = lastTimestamp < 0 ? 0 : Math.max(0, (timestampNanos - lastTimestamp) / NANOS_PER_SECOND);
+        lastTimestamp = timestampNanos;
+        for (int t = 0; t < trackCount; t++) {
+            predictTrack(t, dt);
+            trackMatched[t] = false;
+        }
+
+        int n = detections.count;
+        if (detectionMatched.length < n) {
+            detectionMatched = new boolean[n];
+        }
+        Arrays.fill(detectionMatched, 0, n, false);
+        Arrays.fill(detections.trackIds, 0, n, -1);
+
+        // Giai đoạn 1: detection điểm cao với mọi track. Giai đoạn 2: detection điểm thấp với track còn lại.
+        match(detections, true, matchIouThreshold);
+        match(detections, false, lowMatchIouThreshold);
+
+        // Track không ghép được: tăng số lần mất, xoá nếu quá maxAge
+        for (int t = trackCount - 1; t >= 0; t--) {
+            if (!trackMatched[t] && ++trackMisses[t] > maxAge) {
+                removeTrack(t);
+            }
+        }
+
+        // Detection điểm cao chưa ghép: tạo track mới
+        for (int d = 0; d < n && trackCount < maxTracks; d++) {
+            if (!detectionMatched[d] && detections.scores[d] >= highThreshold) {
+                detections.trackIds[d] = createTrack(detections, d);
+            }
+        }
+    }
+
+    // Ghi vị trí các track đang được theo dõi (ghép được ở lần cập nhật gần nhất), ngoại suy tới timestampNanos
+    public void predict(long timestampNanos, DetectionBuffer out) {
+        out.clear();
+        float dt = lastTimestamp < 0 ? 0 : (timestampNanos - lastTimestamp) / NANOS_PER_SECOND;
+        for (int t = 0; t < trackCount; t++) {
+            if (trackMisses[t] > 0) {
+                continue;
+            }
+            int s = t * 4;
+            float cx = position[s] + velocity[s] * dt;
+            float cy = position[s + 1] + velocity[s + 1] * dt;
+            float halfWidth = Math.max(0, position[s + 2] + velocity[s + 2] * dt) / 2;
+            float halfHeight = Math.max(0, position[s + 3] + velocity[s + 3] * dt) / 2;
+            if (!out.add(cx - halfWidth, cy - halfHeight, cx + halfWidth, cy + halfHeight, trackScores[t], trackClasses[t])) {
+                break;
+            }
+            out.trackIds[out.count - 1] = trackIds[t];
+        }
+    }
+
+    // Cảnh không đổi so với lần suy luận trước (ChangeGate): đặt vận tốc các track về 0 để predict() trả lại
+    // vị trí của lần cập nhật gần nhất thay vì ngoại suy tiếp khi không có phép đo mới
+    public void freeze() {
+        Arrays.fill(velocity, 0, trackCount * 4, 0);
+    }
+
+    // Mức chuyển động của cảnh: trung bình tốc độ tâm các track, tính theo kích thước box mỗi giây
+    public float meanMotion() {
+        float sum = 0;
+        int active = 0;
+        for (int t = 0; t < trackCount; t++) {
+            if (trackMisses[t] > 0) continue;
+            int s = t * 4;
+            float size = Math.max(1, Math.max(position[s + 2], position[s + 3]));
+            sum += (Math.abs(velocity[s]) + Math.abs(velocity[s + 1])) / size;
+            active++;
+        }
+        return active > 0 ? sum / active : 0;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    // Ghép tham lam theo IoU giảm dần giữa các detection (điểm cao hoặc thấp) và các track chưa ghép, cùng lớp
+    private void match(DetectionBuffer detections, boolean highScore, float iouThreshold) {
+        int n = detections.count;
+        if (pairs.length < trackCount * n) {
+            pairs = new long[trackCount * n];
+        }
+
+        int pairCount = 0;
+        for (int d = 0; d < n; d++) {
+            if (detectionMatched[d] || (detections.scores[d] >= highThreshold) != highScore) continue;
+            int b = d * 4;
+            for (int t = 0; t < trackCount; t++) {
+                if (trackMatched[t] || trackClasses[t] != detections.classIds[d]) continue;
+                float iou = iou(t, detections.boxes[b], detections.boxes[b + 1], detections.boxes[b + 2], detections.boxes[b + 3]);
+                if (iou >= iouThreshold) {
+                    // Khoá: bit của IoU (dương nên thứ tự bit trùng thứ tự số) | track | detection
+                    pairs[pairCount++] = ((long) Float.floatToIntBits(iou) << 32) | ((long) t << 16) | d;
+                }
+            }
+        }
+
+        Arrays.sort(pairs, 0, pairCount);
+        for (int i = pairCount - 1; i >= 0; i--) {
+            int t = (int) ((pairs[i] >>> 16) & 0xffff);
+            int d = (int) (pairs[i] & 0xffff);
+            if (trackMatched[t] || detectionMatched[d]) continue;
+            trackMatched[t] = true;
+            detectionMatched[d] = true;
+            correctTrack(t, detections, d);
+            detections.trackIds[d] = trackIds[t];
+        }
+    }
+
+    private float iou(int t, float left, float top, float right, float bottom) {
+        int s = t * 4;
+        float halfWidth = position[s + 2] / 2;
+        float halfHeight = position[s + 3] / 2;
+        float trackLeft = position[s] - halfWidth;
+        float trackTop = position[s + 1] - halfHeight;
+        float trackRight = position[s] + halfWidth;
+        float trackBottom = position[s + 1] + halfHeight;
+
+        float width = Math.min(right, trackRight) - Math.max(left, trackLeft);
+        float height = Math.min(bottom, trackBottom) - Math.max(top, trackTop);
+        if (width <= 0 || height <= 0) return 0;
+        float intersection = width * height;
+        float union = (right - left) * (bottom - top) + position[s + 2] * position[s + 3] - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+
+    // Bước dự đoán Kalman (vận tốc không đổi) cho dt giây
+    private void predictTrack(int t, float dt) {
+        if (dt <= 0) return;
+        float frames = dt / NOMINAL_FRAME_SECONDS;
+        float height = Math.max(1, position[t * 4 + 3]);
+        float positionNoise = square(POSITION_STD * height) * frames;
+        float velocityNoise = square(VELOCITY_STD * height) * frames;
+        for (int dim = 0; dim < 4; dim++) {
+            int s = t * 4 + dim;
+            int c = t * 12 + dim * 3;
+            position[s] += velocity[s] * dt;
+            float pp = covariance[c], pv = covariance[c + 1], vv = covariance[c + 2];
+            covariance[c] = pp + 2 * dt * pv + dt * dt * vv + positionNoise;
+            covariance[c + 1] = pv + dt * vv;
+            covariance[c + 2] = vv + velocityNoise;
+        }
+    }
+
+    // Bước hiệu chỉnh Kalman với box của detection d
+    private void correctTrack(int t, DetectionBuffer detections, int d) {
+        int b = d * 4;
+        float width = detections.boxes[b + 2] - detections.boxes[b];
+        float height = detections.boxes[b + 3] - detections.boxes[b + 1];
+        measurement[0] = detections.boxes[b] + width / 2;
+        measurement[1] = detections.boxes[b + 1] + height / 2;
+        measurement[2] = width;
+        measurement[3] = height;
+        float measurementNoise = square(POSITION_STD * Math.max(1, height));
+
+        for (int dim = 0; dim < 4; dim++) {
+            int s = t * 4 + dim;
+            int c = t * 12 + dim * 3;
+            float pp = covariance[c], pv = covariance[c + 1], vv = covariance[c + 2];
+            float innovation = measurement[dim] - position[s];
+            float gainPosition = pp / (pp + measurementNoise);
+            float gainVelocity = pv / (pp + measurementNoise);
+            position[s] += gainPosition * innovation;
+            velocity[s] += gainVelocity * innovation;
+            covariance[c] = (1 - gainPosition) * pp;
+            covariance[c + 1] = (1 - gainPosition) * pv;
+            covariance[c + 2] = vv - gainVelocity * pv;
+        }
+        trackScores[t] = detections.scores[d];
+        trackMisses[t] = 0;
+    }
+
+    private int createTrack(DetectionBuffer detections, int d) {
+        int t = trackCount++;
+        int b = d * 4;
+        float width = detections.boxes[b + 2] - detections.boxes[b];
+        float height = detections.boxes[b + 3] - detections.boxes[b + 1];
+        int s = t * 4;
+        position[s] = detections.boxes[b] + width / 2;
+        position[s + 1] = detections.boxes[b + 1] + height / 2;
+        position[s + 2] = width;
+        position[s + 3] = height;
+
+        float positionVariance = square(2 * POSITION_STD * Math.max(1, height));
+        float velocityVariance = square(10 * VELOCITY_STD * Math.max(1, height));
+        for (int dim = 0; dim < 4; dim++) {
+            velocity[s + dim] = 0;
+            int c = t * 12 + dim * 3;
+            covariance[c] = positionVariance;
+            covariance[c + 1] = 0;
+            covariance[c + 2] = velocityVariance;
+        }
+
+        trackIds[t] = nextTrackId++;
+        trackClasses[t] = detections.classIds[d];
+        trackScores[t] = detections.scores[d];
+        trackMisses[t] = 0;
+        trackMatched[t] = true;
+        return trackIds[t];
+    }
+
+    // Xoá track t bằng cách chuyển track cuối cùng vào vị trí của nó
+    private void removeTrack(int t) {
+        int last = --trackCount;
+        if (t == last) return;
+        trackIds[t] = trackIds[last];
+        trackClasses[t] = trackClasses[last];
+        trackScores[t] = trackScores[last];
+        trackMisses[t] = trackMisses[last];
+        trackMatched[t] = trackMatched[last];
+        System.arraycopy(position, last * 4, position, t * 4, 4);
+        System.arraycopy(velocity, last * 4, velocity, t * 4, 4);
+        System.arraycopy(covariance, last * 12, covariance, t * 12, 12);
+    }
+
+    private static float square(float value) {
+        return value * value;
+    }
+}
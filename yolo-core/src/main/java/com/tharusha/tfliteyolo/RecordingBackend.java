@@ -0,0 +1,77 @@
+package com.tharusha.tfliteyolo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lớp RecordingBackend bọc một backend thật (ví dụ: YOLOModel trên thiết bị) và giữ lại tensor đầu ra của
+// tối đa maxOutputs lần run() đầu tiên, để ghi ra file và phát lại bằng ReplayBackend trên JVM
+public class RecordingBackend implements InferenceBackend {
+    private final InferenceBackend backend;
+    private final int maxOutputs;
+    private final List<byte[]> outputs = new ArrayList<>();
+
+    public RecordingBackend(InferenceBackend backend, int maxOutputs) {
+        this.backend = backend;
+        this.maxOutputs = maxOutputs;
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return backend.getInputShape();
+    }
+
+    @Override
+    public int[] getOutputShape() {
+        return backend.getOutputShape();
+    }
+
+    @Override
+    public TensorSpec getInputSpec() {
+        return backend.getInputSpec();
+    }
+
+    @Override
+    public TensorSpec getOutputSpec() {
+        return backend.getOutputSpec();
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output) {
+        backend.run(input, output);
+        synchronized (this) {
+            if (outputs.size() < maxOutputs) {
+                ByteBuffer source = output.duplicate();
+                source.position(0);
+                byte[] frame = new byte[source.remaining()];
+                source.get(frame);
+                outputs.add(frame);
+            }
+        }
+    }
+
+    // Bản ghi chỉ ứng với một shape: đổi kích thước đầu vào thì bắt đầu ghi lại
+    @Override
+    public synchronized boolean resizeInput(int size) {
+        if (size == backend.getInputShape()[1]) {
+            return true;
+        }
+        if (!backend.resizeInput(size)) {
+            return false;
+        }
+        outputs.clear();
+        return true;
+    }
+
+    public synchronized int getOutputCount() {
+        return outputs.size();
+    }
+
+    // Ghi các đầu ra đã giữ theo định dạng của ReplayBackend.read()
+    public synchronized void write(OutputStream stream) throws IOException {
+        ReplayBackend.write(stream, backend.getInputShape(), backend.getOutputShape(),
+                backend.getInputSpec(), backend.getOutputSpec(), outputs);
+    }
+}
@@ -0,0 +1,171 @@
+package com.tharusha.tfliteyolo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lớp ReplayBackend là backend giả lập, tất định: mỗi lần run() ghi lại tensor đầu ra đã ghi (RecordingBackend)
+// hoặc tự tạo theo thứ tự, quay vòng khi hết. Đầu vào bị bỏ qua. Dùng để chạy tiền xử lý, giải mã và NMS
+// trên JVM (unit test, benchmark) mà không cần thiết bị hay TFLite.
+public class ReplayBackend implements InferenceBackend {
+    private static final int MAGIC = 0x59524543; // "YREC"
+    private static final int VERSION = 1;
+
+    private final int[] inputShape;
+    private final int[] outputShape;
+    private final TensorSpec inputSpec;
+    private final TensorSpec outputSpec;
+    private final List<byte[]> outputs; // Các tensor đầu ra (byte theo thứ tự native), mỗi phần tử một lần run
+    private int next;
+
+    public ReplayBackend(int[] inputShape, int[] outputShape, TensorSpec inputSpec, TensorSpec outputSpec,
+                         List<byte[]> outputs) {
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("No recorded outputs");
+        }
+        int outputBytes = outputSpec.bytesPerElement() * outputShape[1] * outputShape[2];
+        for (byte[] output : outputs) {
+            if (output.length != outputBytes) {
+                throw new IllegalArgumentException("Output size " + output.length + " != " + outputBytes);
+            }
+        }
+        this.inputShape = inputShape.clone();
+        this.outputShape = outputShape.clone();
+        this.inputSpec = inputSpec;
+        this.outputSpec = outputSpec;
+        this.outputs = new ArrayList<>(outputs);
+    }
+
+    // Backend FLOAT32 với các đầu ra [4 + số lớp][số anchor] cho trước (ví dụ: tạo trong test)
+    public static ReplayBackend ofFloatOutputs(int inputSize, int numChannels, int numAnchors, List<float[]> outputs) {
+        List<byte[]> frames = new ArrayList<>(outputs.size());
+        for (float[] output : outputs) {
+            ByteBuffer buffer = ByteBuffer.allocate(output.length * 4).order(ByteOrder.nativeOrder());
+            buffer.asFloatBuffer().put(output);
+            frames.add(buffer.array());
+        }
+        return new ReplayBackend(new int[]{1, inputSize, inputSize, 3}, new int[]{1, numChannels, numAnchors},
+                TensorSpec.FLOAT32, TensorSpec.FLOAT32, frames);
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    @Override
+    public int[] getOutputShape() {
+        return outputShape.clone();
+    }
+
+    @Override
+    public TensorSpec getInputSpec() {
+        return inputSpec;
+    }
+
+    @Override
+    public TensorSpec getOutputSpec() {
+        return outputSpec;
+    }
+
+    // Ghi đầu ra kế tiếp vào output (không đổi position của output, giống interpreter)
+    @Override
+    public synchronized void run(ByteBuffer input, ByteBuffer output) {
+        byte[] frame = outputs.get(next);
+        next = (next + 1) % outputs.size();
+        ByteBuffer target = output.duplicate();
+        target.position(0);
+        target.put(frame);
+    }
+
+    // Đầu ra đã ghi chỉ ứng với một kích thước đầu vào
+    @Override
+    public boolean resizeInput(int size) {
+        return size == inputShape[1];
+    }
+
+    // Quay lại đầu ra đầu tiên
+    public synchronized void rewind() {
+        next = 0;
+    }
+
+    public int getOutputCount() {
+        return outputs.size();
+    }
+
+    // Đọc bản ghi do write() tạo ra
+    public static ReplayBackend read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a tensor recording");
+        }
+        int[] inputShape = readShape(in);
+        int[] outputShape = readShape(in);
+        TensorSpec inputSpec = readSpec(in);
+        TensorSpec outputSpec = readSpec(in);
+        int count = in.readInt();
+        List<byte[]> outputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            outputs.add(frame);
+        }
+        return new ReplayBackend(inputShape, outputShape, inputSpec, outputSpec, outputs);
+    }
+
+    // Ghi các tensor đầu ra cùng shape và kiểu dữ liệu (byte tensor giữ nguyên thứ tự native của máy ghi)
+    public static void write(OutputStream stream, int[] inputShape, int[] outputShape,
+                             TensorSpec inputSpec, TensorSpec outputSpec, List<byte[]> outputs) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeShape(out, inputShape);
+        writeShape(out, outputShape);
+        writeSpec(out, inputSpec);
+        writeSpec(out, outputSpec);
+        out.writeInt(outputs.size());
+        for (byte[] frame : outputs) {
+            out.writeInt(frame.length);
+            out.write(frame);
+        }
+        out.flush();
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        write(stream, inputShape, outputShape, inputSpec, outputSpec, outputs);
+    }
+
+    private static int[] readShape(DataInputStream in) throws IOException {
+        int[] shape = new int[in.readInt()];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = in.readInt();
+        }
+        return shape;
+    }
+
+    private static void writeShape(DataOutputStream out, int[] shape) throws IOException {
+        out.writeInt(shape.length);
+        for (int dim : shape) {
+            out.writeInt(dim);
+        }
+    }
+
+    private static TensorSpec readSpec(DataInputStream in) throws IOException {
+        TensorSpec.Type type = TensorSpec.Type.values()[in.readInt()];
+        float scale = in.readFloat();
+        int zeroPoint = in.readInt();
+        return type == TensorSpec.Type.FLOAT32 ? TensorSpec.FLOAT32 : new TensorSpec(type, scale, zeroPoint);
+    }
+
+    private static void writeSpec(DataOutputStream out, TensorSpec spec) throws IOException {
+        out.writeInt(spec.type.ordinal());
+        out.writeFloat(spec.scale);
+        out.writeInt(spec.zeroPoint);
+    }
+}
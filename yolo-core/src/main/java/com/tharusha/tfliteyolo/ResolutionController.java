@@ -0,0 +1,79 @@
+package com.tharusha.tfliteyolo;
+
+// Lớp ResolutionController chọn kích thước đầu vào mô hình (ví dụ: 320 / 480 / 640, mô hình export dạng
+// dynamic shape) sao cho độ trễ suy luận nằm trong ngân sách: giảm kích thước khi độ trễ trung bình vượt ngân sách
+// (ví dụ: máy nóng, CPU bị hạ xung), tăng lại khi độ trễ dự đoán ở kích thước lớn hơn vẫn nằm dưới ngân sách.
+// Có độ trễ (hysteresis) giữa hai chiều để không đổi kích thước liên tục, vì mỗi lần đổi phải cấp phát lại tensor.
+public class ResolutionController {
+    public float upMargin = 0.8f;  // Chỉ tăng khi độ trễ dự đoán ở kích thước lớn hơn < ngân sách * upMargin
+    public int downHold = 5;       // Số lần suy luận liên tiếp vượt ngân sách trước khi giảm kích thước
+    public int upHold = 30;        // Số lần suy luận liên tiếp đủ dư trước khi tăng kích thước
+
+    private static final float SMOOTHING = 0.2f; // Hệ số làm mượt trung bình động (EWMA)
+
+    private final int[] sizes;       // Các kích thước cho phép, tăng dần
+    private final long budgetNanos;  // Ngân sách độ trễ cho một lần suy luận
+    private int index;               // Kích thước hiện tại
+    private float latencyNanos;      // Độ trễ trung bình ở kích thước hiện tại
+    private int overBudget;          // Số lần liên tiếp vượt ngân sách
+    private int underBudget;         // Số lần liên tiếp đủ dư để tăng
+
+    // sizes: các kích thước tăng dần; initialSize: kích thước đang dùng của detector
+    public ResolutionController(int[] sizes, long budgetNanos, int initialSize) {
+        this.sizes = sizes.clone();
+        this.budgetNanos = budgetNanos;
+        reset(initialSize);
+    }
+
+    // Ghi nhận độ trễ một lần suy luận ở kích thước hiện tại, trả về kích thước nên dùng cho lần suy luận sau
+    public int onInference(long nanos) {
+        latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + SMOOTHING * (nanos - latencyNanos);
+
+        if (latencyNanos > budgetNanos && index > 0) {
+            underBudget = 0;
+            if (++overBudget >= downHold) {
+                step(index - 1);
+            }
+        } else if (index < sizes.length - 1 && predictLatency(index + 1) < budgetNanos * upMargin) {
+            overBudget = 0;
+            if (++underBudget >= upHold) {
+                step(index + 1);
+            }
+        } else {
+            overBudget = 0;
+            underBudget = 0;
+        }
+        return sizes[index];
+    }
+
+    public int getInputSize() {
+        return sizes[index];
+    }
+
+    // Bắt đầu lại với kích thước size của detector (ví dụ: sau khi đổi mô hình); chọn kích thước gần nhất
+    public void reset(int size) {
+        index = 0;
+        for (int i = 1; i < sizes.length; i++) {
+            if (Math.abs(sizes[i] - size) < Math.abs(sizes[index] - size)) {
+                index = i;
+            }
+        }
+        latencyNanos = 0;
+        overBudget = 0;
+        underBudget = 0;
+    }
+
+    // Độ trễ dự đoán ở kích thước sizes[i]: chi phí tỉ lệ với số pixel đầu vào
+    private float predictLatency(int i) {
+        float ratio = (float) sizes[i] / sizes[index];
+        return latencyNanos * ratio * ratio;
+    }
+
+    // Đổi sang kích thước sizes[i], độ trễ trung bình được quy đổi theo dự đoán cho tới khi có số đo mới
+    private void step(int i) {
+        latencyNanos = predictLatency(i);
+        index = i;
+        overBudget = 0;
+        underBudget = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tharusha.tfliteyolo;
+
+// Kiểu dữ liệu và tham số lượng tử hoá (scale, zero point) của một tensor vào/ra của mô hình
+public class TensorSpec {
+    public enum Type { FLOAT32, UINT8, INT8 }
+
+    public static final TensorSpec FLOAT32 = new TensorSpec(Type.FLOAT32, 1f, 0);
+
+    public final Type type;
+    public final float scale;   // Giá trị thực = (q - zeroPoint) * scale
+    public final int zeroPoint;
+
+    public TensorSpec(Type type, float scale, int zeroPoint) {
+        this.type = type;
+        // Tensor lượng tử hoá nhưng không có tham số (scale = 0) được coi như scale 1
+        this.scale = scale != 0 ? scale : 1f;
+        this.zeroPoint = zeroPoint;
+    }
+
+    public boolean isQuantized() {
+        return type != Type.FLOAT32;
+    }
+
+    public int bytesPerElement() {
+        return type == Type.FLOAT32 ? 4 : 1;
+    }
+
+    public int minValue() {
+        return type == Type.UINT8 ? 0 : -128;
+    }
+
+    public int maxValue() {
+        return type == Type.UINT8 ? 255 : 127;
+    }
+
+    // Lượng tử hoá giá trị thực về miền số nguyên của tensor (đã giới hạn trong khoảng hợp lệ)
+    public int quantize(float value) {
+        int q = Math.round(value / scale) + zeroPoint;
+        return Math.max(minValue(), Math.min(maxValue(), q));
+    }
+
+    public float dequantize(int q) {
+        return (q - zeroPoint) * scale;
+    }
+}
@@ -0,0 +1,73 @@
+package com.tharusha.tfliteyolo;
+
+// Lớp TileLayout chia một ảnh lớn thành các tile vuông chồng lắp nhau (kiểu SAHI) để phát hiện vật thể nhỏ.
+// Tile có cạnh bằng đầu vào mô hình (không bị thu nhỏ); nếu số tile vượt ngân sách thì tile được phóng to dần
+// (mỗi tile bị thu nhỏ nhiều hơn khi đưa vào mô hình) cho đến khi vừa ngân sách.
+public class TileLayout {
+    private static final float GROWTH = 1.25f; // Hệ số phóng to cạnh tile mỗi lần vượt ngân sách
+
+    public final int[] tiles; // Mỗi tile chiếm 4 phần tử liên tiếp: x, y, width, height
+    public int count;         // Số tile hiện có (kể cả tile toàn ảnh nếu có)
+    public int tileSize;      // Cạnh tile đã chọn (pixel ảnh gốc)
+
+    public TileLayout(int maxTiles) {
+        this.tiles = new int[Math.max(1, maxTiles) * 4];
+    }
+
+    // Tính lưới tile cho ảnh width x height. overlap: tỉ lệ chồng lắp giữa hai tile liền kề (0..0.9),
+    // includeFullFrame: thêm một tile toàn ảnh (tính vào ngân sách) để giữ được vật thể lớn bị cắt qua nhiều tile
+    public void compute(int width, int height, int modelSize, float overlap, boolean includeFullFrame) {
+        int maxTiles = tiles.length / 4;
+        overlap = Math.max(0, Math.min(overlap, 0.9f));
+        count = 0;
+        tileSize = Math.max(width, height);
+
+        int budget = maxTiles - (includeFullFrame ? 1 : 0);
+        int cols = 1, rows = 1;
+        if (budget >= 2 && (width > modelSize || height > modelSize)) {
+            int side = modelSize;
+            while (true) {
+                cols = gridSize(width, side, overlap);
+                rows = gridSize(height, side, overlap);
+                if (cols * rows <= budget) break;
+                side = (int) Math.ceil(side * GROWTH);
+            }
+            tileSize = side;
+        }
+
+        // Chỉ một tile: chính là toàn ảnh
+        if (cols * rows == 1) {
+            add(0, 0, width, height);
+            return;
+        }
+        if (includeFullFrame) {
+            add(0, 0, width, height);
+        }
+        int tileWidth = Math.min(tileSize, width);
+        int tileHeight = Math.min(tileSize, height);
+        for (int r = 0; r < rows; r++) {
+            // Các tile dàn đều, tile cuối chạm mép ảnh
+            int y = rows > 1 ? Math.round(r * (height - tileHeight) / (float) (rows - 1)) : 0;
+            for (int c = 0; c < cols; c++) {
+                int x = cols > 1 ? Math.round(c * (width - tileWidth) / (float) (cols - 1)) : 0;
+                add(x, y, tileWidth, tileHeight);
+            }
+        }
+    }
+
+    // Số tile cạnh side cần để phủ đoạn dài length với tỉ lệ chồng lắp overlap
+    private static int gridSize(int length, int side, float overlap) {
+        if (length <= side) return 1;
+        float step = side * (1 - overlap);
+        return 1 + (int) Math.ceil((length - side) / step);
+    }
+
+    private void add(int x, int y, int width, int height) {
+        int b = count * 4;
+        tiles[b] = x;
+        tiles[b + 1] = y;
+        tiles[b + 2] = width;
+        tiles[b + 3] = height;
+        count++;
+    }
+}
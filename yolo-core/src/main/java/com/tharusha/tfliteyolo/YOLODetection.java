@@ -8,6 +8,7 @@ public class YOLODetection {
     public float box_y;
     public float box_width;
     public float box_height;
+    public int trackId = -1;
     public YOLODetection() {
     }
 }
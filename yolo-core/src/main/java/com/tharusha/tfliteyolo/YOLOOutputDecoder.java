@@ -0,0 +1,192 @@
+package com.tharusha.tfliteyolo;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+// Lớp YOLOOutputDecoder giải mã tensor đầu ra [1][4 + numClasses][numAnchors] của YOLO vào DetectionBuffer
+// mà không cấp phát bộ nhớ trong mỗi frame. Hỗ trợ đầu ra FLOAT32 và lượng tử hoá (UINT8/INT8).
+public class YOLOOutputDecoder {
+    private final int numAnchors; // Số anchor (ví dụ: 8400)
+    private final int numClasses; // Số lớp (channels trừ đi 4: x, y, w, h)
+    private final TensorSpec outputSpec;
+
+    // Bộ nhớ tạm được cấp phát một lần
+    private final float[] row;         // Một hàng (channel) của tensor đầu ra FLOAT32
+    private final byte[] quantizedRow; // Một hàng (channel) của tensor đầu ra lượng tử hoá
+    private final float[] bestScores;  // Điểm cao nhất của từng anchor
+    private final int[] bestQuantized; // Điểm cao nhất của từng anchor (miền lượng tử hoá)
+    private final int[] bestClasses;   // Lớp có điểm cao nhất của từng anchor (-1: không vượt ngưỡng)
+
+    // View của bộ đệm đầu ra, chỉ tạo lại khi bộ đệm thay đổi
+    private ByteBuffer viewSource;
+    private FloatBuffer floatView;
+    private ByteBuffer byteView;
+
+    // Cấu hình "mọi lớp, một ngưỡng" cho các hàm nhận ngưỡng chung, chỉ tạo lại khi ngưỡng thay đổi
+    private DetectorConfig uniformConfig;
+    private float uniformThreshold;
+
+    public YOLOOutputDecoder(int numChannels, int numAnchors) {
+        this(numChannels, numAnchors, TensorSpec.FLOAT32);
+    }
+
+    public YOLOOutputDecoder(int numChannels, int numAnchors, TensorSpec outputSpec) {
+        this.numAnchors = numAnchors;
+        this.numClasses = numChannels - 4;
+        this.outputSpec = outputSpec;
+        this.row = outputSpec.isQuantized() ? null : new float[numAnchors];
+        this.quantizedRow = outputSpec.isQuantized() ? new byte[numAnchors] : null;
+        this.bestScores = new float[numAnchors];
+        this.bestQuantized = outputSpec.isQuantized() ? new int[numAnchors] : null;
+        this.bestClasses = new int[numAnchors];
+    }
+
+    // Giải mã bộ đệm đầu ra thô của interpreter theo kiểu dữ liệu của tensor đầu ra (mọi lớp, một ngưỡng)
+    public void decode(ByteBuffer output, float confidenceThreshold, Letterbox letterbox, DetectionBuffer out) {
+        decode(output, uniformConfig(confidenceThreshold), letterbox, out);
+    }
+
+    // Giải mã bộ đệm đầu ra thô, chỉ với các lớp được bật trong config và ngưỡng riêng của từng lớp
+    public void decode(ByteBuffer output, DetectorConfig config, Letterbox letterbox, DetectionBuffer out) {
+        if (output != viewSource) {
+            viewSource = output;
+            floatView = output.asFloatBuffer();
+            byteView = output.duplicate();
+        }
+        if (outputSpec.isQuantized()) {
+            decodeQuantized(byteView, config, letterbox, out);
+        } else {
+            decode(floatView, config, letterbox, out);
+        }
+    }
+
+    public void decode(FloatBuffer output, float confidenceThreshold, Letterbox letterbox, DetectionBuffer out) {
+        decode(output, uniformConfig(confidenceThreshold), letterbox, out);
+    }
+
+    // Giải mã đầu ra của mô hình. Toạ độ (chuẩn hoá 0..1 theo đầu vào mô hình) được đổi về toạ độ ảnh gốc
+    // theo letterbox và cắt trong khung ảnh. Mỗi anchor lấy lớp có điểm cao nhất trong các lớp được bật
+    // có điểm >= ngưỡng của lớp đó; anchor không có lớp nào như vậy bị bỏ qua.
+    public void decode(FloatBuffer output, DetectorConfig config, Letterbox letterbox, DetectionBuffer out) {
+        // Khởi tạo điểm tốt nhất ngay dưới ngưỡng nhỏ nhất: anchor nào không có lớp vượt ngưỡng sẽ giữ lớp -1
+        float minThreshold = config.getMinThreshold();
+        Arrays.fill(bestScores, Math.nextDown(minThreshold));
+        Arrays.fill(bestClasses, -1);
+
+        // Duyệt theo từng channel (liên tục trong bộ nhớ) thay vì theo từng anchor để tận dụng cache;
+        // channel của lớp bị tắt không được đọc
+        for (int k = 0; k < config.getEnabledCount(); k++) {
+            int c = config.getEnabledClass(k);
+            if (c >= numClasses) break;
+            float threshold = config.getThreshold(c);
+            output.position((4 + c) * numAnchors);
+            output.get(row, 0, numAnchors);
+            if (threshold <= minThreshold) {
+                // Ngưỡng của lớp là ngưỡng nhỏ nhất: vượt điểm tốt nhất hiện tại nghĩa là đã vượt ngưỡng
+                for (int i = 0; i < numAnchors; i++) {
+                    if (row[i] > bestScores[i]) {
+                        bestScores[i] = row[i];
+                        bestClasses[i] = c;
+                    }
+                }
+            } else {
+                for (int i = 0; i < numAnchors; i++) {
+                    float value = row[i];
+                    if (value > bestScores[i] && value >= threshold) {
+                        bestScores[i] = value;
+                        bestClasses[i] = c;
+                    }
+                }
+            }
+        }
+
+        // Chỉ đọc toạ độ box cho những anchor vượt ngưỡng
+        out.clear();
+        for (int i = 0; i < numAnchors; i++) {
+            if (bestClasses[i] < 0) {
+                continue;
+            }
+            if (!addBox(output.get(i), output.get(numAnchors + i),
+                    output.get(2 * numAnchors + i), output.get(3 * numAnchors + i),
+                    bestScores[i], bestClasses[i], letterbox, out)) {
+                break; // Bộ đệm đầy
+            }
+        }
+    }
+
+    // Giải mã đầu ra lượng tử hoá: so sánh điểm ngay trong miền số nguyên,
+    // chỉ giải lượng tử (dequantize) điểm và toạ độ của các anchor vượt ngưỡng
+    private void decodeQuantized(ByteBuffer output, DetectorConfig config, Letterbox letterbox, DetectionBuffer out) {
+        // UINT8 được đổi sang miền có dấu bằng cách lật bit cao (giữ nguyên thứ tự) để dùng chung một vòng lặp
+        boolean unsigned = outputSpec.type == TensorSpec.Type.UINT8;
+        int flip = unsigned ? 0x80 : 0;
+        int signedZeroPoint = outputSpec.zeroPoint - (unsigned ? 128 : 0);
+
+        // Giá trị lượng tử nhỏ nhất có điểm >= ngưỡng
+        int minThreshold = quantizedThreshold(config.getMinThreshold(), signedZeroPoint);
+        Arrays.fill(bestQuantized, minThreshold - 1);
+        Arrays.fill(bestClasses, -1);
+
+        for (int k = 0; k < config.getEnabledCount(); k++) {
+            int c = config.getEnabledClass(k);
+            if (c >= numClasses) break;
+            int threshold = quantizedThreshold(config.getThreshold(c), signedZeroPoint);
+            output.position((4 + c) * numAnchors);
+            output.get(quantizedRow, 0, numAnchors);
+            for (int i = 0; i < numAnchors; i++) {
+                int value = (byte) (quantizedRow[i] ^ flip);
+                if (value > bestQuantized[i] && value >= threshold) {
+                    bestQuantized[i] = value;
+                    bestClasses[i] = c;
+                }
+            }
+        }
+
+        float scale = outputSpec.scale;
+        out.clear();
+        for (int i = 0; i < numAnchors; i++) {
+            if (bestClasses[i] < 0) {
+                continue;
+            }
+            float x = ((byte) (output.get(i) ^ flip) - signedZeroPoint) * scale;
+            float y = ((byte) (output.get(numAnchors + i) ^ flip) - signedZeroPoint) * scale;
+            float width = ((byte) (output.get(2 * numAnchors + i) ^ flip) - signedZeroPoint) * scale;
+            float height = ((byte) (output.get(3 * numAnchors + i) ^ flip) - signedZeroPoint) * scale;
+            float score = (bestQuantized[i] - signedZeroPoint) * scale;
+            if (!addBox(x, y, width, height, score, bestClasses[i], letterbox, out)) {
+                break; // Bộ đệm đầy
+            }
+        }
+    }
+
+    private int quantizedThreshold(float threshold, int signedZeroPoint) {
+        // Ngưỡng vượt miền giá trị (không bật lớp nào) được giữ trong miền int
+        double value = Math.ceil(threshold / outputSpec.scale) + signedZeroPoint;
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private DetectorConfig uniformConfig(float confidenceThreshold) {
+        if (uniformConfig == null || uniformThreshold != confidenceThreshold) {
+            uniformConfig = new DetectorConfig(numClasses, confidenceThreshold, null);
+            uniformThreshold = confidenceThreshold;
+        }
+        return uniformConfig;
+    }
+
+    // Đổi box dạng tâm (chuẩn hoá) sang góc trên ảnh gốc và thêm vào out
+    private static boolean addBox(float x, float y, float width, float height, float score, int classId,
+                                  Letterbox letterbox, DetectionBuffer out) {
+        float halfWidth = width / 2;
+        float halfHeight = height / 2;
+        float left = clamp(letterbox.toSourceX(x - halfWidth), letterbox.sourceWidth);
+        float top = clamp(letterbox.toSourceY(y - halfHeight), letterbox.sourceHeight);
+        float right = clamp(letterbox.toSourceX(x + halfWidth), letterbox.sourceWidth);
+        float bottom = clamp(letterbox.toSourceY(y + halfHeight), letterbox.sourceHeight);
+        return out.add(left, top, right, bottom, score, classId);
+    }
+
+    private static float clamp(float value, float max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,113 @@
+package com.tharusha.tfliteyolo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Lớp YoloDataset đọc tập ảnh có nhãn theo định dạng YOLO (Ultralytics): mỗi ảnh <tên>.jpg có file <tên>.txt,
+// mỗi dòng "lớp cx cy w h" với toạ độ chuẩn hoá [0, 1]. File nhãn nằm trong thư mục "labels" tương ứng với
+// thư mục "images" (dataset/images/val -> dataset/labels/val), hoặc cạnh ảnh nếu không có thư mục đó.
+public class YoloDataset {
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "webp", "bmp");
+
+    // Một ảnh và file nhãn của nó (file nhãn không tồn tại: ảnh không có đối tượng nào)
+    public static class Sample {
+        public final File image;
+        public final File labels;
+
+        Sample(File image, File labels) {
+            this.image = image;
+            this.labels = labels;
+        }
+    }
+
+    public final File imageDirectory;
+    public final File labelDirectory;
+    public final List<Sample> samples;
+
+    private YoloDataset(File imageDirectory, File labelDirectory, List<Sample> samples) {
+        this.imageDirectory = imageDirectory;
+        this.labelDirectory = labelDirectory;
+        this.samples = Collections.unmodifiableList(samples);
+    }
+
+    // root: thư mục ảnh (dataset/images/val) hoặc thư mục gốc có thư mục con "images"
+    public static YoloDataset open(File root) throws IOException {
+        File imageDirectory = new File(root, "images").isDirectory() ? new File(root, "images") : root;
+        File[] files = imageDirectory.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list " + imageDirectory);
+        }
+        File labelDirectory = labelDirectoryFor(imageDirectory);
+        Arrays.sort(files);
+        List<Sample> samples = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot < 0 || !IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.US))) continue;
+            samples.add(new Sample(file, new File(labelDirectory, name.substring(0, dot) + ".txt")));
+        }
+        return new YoloDataset(imageDirectory, labelDirectory, samples);
+    }
+
+    // Thay thành phần "images" cuối cùng của đường dẫn bằng "labels" (nếu thư mục đó tồn tại)
+    static File labelDirectoryFor(File imageDirectory) {
+        List<String> parts = new ArrayList<>();
+        for (File file = imageDirectory.getAbsoluteFile(); file != null; file = file.getParentFile()) {
+            parts.add(0, file.getName());
+        }
+        int index = parts.lastIndexOf("images");
+        if (index < 0) {
+            return imageDirectory;
+        }
+        parts.set(index, "labels");
+        File labels = new File(File.separator);
+        for (String part : parts) {
+            if (!part.isEmpty()) labels = new File(labels, part);
+        }
+        return labels.isDirectory() ? labels : imageDirectory;
+    }
+
+    // Đọc nhãn vào out (box left/top/right/bottom theo pixel của ảnh width x height, điểm 1).
+    // Trả về out, hoặc một bộ đệm lớn hơn nếu ảnh có nhiều nhãn hơn capacity của out: không nhãn nào bị bỏ
+    // (thiếu ground truth làm recall / mAP cao hơn thực tế)
+    public static DetectionBuffer readLabels(File labels, int width, int height, DetectionBuffer out)
+            throws IOException {
+        out.clear();
+        if (!labels.exists()) {
+            return out;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(labels), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 5) continue;
+                try {
+                    int classId = Integer.parseInt(fields[0]);
+                    float cx = Float.parseFloat(fields[1]) * width;
+                    float cy = Float.parseFloat(fields[2]) * height;
+                    float w = Float.parseFloat(fields[3]) * width;
+                    float h = Float.parseFloat(fields[4]) * height;
+                    if (out.count == out.capacity) {
+                        DetectionBuffer larger = new DetectionBuffer(Math.max(16, out.capacity * 2));
+                        larger.copyFrom(out);
+                        out = larger;
+                    }
+                    out.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, 1f, classId);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid label in " + labels + ": " + line, e);
+                }
+            }
+        }
+        return out;
+    }
+}
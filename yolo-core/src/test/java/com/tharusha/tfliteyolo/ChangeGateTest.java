@@ -0,0 +1,83 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the change gate skips static and uniformly re-exposed frames, flags only the region that
+ * changed, and forces a refresh after too many skipped frames.
+ */
+public class ChangeGateTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void staticFrame_andBrightnessShift_areSkipped() {
+        ChangeGate gate = new ChangeGate();
+        int[] frame = texturedFrame(0);
+        gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+        assertTrue(gate.hasChanged()); // Chưa có tham chiếu
+        gate.accept();
+
+        gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+        assertFalse(gate.hasChanged());
+
+        // Tự động phơi sáng: cả frame sáng hơn 30 mức
+        gate.sampleArgb(texturedFrame(30), WIDTH, WIDTH, HEIGHT);
+        assertFalse(gate.hasChanged());
+    }
+
+    @Test
+    public void localChange_marksOnlyItsRegion() {
+        ChangeGate gate = new ChangeGate();
+        int[] frame = texturedFrame(0);
+        gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+        gate.hasChanged();
+        gate.accept();
+
+        // Một đối tượng sáng xuất hiện ở góc dưới phải
+        int[] changed = frame.clone();
+        for (int y = 360; y < 440; y++) {
+            Arrays.fill(changed, y * WIDTH + 500, y * WIDTH + 600, 0xffffffff);
+        }
+        gate.sampleArgb(changed, WIDTH, WIDTH, HEIGHT);
+        assertTrue(gate.hasChanged());
+        assertTrue(gate.changedFraction < 0.1f);
+        assertTrue(ChangeGate.regionChanged(gate.changedCells, 320, 240, 320, 240, WIDTH, HEIGHT));
+        assertFalse(ChangeGate.regionChanged(gate.changedCells, 0, 0, 320, 240, WIDTH, HEIGHT));
+        assertFalse(ChangeGate.regionChanged(gate.changedCells, 0, 240, 320, 240, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void staticScene_isRefreshedAfterMaxSkippedFrames() {
+        ChangeGate gate = new ChangeGate();
+        gate.maxSkippedFrames = 3;
+        int[] frame = texturedFrame(0);
+        gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+        gate.hasChanged();
+        gate.accept();
+
+        for (int i = 0; i < 3; i++) {
+            gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+            assertFalse(gate.hasChanged());
+        }
+        gate.sampleArgb(frame, WIDTH, WIDTH, HEIGHT);
+        assertTrue(gate.hasChanged());
+        assertEquals(1f, gate.changedFraction, 0f);
+    }
+
+    // Ảnh xám có hoạ tiết ô vuông 40 pixel, cộng thêm độ sáng offset
+    private static int[] texturedFrame(int offset) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int luma = (((x / 40) + (y / 40)) % 2 == 0 ? 60 : 140) + offset;
+                pixels[y * WIDTH + x] = 0xff000000 | (luma << 16) | (luma << 8) | luma;
+            }
+        }
+        return pixels;
+    }
+}
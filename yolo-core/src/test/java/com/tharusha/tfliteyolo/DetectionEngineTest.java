@@ -0,0 +1,104 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the post-inference pipeline (letterbox, decode, NMS) end to end on the JVM with a replayed backend.
+ */
+public class DetectionEngineTest {
+    private static final int INPUT_SIZE = 640;
+    private static final int NUM_CHANNELS = 4 + 3;
+    private static final int NUM_ANCHORS = 8400;
+
+    @Test
+    public void replayedOutput_isDecodedThroughLetterboxAndNms() {
+        // Hai box gần trùng nhau cùng lớp 1 (NMS giữ box điểm cao) và một box lớp 2
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        setBox(output, 0, 0.5f, 0.5f, 0.5f, 0.25f, 1, 0.9f);
+        setBox(output, 1, 0.51f, 0.5f, 0.5f, 0.25f, 1, 0.8f);
+        setBox(output, 2, 0.25f, 0.5f, 0.1f, 0.1f, 2, 0.7f);
+        ReplayBackend backend = ReplayBackend.ofFloatOutputs(INPUT_SIZE, NUM_CHANNELS, NUM_ANCHORS,
+                Arrays.asList(output));
+
+        DetectionEngine engine = new DetectionEngine(backend, 1);
+        int[] frame = new int[1280 * 720]; // scale 0.5, padY 140
+        engine.preprocessArgb(frame, 1280, 0, 0, 1280, 720);
+        DetectionBuffer results = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+        engine.detect(results);
+        engine.close();
+
+        assertEquals(2, results.count);
+        assertEquals(1, results.classIds[0]);
+        assertEquals(0.9f, results.scores[0], 1e-6f);
+        assertEquals(320, results.boxes[0], 1e-3f);
+        assertEquals(200, results.boxes[1], 1e-3f);
+        assertEquals(960, results.boxes[2], 1e-3f);
+        assertEquals(520, results.boxes[3], 1e-3f);
+        assertEquals(2, results.classIds[1]);
+    }
+
+    @Test
+    public void recording_roundTripsAndReplaysInOrder() throws Exception {
+        float[] first = new float[NUM_CHANNELS * NUM_ANCHORS];
+        setBox(first, 0, 0.5f, 0.5f, 0.2f, 0.2f, 0, 0.9f);
+        float[] second = new float[NUM_CHANNELS * NUM_ANCHORS];
+        setBox(second, 0, 0.5f, 0.5f, 0.2f, 0.2f, 2, 0.6f);
+
+        // Ghi qua RecordingBackend rồi đọc lại như một bản ghi từ thiết bị
+        RecordingBackend recorder = new RecordingBackend(ReplayBackend.ofFloatOutputs(INPUT_SIZE, NUM_CHANNELS,
+                NUM_ANCHORS, Arrays.asList(first, second)), 2);
+        DetectionEngine recording = new DetectionEngine(recorder, 1);
+        DetectionBuffer results = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+        recording.detect(results);
+        recording.detect(results);
+        recording.detect(results); // Vượt maxOutputs: không ghi thêm
+        recording.close();
+        assertEquals(2, recorder.getOutputCount());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.write(bytes);
+        ReplayBackend replay = ReplayBackend.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(2, replay.getOutputCount());
+
+        DetectionEngine engine = new DetectionEngine(replay, 1);
+        int[] expectedClasses = {0, 2, 0};
+        for (int expected : expectedClasses) {
+            engine.preprocessArgb(new int[INPUT_SIZE * INPUT_SIZE], INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+            engine.detect(results);
+            assertEquals(1, results.count);
+            assertEquals(expected, results.classIds[0]);
+        }
+        engine.close();
+    }
+
+    @Test
+    public void preprocessBandFailure_isRethrownInsteadOfHanging() {
+        ReplayBackend backend = ReplayBackend.ofFloatOutputs(INPUT_SIZE, NUM_CHANNELS, NUM_ANCHORS,
+                Arrays.asList(new float[NUM_CHANNELS * NUM_ANCHORS]));
+        DetectionEngine engine = new DetectionEngine(backend, 2);
+        engine.close(); // Thread pool tiền xử lý từ chối các dải hàng
+        try {
+            engine.preprocessArgb(new int[INPUT_SIZE * INPUT_SIZE], INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            // Luồng gọi không bị treo chờ dải hàng không bao giờ chạy
+        }
+    }
+
+    // Ghi một box (toạ độ chuẩn hoá theo đầu vào mô hình) vào anchor
+    private static void setBox(float[] output, int anchor, float x, float y, float width, float height,
+                               int classId, float score) {
+        output[anchor] = x;
+        output[NUM_ANCHORS + anchor] = y;
+        output[2 * NUM_ANCHORS + anchor] = width;
+        output[3 * NUM_ANCHORS + anchor] = height;
+        output[(4 + classId) * NUM_ANCHORS + anchor] = score;
+    }
+}
@@ -0,0 +1,96 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Appends detections to the log, then checks indexed range queries against a plain scan and across reopening.
+ */
+public class DetectionLogTest {
+    @Test
+    public void rangeQueries_matchScanAndSurviveReopen() throws Exception {
+        File directory = Files.createTempDirectory("log").toFile();
+        DetectionLog.Options options = new DetectionLog.Options();
+        options.segmentBytes = 16 + 1000 * DetectionLog.RECORD_BYTES; // Nhiều segment, mỗi segment vài block
+
+        // 600 frame, mỗi frame 5 detection (lớp frame % 3, 0, 1, 2, 0), timestamp = 10 * frame
+        DetectionLog log = new DetectionLog(directory, options);
+        DetectionBuffer frame = new DetectionBuffer(5);
+        for (int f = 0; f < 600; f++) {
+            frame.clear();
+            for (int i = 0; i < 5; i++) {
+                frame.add(i, i, i + 10, i + 10, 0.5f, i == 0 ? f % 3 : (i - 1) % 3);
+                frame.trackIds[i] = f * 5 + i;
+            }
+            assertTrue(log.append(f * 10L, f, frame));
+        }
+        log.flush();
+        assertEquals(3000, log.getRecordCount());
+        assertRangeMatchesScan(log, 1234, 4567);
+        log.close();
+
+        DetectionLog reopened = new DetectionLog(directory, options);
+        assertEquals(3000, reopened.getRecordCount());
+        assertEquals(3000, reopened.count(0, Long.MAX_VALUE));
+        assertRangeMatchesScan(reopened, 1234, 4567);
+        assertEquals(0, reopened.count(6000, 7000));
+
+        // Bản ghi đọc lại đúng thứ tự và nội dung
+        final long[] seen = new long[1];
+        reopened.query(2000, 2010, (timestamp, frameId, classId, score, left, top, right, bottom, trackId) -> {
+            assertEquals(200, frameId);
+            assertEquals(1000 + seen[0], trackId);
+            assertEquals(seen[0] + 10, right, 0f);
+            seen[0]++;
+        });
+        assertEquals(5, seen[0]);
+        reopened.close();
+    }
+
+    @Test
+    public void oldSegments_areDeletedBeyondLimit() throws Exception {
+        File directory = Files.createTempDirectory("retention").toFile();
+        DetectionLog.Options options = new DetectionLog.Options();
+        options.segmentBytes = 16 + 100 * DetectionLog.RECORD_BYTES;
+        options.maxSegments = 3;
+
+        DetectionLog log = new DetectionLog(directory, options);
+        DetectionBuffer frame = new DetectionBuffer(10);
+        for (int i = 0; i < 10; i++) {
+            frame.add(0, 0, 1, 1, 0.9f, 0);
+        }
+        for (int f = 0; f < 95; f++) {
+            log.append(f, f, frame);
+            log.flush();
+        }
+        log.close();
+
+        // 950 bản ghi, 100 bản ghi mỗi segment: chỉ còn 3 segment cuối (frame 70..94)
+        assertEquals(3, directory.listFiles().length);
+        DetectionLog reopened = new DetectionLog(directory, options);
+        assertEquals(250, reopened.getRecordCount());
+        assertEquals(0, reopened.count(0, 70));
+        assertEquals(250, reopened.count(70, 95));
+        reopened.close();
+    }
+
+    // So sánh đếm theo lớp qua chỉ mục với đếm bằng cách duyệt từng bản ghi
+    private static void assertRangeMatchesScan(DetectionLog log, long from, long to) {
+        final long[] scanned = new long[3];
+        log.query(from, to, (timestamp, frameId, classId, score, left, top, right, bottom, trackId) -> {
+            assertTrue(timestamp >= from && timestamp < to);
+            scanned[classId]++;
+        });
+        long[] indexed = log.countByClass(from, to);
+        assertEquals(3, indexed.length);
+        for (int c = 0; c < 3; c++) {
+            assertEquals(scanned[c], indexed[c]);
+        }
+        // Frame 124..456, mỗi frame 5 bản ghi
+        assertEquals(333 * 5, log.count(from, to));
+    }
+}
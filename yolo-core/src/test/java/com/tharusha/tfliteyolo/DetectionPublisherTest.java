@@ -0,0 +1,103 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Publishes frames from one thread to several consumers and checks ordering, conflation and overrun handling.
+ */
+public class DetectionPublisherTest {
+    @Test
+    public void consumers_seeConsistentFramesWithoutSlowingProducer() throws Exception {
+        DetectionPublisher publisher = new DetectionPublisher(16, 8);
+        List<Long> ordered = Collections.synchronizedList(new ArrayList<>());
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+
+        DetectionPublisher.Subscription fast = publisher.subscribe("fast", DetectionPublisher.Mode.BACKPRESSURE,
+                frame -> checkFrame(frame, errors));
+        DetectionPublisher.Subscription conflating = publisher.subscribe("conflating", DetectionPublisher.Mode.CONFLATE,
+                frame -> {
+                    checkFrame(frame, errors);
+                    sleep(1);
+                });
+        // Consumer bị chặn tới khi producer phát xong: tụt sau cả ring
+        DetectionPublisher.Subscription blocked = publisher.subscribe("blocked", DetectionPublisher.Mode.BACKPRESSURE,
+                frame -> {
+                    awaitQuietly(release);
+                    checkFrame(frame, errors);
+                    ordered.add(frame.frameId);
+                });
+
+        DetectionBuffer detections = new DetectionBuffer(8);
+        int frames = 2000;
+        for (int f = 0; f < frames; f++) {
+            detections.clear();
+            for (int i = 0; i < f % 8; i++) {
+                detections.add(f, f, f + 1, f + 1, f, i);
+            }
+            publisher.publish(f, f, 640, 480, detections);
+        }
+        release.countDown();
+
+        awaitConsumed(fast, frames - 1);
+        awaitConsumed(conflating, frames - 1);
+        awaitConsumed(blocked, frames - 1);
+        publisher.close();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertTrue(conflating.getSkipped() > 0);
+        assertTrue(blocked.getOverruns() > 0);
+        // Các frame nhận được tăng dần, không lặp lại, và mọi frame không bị bỏ đều đã được nhận
+        for (int i = 1; i < ordered.size(); i++) {
+            assertTrue(ordered.get(i) > ordered.get(i - 1));
+        }
+        assertEquals(frames, ordered.size() + blocked.getOverruns());
+    }
+
+    // Nội dung frame phải khớp với frameId (không bị đọc dở khi producer ghi đè slot)
+    private static void checkFrame(DetectionPublisher.Frame frame, List<String> errors) {
+        long f = frame.frameId;
+        DetectionBuffer detections = frame.detections;
+        if (frame.sequence != f || detections.count != f % 8) {
+            errors.add("frame " + f + ": sequence " + frame.sequence + ", count " + detections.count);
+            return;
+        }
+        for (int i = 0; i < detections.count; i++) {
+            if (detections.scores[i] != f || detections.boxes[i * 4] != f || detections.classIds[i] != i) {
+                errors.add("frame " + f + ": torn detection " + i);
+            }
+        }
+    }
+
+    private static void awaitConsumed(DetectionPublisher.Subscription subscription, long sequence) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (subscription.getConsumed() < sequence) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that concurrent streams keep their own letterbox state and that waiting calls are served round-robin
+ * across streams rather than in arrival order.
+ */
+public class DetectionServiceTest {
+    private static final int INPUT_SIZE = 640;
+    private static final int NUM_CHANNELS = 4 + 3;
+    private static final int NUM_ANCHORS = 8400;
+
+    @Test
+    public void concurrentStreams_keepTheirOwnFrameContext() throws Exception {
+        DetectionService service = new DetectionService(engines(3, null), 3);
+        int[][] sizes = {{1280, 720}, {640, 640}, {720, 1280}, {320, 240}};
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int[] size : sizes) {
+            DetectionService.Stream stream = service.openStream(size[0] + "x" + size[1]);
+            Thread thread = new Thread(() -> {
+                int[] frame = new int[size[0] * size[1]];
+                DetectionBuffer out = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        stream.detect(frame, size[0], size[1], out);
+                        // Box ở giữa đầu vào mô hình, rộng 0.5: luôn ở giữa ảnh của chính luồng này
+                        assertEquals(1, out.count);
+                        assertEquals(size[0] / 2f, (out.boxes[0] + out.boxes[2]) / 2, 1e-2f);
+                        assertEquals(size[1] / 2f, (out.boxes[1] + out.boxes[3]) / 2, 1e-2f);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        service.close();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    @Test
+    public void waitingCalls_areServedRoundRobinAcrossStreams() throws Exception {
+        // Một engine, suy luận bị chặn cho tới khi test mở cổng
+        Semaphore gate = new Semaphore(0);
+        DetectionService service = new DetectionService(engines(1, gate), 4);
+        DetectionService.Stream a = service.openStream("a");
+        DetectionService.Stream b = service.openStream("b");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(a, "a1", order));
+        while (!gate.hasQueuedThreads()) {
+            Thread.sleep(1);
+        }
+        // Luồng a gửi thêm hai frame trước khi luồng b gửi một frame
+        String[] pending = {"a2", "a3", "b1"};
+        for (int i = 0; i < pending.length; i++) {
+            threads.add(start(pending[i].startsWith("a") ? a : b, pending[i], order));
+            while (service.getWaitingCount() < i + 1) {
+                Thread.sleep(1);
+            }
+        }
+        gate.release(4);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        service.close();
+
+        assertEquals(Arrays.asList("a1", "a2", "b1", "a3"), order);
+        assertEquals(3, a.getFrameCount());
+        assertEquals(1, b.getFrameCount());
+    }
+
+    private static Thread start(DetectionService.Stream stream, String label, List<String> order) {
+        Thread thread = new Thread(() -> {
+            try {
+                stream.detect(engine -> {
+                    order.add(label);
+                    engine.preprocessArgb(new int[INPUT_SIZE * INPUT_SIZE], INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+                }, new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    // count engine, mỗi engine một backend riêng trả về một box ở giữa đầu vào mô hình (gate: chặn mỗi lần chạy)
+    private static DetectionEngine[] engines(int count, Semaphore gate) {
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        output[0] = 0.5f;
+        output[NUM_ANCHORS] = 0.5f;
+        output[2 * NUM_ANCHORS] = 0.5f;
+        output[3 * NUM_ANCHORS] = 0.5f;
+        output[4 * NUM_ANCHORS] = 0.9f;
+        DetectionEngine[] engines = new DetectionEngine[count];
+        for (int i = 0; i < count; i++) {
+            ReplayBackend replay = ReplayBackend.ofFloatOutputs(INPUT_SIZE, NUM_CHANNELS, NUM_ANCHORS,
+                    Collections.singletonList(output));
+            engines[i] = new DetectionEngine(gate == null ? replay : new InferenceBackend() {
+                @Override
+                public int[] getInputShape() {
+                    return replay.getInputShape();
+                }
+
+                @Override
+                public int[] getOutputShape() {
+                    return replay.getOutputShape();
+                }
+
+                @Override
+                public TensorSpec getInputSpec() {
+                    return replay.getInputSpec();
+                }
+
+                @Override
+                public TensorSpec getOutputSpec() {
+                    return replay.getOutputSpec();
+                }
+
+                @Override
+                public void run(ByteBuffer input, ByteBuffer out) {
+                    gate.acquireUninterruptibly();
+                    replay.run(input, out);
+                }
+
+                @Override
+                public boolean resizeInput(int size) {
+                    return false;
+                }
+            }, 1);
+        }
+        return engines;
+    }
+}
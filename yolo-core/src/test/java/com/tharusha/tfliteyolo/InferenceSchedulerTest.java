@@ -0,0 +1,76 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the inference interval follows scene motion and never runs faster than measured inference latency.
+ */
+public class InferenceSchedulerTest {
+    private static final long FRAME_NANOS = 33_333_333L; // 30 fps
+
+    @Test
+    public void interval_followsMotion() {
+        InferenceScheduler scheduler = feedFrames(new InferenceScheduler(), 10);
+        scheduler.onInferenceCompleted(10_000_000L); // Nhanh hơn một frame: không giới hạn
+        assertEquals(scheduler.maxInterval, scheduler.currentInterval(0));
+        assertEquals(scheduler.maxInterval, scheduler.currentInterval(scheduler.lowMotion));
+        assertEquals(1, scheduler.currentInterval(scheduler.highMotion));
+        assertEquals(1, scheduler.currentInterval(10));
+        // Giữa hai ngưỡng: khoảng cách giảm dần khi chuyển động tăng
+        float mid = (scheduler.lowMotion + scheduler.highMotion) / 2;
+        int midInterval = scheduler.currentInterval(mid);
+        assertTrue(midInterval > 1 && midInterval < scheduler.maxInterval);
+        assertTrue(scheduler.currentInterval(mid * 0.5f) >= midInterval);
+    }
+
+    @Test
+    public void interval_isAtLeastInferenceLatencyInFrames() {
+        InferenceScheduler scheduler = feedFrames(new InferenceScheduler(), 10);
+        // Suy luận 90 ms ~ 2.7 frame: chuyển động nhanh cũng không chạy dày hơn
+        scheduler.onInferenceCompleted(90_000_000L);
+        assertEquals(3, scheduler.currentInterval(scheduler.highMotion));
+        // Suy luận rất chậm vượt cả maxInterval khi cảnh tĩnh
+        for (int i = 0; i < 50; i++) {
+            scheduler.onInferenceCompleted(390_000_000L);
+        }
+        assertEquals(12, scheduler.currentInterval(0));
+    }
+
+    @Test
+    public void shouldRunInference_waitsForInterval() {
+        InferenceScheduler scheduler = new InferenceScheduler();
+        long timestamp = 0;
+        scheduler.onFrame(timestamp);
+        assertTrue(scheduler.shouldRunInference(0)); // Frame đầu tiên luôn suy luận
+        scheduler.onInferenceStarted();
+        scheduler.onInferenceCompleted(10_000_000L);
+
+        int frames = 0;
+        do {
+            timestamp += FRAME_NANOS;
+            scheduler.onFrame(timestamp);
+            frames++;
+        } while (!scheduler.shouldRunInference(0));
+        assertEquals(scheduler.maxInterval, frames);
+
+        scheduler.onInferenceStarted();
+        timestamp += FRAME_NANOS;
+        scheduler.onFrame(timestamp);
+        assertTrue(scheduler.shouldRunInference(scheduler.highMotion));
+
+        // reset: frame kế tiếp suy luận ngay
+        scheduler.onInferenceStarted();
+        scheduler.reset();
+        scheduler.onFrame(timestamp + FRAME_NANOS);
+        assertTrue(scheduler.shouldRunInference(0));
+    }
+
+    private static InferenceScheduler feedFrames(InferenceScheduler scheduler, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.onFrame(i * FRAME_NANOS);
+        }
+        return scheduler;
+    }
+}
@@ -0,0 +1,62 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link LatencyHistogram} percentiles against exact percentiles and that concurrent recording loses no samples.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        Random random = new Random(7);
+        long[] values = new long[100000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Phân phối đuôi dài giống thời gian suy luận: khoảng 20ms, thỉnh thoảng chậm hơn nhiều
+            values[i] = (long) (20e6 * Math.exp(random.nextGaussian() * 0.4));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[]{50, 90, 99}) {
+            long exact = values[(int) Math.ceil(values.length * p / 100) - 1];
+            assertEquals(exact, histogram.getPercentile(p), exact * 0.125);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void bucketBounds_containValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+        }
+    }
+
+    @Test
+    public void concurrentRecording_countsEverySample() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= 50000; i++) {
+                    histogram.record(i * 1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200000, histogram.getCount());
+        assertEquals(50000 * 1000L, histogram.getMax());
+    }
+}
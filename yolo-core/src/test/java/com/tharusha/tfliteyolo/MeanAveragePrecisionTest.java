@@ -0,0 +1,80 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks COCO-style AP on hand-built predictions and the YOLO label reader used by the evaluation harness.
+ */
+public class MeanAveragePrecisionTest {
+    @Test
+    public void ap_followsMatchQualityAndRecall() {
+        MeanAveragePrecision map = new MeanAveragePrecision(3);
+        DetectionBuffer predictions = new DetectionBuffer(10);
+        DetectionBuffer labels = new DetectionBuffer(10);
+
+        // Lớp 0: khớp hoàn toàn, thêm một dự đoán sai có điểm thấp hơn (không ảnh hưởng AP)
+        labels.add(0, 0, 100, 100, 1f, 0);
+        predictions.add(0, 0, 100, 100, 0.9f, 0);
+        predictions.add(200, 200, 300, 300, 0.3f, 0);
+        // Lớp 1: IoU 0.68 (đạt các ngưỡng 0.5 .. 0.65, tức 4 / 10 ngưỡng)
+        labels.add(0, 0, 100, 100, 1f, 1);
+        predictions.add(0, 0, 100, 68, 0.8f, 1);
+        // Lớp 2: hai box nhãn, chỉ một được phát hiện (recall tối đa 0.5)
+        labels.add(400, 400, 500, 500, 1f, 2);
+        labels.add(600, 600, 700, 700, 1f, 2);
+        predictions.add(400, 400, 500, 500, 0.7f, 2);
+        map.add(predictions, labels);
+
+        MeanAveragePrecision.Result result = map.compute();
+        assertEquals(1f, result.ap50(0), 1e-6f);
+        assertEquals(1f, result.ap5095(0), 1e-6f);
+        assertEquals(1f, result.ap50(1), 1e-6f);
+        assertEquals(0.4f, result.ap5095(1), 1e-6f);
+        assertEquals(51f / 101, result.ap50(2), 1e-6f);
+        assertEquals((1f + 1f + 51f / 101) / 3, result.map50, 1e-6f);
+    }
+
+    @Test
+    public void yoloLabels_areConvertedToPixelBoxes() throws Exception {
+        File root = Files.createTempDirectory("dataset").toFile();
+        File images = new File(root, "images/val");
+        File labels = new File(root, "labels/val");
+        assertTrue(images.mkdirs() && labels.mkdirs());
+        assertTrue(new File(images, "a.jpg").createNewFile());
+        assertTrue(new File(images, "notes.txt").createNewFile());
+        try (Writer writer = new FileWriter(new File(labels, "a.txt"))) {
+            writer.write("2 0.5 0.25 0.5 0.1\n\n");
+        }
+
+        YoloDataset dataset = YoloDataset.open(images);
+        assertEquals(1, dataset.samples.size());
+        assertEquals(labels.getAbsoluteFile(), dataset.samples.get(0).labels.getParentFile());
+
+        DetectionBuffer out = new DetectionBuffer(10);
+        YoloDataset.readLabels(dataset.samples.get(0).labels, 640, 480, out);
+        assertEquals(1, out.count);
+        assertEquals(2, out.classIds[0]);
+        assertEquals(160, out.boxes[0], 1e-3f);
+        assertEquals(96, out.boxes[1], 1e-3f);
+        assertEquals(480, out.boxes[2], 1e-3f);
+        assertEquals(144, out.boxes[3], 1e-3f);
+
+        // Nhiều nhãn hơn capacity của bộ đệm: trả về bộ đệm lớn hơn, không bỏ nhãn nào
+        try (Writer writer = new FileWriter(new File(labels, "a.txt"))) {
+            for (int i = 0; i < 25; i++) {
+                writer.write(i % 3 + " 0.5 0.5 0.1 0.1\n");
+            }
+        }
+        DetectionBuffer grown = YoloDataset.readLabels(dataset.samples.get(0).labels, 640, 480, out);
+        assertEquals(25, grown.count);
+        assertEquals(24 % 3, grown.classIds[24]);
+        assertTrue(grown.capacity >= 25);
+    }
+}
@@ -0,0 +1,162 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link NonMaxSuppression} against the brute-force list based NMS it replaced
+ * (sort, remove(0), removeIf) on synthetic boxes.
+ */
+public class NonMaxSuppressionTest {
+
+    @Test
+    public void classAgnostic_matchesBruteForce_fewCandidates() {
+        assertMatchesBruteForce(60, 3, true, 1);
+    }
+
+    @Test
+    public void classAware_matchesBruteForce_fewCandidates() {
+        assertMatchesBruteForce(60, 3, false, 2);
+    }
+
+    @Test
+    public void classAgnostic_matchesBruteForce_crowdedScene() {
+        // Đủ nhiều ứng viên để dùng lưới không gian
+        assertMatchesBruteForce(3000, 5, true, 3);
+    }
+
+    @Test
+    public void classAware_matchesBruteForce_crowdedScene() {
+        assertMatchesBruteForce(3000, 5, false, 4);
+    }
+
+    @Test
+    public void maxDetections_keepsHighestScoringPrefix() {
+        DetectionBuffer candidates = randomCandidates(2000, 4, 5);
+        List<YOLODetection> expected = bruteForceNMS(candidates.toDetections(null), 0.5f, false);
+
+        NonMaxSuppression nms = new NonMaxSuppression(0.5f, false, 10, NonMaxSuppression.DEFAULT_MAX_CANDIDATES);
+        DetectionBuffer out = new DetectionBuffer(candidates.count);
+        assertEquals(10, nms.run(candidates, out));
+        assertSameDetections(expected.subList(0, 10), out.toDetections(null));
+    }
+
+    @Test
+    public void maxCandidates_keepsTopScoringCandidatesWithTies() {
+        // Điểm làm tròn về bước 0.05 nên nhiều ứng viên cùng điểm, kể cả ở ranh giới top-k:
+        // trong số các box cùng điểm, box đứng trước trong bộ đệm được chọn (như sắp xếp ổn định)
+        DetectionBuffer candidates = randomCandidates(3000, 4, 6);
+        for (int i = 0; i < candidates.count; i++) {
+            candidates.scores[i] = Math.round(candidates.scores[i] * 20) / 20f;
+        }
+        for (int maxCandidates : new int[]{500, 257, 100, 2999}) {
+            List<YOLODetection> sorted = new ArrayList<>(candidates.toDetections(null));
+            Collections.sort(sorted, (d1, d2) -> Float.compare(d2.confidence, d1.confidence));
+            for (boolean classAgnostic : new boolean[]{false, true}) {
+                List<YOLODetection> expected = bruteForceNMS(sorted.subList(0, maxCandidates), 0.5f, classAgnostic);
+
+                NonMaxSuppression nms = new NonMaxSuppression(0.5f, classAgnostic, candidates.count, maxCandidates);
+                DetectionBuffer out = new DetectionBuffer(candidates.count);
+                nms.run(candidates, out);
+                assertSameDetections(expected, out.toDetections(null));
+            }
+        }
+    }
+
+    @Test
+    public void overlappingBoxesOfDifferentClasses_areKeptInClassAwareMode() {
+        DetectionBuffer candidates = new DetectionBuffer(3);
+        candidates.add(10, 10, 110, 110, 0.9f, 0);
+        candidates.add(12, 12, 112, 112, 0.8f, 1);
+        candidates.add(14, 14, 114, 114, 0.7f, 0);
+        DetectionBuffer out = new DetectionBuffer(3);
+
+        assertEquals(2, new NonMaxSuppression(0.5f, false).run(candidates, out));
+        assertEquals(0, out.classIds[0]);
+        assertEquals(1, out.classIds[1]);
+
+        assertEquals(1, new NonMaxSuppression(0.5f, true).run(candidates, out));
+        assertEquals(0.9f, out.scores[0], 0f);
+    }
+
+    private static void assertMatchesBruteForce(int count, int numClasses, boolean classAgnostic, long seed) {
+        DetectionBuffer candidates = randomCandidates(count, numClasses, seed);
+        List<YOLODetection> expected = bruteForceNMS(candidates.toDetections(null), 0.5f, classAgnostic);
+
+        NonMaxSuppression nms = new NonMaxSuppression(0.5f, classAgnostic, count, count);
+        DetectionBuffer out = new DetectionBuffer(count);
+        nms.run(candidates, out);
+
+        assertSameDetections(expected, out.toDetections(null));
+    }
+
+    private static void assertSameDetections(List<YOLODetection> expected, List<YOLODetection> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            YOLODetection e = expected.get(i);
+            YOLODetection a = actual.get(i);
+            assertEquals(e.classIndex, a.classIndex);
+            assertEquals(e.confidence, a.confidence, 0f);
+            assertEquals(e.box_x, a.box_x, 1e-3f);
+            assertEquals(e.box_y, a.box_y, 1e-3f);
+            assertEquals(e.box_width, a.box_width, 1e-3f);
+            assertEquals(e.box_height, a.box_height, 1e-3f);
+        }
+    }
+
+    // Các box tập trung quanh vài tâm để có nhiều chồng lắp, giống cảnh đông đối tượng
+    private static DetectionBuffer randomCandidates(int count, int numClasses, long seed) {
+        Random random = new Random(seed);
+        int numClusters = Math.max(1, count / 20);
+        float[] centers = new float[numClusters * 2];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextFloat() * 1280;
+        }
+
+        DetectionBuffer buffer = new DetectionBuffer(count);
+        for (int i = 0; i < count; i++) {
+            int cluster = random.nextInt(numClusters);
+            // Toạ độ nguyên để IoU tính theo tâm hay theo góc cho kết quả giống hệt nhau
+            float left = Math.round(centers[cluster * 2] + random.nextGaussian() * 8);
+            float top = Math.round(centers[cluster * 2 + 1] + random.nextGaussian() * 8);
+            float width = 20 + random.nextInt(random.nextInt(50) == 0 ? 600 : 60);
+            float height = 20 + random.nextInt(60);
+            buffer.add(left, top, left + width, top + height,
+                    0.25f + random.nextFloat() * 0.75f, random.nextInt(numClasses));
+        }
+        return buffer;
+    }
+
+    // NMS tham chiếu: cùng thuật toán với YOLODetector.applyNMS cũ, với IoU tính trên box dạng tâm
+    private static List<YOLODetection> bruteForceNMS(List<YOLODetection> detections, float iouThreshold,
+                                                     boolean classAgnostic) {
+        detections = new ArrayList<>(detections);
+        Collections.sort(detections, (d1, d2) -> Float.compare(d2.confidence, d1.confidence));
+
+        List<YOLODetection> finalDetections = new ArrayList<>();
+        while (!detections.isEmpty()) {
+            YOLODetection bestDetection = detections.remove(0);
+            finalDetections.add(bestDetection);
+            detections.removeIf(d -> (classAgnostic || d.classIndex == bestDetection.classIndex)
+                    && computeIoU(bestDetection, d) > iouThreshold);
+        }
+        return finalDetections;
+    }
+
+    private static float computeIoU(YOLODetection box1, YOLODetection box2) {
+        float x1 = Math.max(box1.box_x - box1.box_width / 2, box2.box_x - box2.box_width / 2);
+        float y1 = Math.max(box1.box_y - box1.box_height / 2, box2.box_y - box2.box_height / 2);
+        float x2 = Math.min(box1.box_x + box1.box_width / 2, box2.box_x + box2.box_width / 2);
+        float y2 = Math.min(box1.box_y + box1.box_height / 2, box2.box_y + box2.box_height / 2);
+
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        float union = box1.box_width * box1.box_height + box2.box_width * box2.box_height - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+}
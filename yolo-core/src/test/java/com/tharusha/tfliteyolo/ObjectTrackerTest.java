@@ -0,0 +1,112 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the tracker with synthetic moving boxes: stable IDs across skipped frames, no ID swap when two targets
+ * cross, and removal of tracks that stop being detected.
+ */
+public class ObjectTrackerTest {
+    private static final long FRAME_NANOS = 33_333_333L; // 30 fps
+
+    @Test
+    public void constantVelocityTarget_keepsIdAcrossSkippedFrames() {
+        ObjectTracker tracker = new ObjectTracker(8);
+        DetectionBuffer detections = new DetectionBuffer(4);
+        DetectionBuffer predicted = new DetectionBuffer(8);
+        int id = -1;
+        // 300 px/giây theo x, suy luận mỗi 4 frame; các frame ở giữa chỉ dùng predict()
+        for (int frame = 0; frame < 90; frame++) {
+            long timestamp = frame * FRAME_NANOS;
+            float left = 100 + 300 * timestamp / 1e9f;
+            if (frame % 4 == 0) {
+                detections.clear();
+                detections.add(left, 200, left + 100, 280, 0.9f, 2);
+                tracker.update(detections, timestamp);
+                if (id < 0) {
+                    id = detections.trackIds[0];
+                }
+                assertEquals(id, detections.trackIds[0]);
+                assertEquals(1, tracker.getTrackCount());
+            } else if (frame > 40) {
+                // Vận tốc đã hội tụ: vị trí ngoại suy bám theo đối tượng thật
+                tracker.predict(timestamp, predicted);
+                assertEquals(1, predicted.count);
+                assertEquals(id, predicted.trackIds[0]);
+                assertEquals(2, predicted.classIds[0]);
+                assertEquals(left, predicted.boxes[0], 5f);
+                assertEquals(200, predicted.boxes[1], 5f);
+            }
+        }
+        assertTrue(tracker.meanMotion() > 0);
+    }
+
+    @Test
+    public void crossingTargets_doNotSwapIds() {
+        ObjectTracker tracker = new ObjectTracker(8);
+        DetectionBuffer detections = new DetectionBuffer(4);
+        int idA = -1, idB = -1;
+        // A đi sang phải, B đi sang trái (cùng lớp, lệch nhau 30 px theo y), suy luận mỗi 2 frame
+        for (int frame = 0; frame <= 120; frame += 2) {
+            long timestamp = frame * FRAME_NANOS;
+            float seconds = timestamp / 1e9f;
+            float leftA = 100 + 400 * seconds;
+            float leftB = 1100 - 400 * seconds;
+            detections.clear();
+            // Thứ tự detection đổi sau khi hai đối tượng gặp nhau, giống đầu ra NMS theo điểm
+            if (frame < 60) {
+                detections.add(leftA, 100, leftA + 100, 180, 0.9f, 0);
+                detections.add(leftB, 130, leftB + 100, 210, 0.8f, 0);
+            } else {
+                detections.add(leftB, 130, leftB + 100, 210, 0.9f, 0);
+                detections.add(leftA, 100, leftA + 100, 180, 0.8f, 0);
+            }
+            tracker.update(detections, timestamp);
+            int a = frame < 60 ? detections.trackIds[0] : detections.trackIds[1];
+            int b = frame < 60 ? detections.trackIds[1] : detections.trackIds[0];
+            if (idA < 0) {
+                idA = a;
+                idB = b;
+                assertTrue(idA != idB);
+            }
+            assertEquals("target A at frame " + frame, idA, a);
+            assertEquals("target B at frame " + frame, idB, b);
+        }
+        assertEquals(2, tracker.getTrackCount());
+    }
+
+    @Test
+    public void unmatchedTracks_areRemovedAfterMaxAge() {
+        ObjectTracker tracker = new ObjectTracker(8);
+        tracker.maxAge = 3;
+        DetectionBuffer detections = new DetectionBuffer(4);
+        DetectionBuffer predicted = new DetectionBuffer(8);
+        detections.add(10, 10, 60, 60, 0.9f, 1);
+        detections.add(300, 300, 350, 350, 0.9f, 1);
+        tracker.update(detections, 0);
+        assertEquals(2, tracker.getTrackCount());
+
+        // Chỉ đối tượng thứ hai còn được phát hiện
+        detections.clear();
+        detections.add(300, 300, 350, 350, 0.9f, 1);
+        for (int i = 1; i <= 3; i++) {
+            tracker.update(detections, i * FRAME_NANOS);
+            assertEquals(2, tracker.getTrackCount());
+            // Track mất dấu không được xuất ra dù chưa bị xoá
+            tracker.predict(i * FRAME_NANOS, predicted);
+            assertEquals(1, predicted.count);
+            assertEquals(detections.trackIds[0], predicted.trackIds[0]);
+        }
+        tracker.update(detections, 4 * FRAME_NANOS);
+        assertEquals(1, tracker.getTrackCount());
+
+        // Detection điểm thấp không tạo track mới
+        detections.clear();
+        detections.add(600, 600, 650, 650, 0.3f, 1);
+        tracker.update(detections, 5 * FRAME_NANOS);
+        assertEquals(-1, detections.trackIds[0]);
+        assertEquals(1, tracker.getTrackCount());
+    }
+}
@@ -0,0 +1,58 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the resolution controller steps down when over budget, steps back up only with enough headroom,
+ * and does not oscillate between two sizes around the budget.
+ */
+public class ResolutionControllerTest {
+    private static final int[] SIZES = {320, 480, 640};
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void overBudget_stepsDownAfterHold() {
+        ResolutionController controller = new ResolutionController(SIZES, 50 * MS, 640);
+        for (int i = 0; i < controller.downHold - 1; i++) {
+            assertEquals(640, controller.onInference(80 * MS));
+        }
+        assertEquals(480, controller.onInference(80 * MS));
+    }
+
+    @Test
+    public void headroom_stepsUpAfterHold() {
+        ResolutionController controller = new ResolutionController(SIZES, 50 * MS, 320);
+        // 320 mất 10 ms -> dự đoán 480 mất 22.5 ms, dưới 80% ngân sách
+        int size = 320;
+        for (int i = 0; i < controller.upHold; i++) {
+            size = controller.onInference(10 * MS);
+        }
+        assertEquals(480, size);
+    }
+
+    @Test
+    public void latencyNearBudget_doesNotOscillate() {
+        ResolutionController controller = new ResolutionController(SIZES, 50 * MS, 480);
+        // Chi phí tỉ lệ với số pixel: 480 mất 45 ms, 640 mất 80 ms (vượt ngân sách)
+        int changes = 0;
+        int size = 480;
+        for (int i = 0; i < 500; i++) {
+            long latency = (long) (45 * MS * (size / 480f) * (size / 480f));
+            int next = controller.onInference(latency);
+            if (next != size) changes++;
+            size = next;
+        }
+        assertEquals(480, size);
+        assertEquals(0, changes);
+    }
+
+    @Test
+    public void reset_picksNearestSize() {
+        ResolutionController controller = new ResolutionController(SIZES, 50 * MS, 416);
+        assertEquals(480, controller.getInputSize());
+        controller.reset(300);
+        assertEquals(320, controller.getInputSize());
+    }
+}
@@ -0,0 +1,60 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link TileLayout} covers the whole frame with overlapping tiles and respects the tile budget.
+ */
+public class TileLayoutTest {
+
+    @Test
+    public void smallFrame_usesSingleFullFrameTile() {
+        TileLayout layout = new TileLayout(6);
+        layout.compute(640, 480, 640, 0.2f, true);
+        assertEquals(1, layout.count);
+        assertArrayEquals(new int[]{0, 0, 640, 480}, Arrays.copyOf(layout.tiles, 4));
+    }
+
+    @Test
+    public void largeFrame_tilesAtModelResolutionWhenBudgetAllows() {
+        TileLayout layout = new TileLayout(12);
+        layout.compute(1920, 1080, 640, 0.2f, true);
+        assertEquals(640, layout.tileSize);
+        assertCovers(layout, 1920, 1080);
+        assertTrue(layout.count <= 12);
+    }
+
+    @Test
+    public void tightBudget_growsTilesInsteadOfDroppingCoverage() {
+        for (int maxTiles = 2; maxTiles <= 8; maxTiles++) {
+            TileLayout layout = new TileLayout(maxTiles);
+            layout.compute(1080, 1920, 640, 0.25f, true);
+            assertTrue(layout.count <= maxTiles);
+            assertCovers(layout, 1080, 1920);
+
+            layout.compute(1080, 1920, 640, 0.25f, false);
+            assertTrue(layout.count <= maxTiles);
+            assertCovers(layout, 1080, 1920);
+        }
+    }
+
+    // Mọi pixel của frame thuộc ít nhất một tile, và mọi tile nằm trong frame
+    private static void assertCovers(TileLayout layout, int width, int height) {
+        boolean[] covered = new boolean[width * height];
+        for (int t = 0; t < layout.count; t++) {
+            int x = layout.tiles[t * 4], y = layout.tiles[t * 4 + 1];
+            int w = layout.tiles[t * 4 + 2], h = layout.tiles[t * 4 + 3];
+            assertTrue(x >= 0 && y >= 0 && x + w <= width && y + h <= height);
+            for (int row = y; row < y + h; row++) {
+                Arrays.fill(covered, row * width + x, row * width + x + w, true);
+            }
+        }
+        for (boolean c : covered) {
+            assertTrue(c);
+        }
+    }
+}
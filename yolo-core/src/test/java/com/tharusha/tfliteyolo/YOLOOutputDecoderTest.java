@@ -0,0 +1,177 @@
+package com.tharusha.tfliteyolo;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that float and quantized (INT8 / UINT8) model outputs decode to the same detections
+ * within quantization tolerance.
+ */
+public class YOLOOutputDecoderTest {
+    private static final int NUM_CLASSES = 80;
+    private static final int NUM_CHANNELS = 4 + NUM_CLASSES;
+    private static final int NUM_ANCHORS = 8400;
+    private static final int INPUT_SIZE = 640;
+
+    @Test
+    public void int8Output_matchesFloatOutput() {
+        // Phạm vi [0, 1] lượng tử hoá như bản export full-integer: scale 1/255, zero point -128
+        assertQuantizedMatchesFloat(new TensorSpec(TensorSpec.Type.INT8, 1f / 255, -128));
+    }
+
+    @Test
+    public void uint8Output_matchesFloatOutput() {
+        assertQuantizedMatchesFloat(new TensorSpec(TensorSpec.Type.UINT8, 1f / 255, 0));
+    }
+
+    @Test
+    public void floatOutput_mapsBoxesThroughLetterbox() {
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        // Một box ở giữa đầu vào mô hình, rộng 0.5, cao 0.25
+        output[0] = 0.5f;
+        output[NUM_ANCHORS] = 0.5f;
+        output[2 * NUM_ANCHORS] = 0.5f;
+        output[3 * NUM_ANCHORS] = 0.25f;
+        output[(4 + 7) * NUM_ANCHORS] = 0.9f;
+
+        Letterbox letterbox = new Letterbox();
+        letterbox.set(INPUT_SIZE, INPUT_SIZE, 1280, 720); // scale 0.5, padY 140
+
+        DetectionBuffer out = new DetectionBuffer(NUM_ANCHORS);
+        new YOLOOutputDecoder(NUM_CHANNELS, NUM_ANCHORS).decode(toBuffer(output, TensorSpec.FLOAT32), 0.5f, letterbox, out);
+
+        assertEquals(1, out.count);
+        assertEquals(7, out.classIds[0]);
+        assertEquals(320, out.boxes[0], 1e-3f);
+        assertEquals(200, out.boxes[1], 1e-3f);
+        assertEquals(960, out.boxes[2], 1e-3f);
+        assertEquals(520, out.boxes[3], 1e-3f);
+    }
+
+    @Test
+    public void classSubset_andPerClassThresholds_areApplied() {
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        // Anchor 0: lớp 3 (0.7) cao hơn lớp 5 (0.6) nhưng lớp 3 cần 0.8 -> lấy lớp 5
+        output[(4 + 3) * NUM_ANCHORS] = 0.7f;
+        output[(4 + 5) * NUM_ANCHORS] = 0.6f;
+        // Anchor 1: lớp 9 bị tắt -> bỏ qua dù điểm cao
+        output[(4 + 9) * NUM_ANCHORS + 1] = 0.95f;
+        // Anchor 2: lớp 3 vượt ngưỡng riêng 0.8
+        output[(4 + 3) * NUM_ANCHORS + 2] = 0.85f;
+        // Anchor 3: lớp 5 dưới ngưỡng chung 0.5
+        output[(4 + 5) * NUM_ANCHORS + 3] = 0.45f;
+
+        DetectorConfig config = new DetectorConfig(NUM_CLASSES, 0.5f, null).withClasses(5, 3).withThreshold(3, 0.8f);
+        Letterbox letterbox = new Letterbox();
+        letterbox.set(INPUT_SIZE, INPUT_SIZE, INPUT_SIZE, INPUT_SIZE);
+        TensorSpec[] specs = {TensorSpec.FLOAT32, new TensorSpec(TensorSpec.Type.INT8, 1f / 255, -128)};
+        for (TensorSpec spec : specs) {
+            DetectionBuffer out = new DetectionBuffer(NUM_ANCHORS);
+            new YOLOOutputDecoder(NUM_CHANNELS, NUM_ANCHORS, spec).decode(toBuffer(output, spec), config, letterbox, out);
+            assertEquals(2, out.count);
+            assertEquals(5, out.classIds[0]);
+            assertEquals(0.6f, out.scores[0], spec.isQuantized() ? spec.scale : 0);
+            assertEquals(3, out.classIds[1]);
+            assertEquals(0.85f, out.scores[1], spec.isQuantized() ? spec.scale : 0);
+        }
+    }
+
+    @Test
+    public void classConfig_rejectsOutOfRangeClasses() {
+        DetectorConfig config = new DetectorConfig(NUM_CLASSES, 0.5f, null);
+        // withClasses và withThreshold kiểm tra chỉ số lớp giống nhau
+        for (Runnable call : new Runnable[]{() -> config.withClasses(3, NUM_CLASSES),
+                () -> config.withThreshold(-1, 0.7f)}) {
+            try {
+                call.run();
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // OK
+            }
+        }
+    }
+
+    private static void assertQuantizedMatchesFloat(TensorSpec quantizedSpec) {
+        float[] output = syntheticOutput(42);
+        Letterbox letterbox = new Letterbox();
+        letterbox.set(INPUT_SIZE, INPUT_SIZE, 1280, 720);
+
+        DetectionBuffer floatDetections = detect(output, TensorSpec.FLOAT32, letterbox);
+        DetectionBuffer quantizedDetections = detect(output, quantizedSpec, letterbox);
+
+        // Sai số toạ độ: một bước lượng tử (theo đầu vào mô hình) đổi về ảnh gốc, cho cả tâm và nửa kích thước
+        float boxTolerance = quantizedSpec.scale * INPUT_SIZE / letterbox.scale * 1.5f;
+        assertTrue(floatDetections.count > 10);
+        assertEquals(floatDetections.count, quantizedDetections.count);
+
+        // Điểm lượng tử hoá có thể bằng nhau nên thứ tự có thể khác: ghép từng detection theo lớp và toạ độ
+        boolean[] matched = new boolean[quantizedDetections.count];
+        for (int i = 0; i < floatDetections.count; i++) {
+            int match = -1;
+            for (int j = 0; j < quantizedDetections.count && match < 0; j++) {
+                if (!matched[j] && floatDetections.classIds[i] == quantizedDetections.classIds[j]
+                        && sameBox(floatDetections, i, quantizedDetections, j, boxTolerance)) {
+                    match = j;
+                }
+            }
+            assertTrue("no quantized match for detection " + i, match >= 0);
+            matched[match] = true;
+            assertEquals(floatDetections.scores[i], quantizedDetections.scores[match], quantizedSpec.scale);
+        }
+    }
+
+    private static boolean sameBox(DetectionBuffer a, int i, DetectionBuffer b, int j, float tolerance) {
+        for (int k = 0; k < 4; k++) {
+            if (Math.abs(a.boxes[i * 4 + k] - b.boxes[j * 4 + k]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DetectionBuffer detect(float[] output, TensorSpec spec, Letterbox letterbox) {
+        DetectionBuffer candidates = new DetectionBuffer(NUM_ANCHORS);
+        new YOLOOutputDecoder(NUM_CHANNELS, NUM_ANCHORS, spec).decode(toBuffer(output, spec), 0.5f, letterbox, candidates);
+        DetectionBuffer results = new DetectionBuffer(NonMaxSuppression.DEFAULT_MAX_DETECTIONS);
+        new NonMaxSuppression(0.5f, false).run(candidates, results);
+        return results;
+    }
+
+    // Đầu ra giả lập: nền có điểm thấp, một số đối tượng rõ ràng (điểm cách xa ngưỡng và cách xa lớp thứ hai)
+    private static float[] syntheticOutput(long seed) {
+        Random random = new Random(seed);
+        float[] output = new float[NUM_CHANNELS * NUM_ANCHORS];
+        for (int i = 0; i < NUM_ANCHORS; i++) {
+            output[i] = random.nextFloat();
+            output[NUM_ANCHORS + i] = random.nextFloat();
+            output[2 * NUM_ANCHORS + i] = 0.02f + random.nextFloat() * 0.2f;
+            output[3 * NUM_ANCHORS + i] = 0.02f + random.nextFloat() * 0.2f;
+            for (int c = 0; c < NUM_CLASSES; c++) {
+                output[(4 + c) * NUM_ANCHORS + i] = random.nextFloat() * 0.3f;
+            }
+            if (random.nextInt(100) == 0) {
+                output[(4 + random.nextInt(NUM_CLASSES)) * NUM_ANCHORS + i] = 0.6f + random.nextFloat() * 0.39f;
+            }
+        }
+        return output;
+    }
+
+    // Ghi đầu ra vào bộ đệm giống bộ đệm của interpreter, lượng tử hoá nếu cần
+    private static ByteBuffer toBuffer(float[] output, TensorSpec spec) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(output.length * spec.bytesPerElement()).order(ByteOrder.nativeOrder());
+        for (float value : output) {
+            if (spec.isQuantized()) {
+                buffer.put((byte) spec.quantize(value));
+            } else {
+                buffer.putFloat(value);
+            }
+        }
+        buffer.rewind();
+        return buffer;
+    }
+}